@@ -0,0 +1,22 @@
+package com.microservicesdemo.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "dedup-config")
+public class DedupConfigData {
+    // when enabled, tweets whose id was already seen within window-ms are dropped before the kafka send
+    private Boolean enabled;
+    // how long an id is remembered, the window is split into generations that are cleared one at a time
+    private Long windowMs;
+    private Integer generations;
+    // the bloom filter of every generation is sized for this many tweets at the given false positive probability
+    // more tweets than that still work, but the false positive probability climbs above the configured one
+    // a new tweet is checked against every generation, so the share of new tweets dropped is
+    // 1 - (1 - false-positive-probability) ^ generations, about generations * false-positive-probability
+    private Long expectedTweetsPerGeneration;
+    private Double falsePositiveProbability;
+}
@@ -0,0 +1,34 @@
+package com.microservicesdemo.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "hand-off-config")
+public class HandOffConfigData {
+    // when enabled, onStatus only puts the tweet in a bounded queue and producer worker threads send it to kafka
+    private Boolean enabled;
+    private Integer capacity;
+    private Integer workerCount;
+    // max number of queued records a worker sends with one KafkaProducer.sendBatch call
+    private Integer batchSize;
+    private OverflowPolicy overflowPolicy;
+    // only used with the overflow-queue policy, max number of records kept aside while the queue is full
+    private Integer overflowQueueCapacity;
+
+    // what to do with a new record when the queue is full
+    public enum OverflowPolicy {
+        // wait for free space, this slows down the stream thread but loses nothing
+        BLOCK,
+        // remove the oldest queued record to make room for the new one
+        DROP_OLDEST,
+        // discard the new record
+        DROP_NEWEST,
+        // keep the new record aside in a second in-heap queue, the workers only take from it when the main queue
+        // is empty, so overflowed records are sent after newer ones and they are lost when the service stops.
+        // for durable, in order spilling use spill-config, the disk log behind the kafka producer
+        OVERFLOW_QUEUE
+    }
+}
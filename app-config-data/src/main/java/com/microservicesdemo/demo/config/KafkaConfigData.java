@@ -5,6 +5,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Configuration
@@ -17,4 +18,22 @@ public class KafkaConfigData {
     private List<String> topicNamesToCreate;
     private Integer numOfPartitions;
     private Short replicationFactor;
+    // one deadline for creating the topics, the schema registry probe and the schema registration at startup
+    private Long startupTimeoutMs;
+    // value format per topic, topics that are not listed use confluent-avro
+    private Map<String, ValueFormat> topicValueFormats;
+
+    public ValueFormat getValueFormat(String topicName) {
+        ValueFormat valueFormat = topicValueFormats != null ? topicValueFormats.get(topicName) : null;
+        return valueFormat != null ? valueFormat : ValueFormat.CONFLUENT_AVRO;
+    }
+
+    public enum ValueFormat {
+        // [magic byte 0][int schema id][avro binary], needs the schema registry on both sides
+        CONFLUENT_AVRO,
+        // avro single object encoding, [C3 01][8 byte schema fingerprint][avro binary], no registry needed
+        AVRO_SINGLE_OBJECT,
+        // protobuf binary of the TwitterProtoModel message in kafka-model/src/main/resources/proto/twitter.proto
+        PROTOBUF
+    }
 }
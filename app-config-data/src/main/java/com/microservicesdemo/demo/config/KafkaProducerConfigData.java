@@ -19,4 +19,64 @@ public class KafkaProducerConfigData {
     private Integer lingerMs;
     private Integer requestTimeoutMs;
     private Integer retryCount;
+    // number of kafka producers to send with, each one has its own record accumulator and sender thread
+    private Integer producerPoolSize;
+    private PoolSharding producerPoolSharding;
+    // how records are assigned to partitions, see PartitionStrategy in kafka-producer
+    private PartitionStrategyType partitionStrategy;
+    // HOT_KEY_AWARE only: a key is hot when it had more than hot-key-share of the fair share of one partition
+    // in the last window, and the window had at least hot-key-min-window-records records
+    private Long hotKeyWindowMs;
+    private Double hotKeyShare;
+    private Long hotKeyMinWindowRecords;
+    // adaptive batching, tunes linger.ms and batch.size between the bounds below from the observed load
+    private Boolean adaptiveBatchingEnabled;
+    private Long adaptiveCheckIntervalMs;
+    private Integer adaptiveMinLingerMs;
+    private Integer adaptiveMaxLingerMs;
+    private Integer adaptiveMinBatchSize;
+    private Integer adaptiveMaxBatchSize;
+    // below this send rate we switch to the smallest linger and batch, latency matters more than throughput
+    private Double adaptiveLightLoadRecordsPerSecond;
+    // codec applied to every serialized value before it goes to the record batch, see ValueCodec in kafka-producer
+    private ValueCodecType valueCodec;
+    // ZSTD_DICTIONARY only: dictionary file trained offline from sample tweets, and the zstd level
+    private String valueCodecDictionaryPath;
+    private Integer valueCodecLevel;
+    // what a send promises when the brokers or the network fail, see DeliveryGuarantee below
+    private DeliveryGuarantee deliveryGuarantee;
+    // EXACTLY_ONCE only: start of the transactional.id of every producer, must be unique per running instance
+    // since a producer with the same transactional.id fences the older one
+    private String transactionalIdPrefix;
+
+    // the mode we run with when delivery-guarantee is not set
+    public DeliveryGuarantee getDeliveryGuaranteeOrDefault() {
+        return deliveryGuarantee == null ? DeliveryGuarantee.IDEMPOTENT : deliveryGuarantee;
+    }
+
+    // how records are spread over the producer pool, KEY_HASH keeps the records of a key on one producer,
+    // PARTITION gives every producer its own partitions so its batches fill faster
+    public enum PoolSharding {
+        KEY_HASH, PARTITION
+    }
+
+    // KEY_HASH keeps the kafka default (murmur2 of the key), STICKY ignores the key and fills one partition at a time,
+    // HOT_KEY_AWARE hashes the key like KEY_HASH but spreads the keys with too many records over several partitions
+    public enum PartitionStrategyType {
+        KEY_HASH, STICKY, HOT_KEY_AWARE
+    }
+
+    // AT_LEAST_ONCE turns idempotence off, a retried batch can be written twice and overtake the batch behind it,
+    // IDEMPOTENT lets the broker drop retried batches it already wrote, so retries keep the order without duplicates,
+    // EXACTLY_ONCE is IDEMPOTENT plus transactional producers, KafkaProducer.sendBatchInTransaction commits a batch
+    // so read_committed consumers see all of its records or none of them. only the hand off workers send in
+    // transactions, so EXACTLY_ONCE needs hand-off-config.enabled and the service refuses to start without it
+    public enum DeliveryGuarantee {
+        AT_LEAST_ONCE, IDEMPOTENT, EXACTLY_ONCE
+    }
+
+    // NONE leaves the values as they are, ZSTD_DICTIONARY compresses each value on its own with a shared dictionary
+    public enum ValueCodecType {
+        NONE, ZSTD_DICTIONARY
+    }
 }
@@ -0,0 +1,56 @@
+package com.microservicesdemo.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "replay-config")
+public class ReplayConfigData {
+    // when enabled the recorded tweets of the files below are streamed instead of the twitter or the mock stream
+    private Boolean enabled;
+    // files and directories, a directory stands for all files in it, in name order
+    private List<String> paths;
+    private Format format;
+    private Pacing pacing;
+    // only used with original-timestamps pacing, 10 replays an hour of tweets in 6 minutes
+    private Double speedMultiplier;
+    // every file is read by one reader, so more readers than files dont help
+    private Integer readerThreads;
+
+    public Format getFormatOrDefault() {
+        return format != null ? format : Format.AUTO;
+    }
+
+    public Pacing getPacingOrDefault() {
+        return pacing != null ? pacing : Pacing.ORIGINAL_TIMESTAMPS;
+    }
+
+    public double getSpeedMultiplierOrDefault() {
+        return speedMultiplier != null ? speedMultiplier : 1.0;
+    }
+
+    public int getReaderThreadsOrDefault() {
+        return readerThreads != null ? readerThreads : 1;
+    }
+
+    // what the files contain, files ending in .gz or .zst are decompressed on the fly
+    public enum Format {
+        // from the file name: .avro is an avro container file, everything else json lines
+        AUTO,
+        // one tweet json per line like the twitter stream api sends it, other lines (delete and limit notices) are skipped
+        JSON_LINES,
+        // avro container file of TwitterAvroModel records, eg. dumped from the twitter topic, compressed with the codec of the file
+        AVRO
+    }
+
+    public enum Pacing {
+        // the tweets are sent as far apart as their timestamps, divided by the speed multiplier
+        ORIGINAL_TIMESTAMPS,
+        // as fast as the pipeline takes them
+        MAX
+    }
+}
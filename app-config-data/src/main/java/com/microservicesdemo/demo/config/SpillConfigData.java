@@ -0,0 +1,36 @@
+package com.microservicesdemo.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "spill-config")
+public class SpillConfigData {
+    // when enabled, records the kafka producer can not take are appended to a local segment log and replayed later
+    private Boolean enabled;
+    private String directory;
+    private Integer segmentSizeBytes;
+    private FsyncPolicy fsyncPolicy;
+    // only used with the interval fsync policy
+    private Long fsyncIntervalMs;
+    // segments older than this, or above this total size, are deleted even when they were not replayed yet
+    private Long retentionMs;
+    private Long retentionBytes;
+    // records sent but not acked by kafka, above this the producer is saturated and new records go to the spill log
+    private Long maxInFlightRecords;
+    private Long replayIntervalMs;
+    private Integer replayBatchSize;
+    private Long replayAckTimeoutMs;
+
+    // when the spilled records are forced from the page cache to the disk
+    public enum FsyncPolicy {
+        // after every record, nothing is lost on a power failure but every append waits for the disk
+        EVERY_RECORD,
+        // every fsync-interval-ms, a power failure loses at most the records of the last interval
+        INTERVAL,
+        // never, the pages of the mapped file survive a crash of the jvm but not of the machine
+        OS
+    }
+}
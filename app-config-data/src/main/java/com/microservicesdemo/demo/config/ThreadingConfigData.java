@@ -0,0 +1,24 @@
+package com.microservicesdemo.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "threading-config")
+public class ThreadingConfigData {
+    // the threads of the mock generators, the producer hand off workers and the replay readers
+    private ThreadMode mode;
+
+    public ThreadMode getModeOrDefault() {
+        return mode != null ? mode : ThreadMode.PLATFORM;
+    }
+
+    public enum ThreadMode {
+        // classic os threads from fixed size pools
+        PLATFORM,
+        // a virtual thread per task, needs a java 21 runtime, falls back to platform threads on older jvms
+        VIRTUAL
+    }
+}
@@ -0,0 +1,47 @@
+package com.microservicesdemo.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "topic-routing-config")
+public class TopicRoutingConfigData {
+    // when enabled, every tweet is sent to the topics of the routes it matches instead of kafka-config.topic-name
+    private Boolean enabled;
+    // true sends a tweet to every route it matches, false only to the first one in the list
+    private Boolean fanOut;
+    // tweets that match no route go to kafka-config.topic-name, or are dropped when this is false
+    private Boolean sendUnroutedToDefaultTopic;
+    private List<Route> routes = new ArrayList<>();
+
+    public boolean isRoutingEnabled() {
+        return Boolean.TRUE.equals(enabled) && routes != null && !routes.isEmpty();
+    }
+
+    // topics of the routes, the admin client creates them at startup next to kafka-config.topic-names-to-create
+    public List<Route> getRoutesToCreate() {
+        return isRoutingEnabled() ? routes : Collections.emptyList();
+    }
+
+    // a route matches when all of its conditions match, a condition that is not set matches every tweet
+    @Data
+    public static class Route {
+        private String topic;
+        // the tweet text contains one of these, they must also be in twitter-to-kafka-service.twitter-keywords
+        private List<String> keywords;
+        // the tweet language is one of these, eg. en, de
+        private List<String> languages;
+        // the user id of the tweet is within min-user-id and max-user-id, both inclusive
+        private Long minUserId;
+        private Long maxUserId;
+        // partitions and replication factor of the topic, kafka-config values are used when not set
+        private Integer numOfPartitions;
+        private Short replicationFactor;
+    }
+}
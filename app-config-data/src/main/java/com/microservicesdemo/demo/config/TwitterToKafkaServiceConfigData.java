@@ -18,4 +18,18 @@ public class TwitterToKafkaServiceConfigData {
     private Integer mockMinTweetLength;
     private Integer mockMaxTweetLength;
     private Long mockSleepMs;
+    // load generation mode, when mock-tweets-per-second is greater than 0 we drop mock-sleep-ms
+    // and pace the mock tweets with a token bucket across mock-thread-count worker threads
+    private Long mockTweetsPerSecond;
+    private Integer mockThreadCount;
+    // when true the mock tweets are created directly as reused Status objects, without the json round trip
+    private Boolean mockDirectStatus;
+    // tweets are converted into pooled TwitterAvroRecord objects that are reused once kafka acked them,
+    // record-pool-size is how many free records we keep, set it to 0 to build a new TwitterAvroModel per tweet
+    private Integer recordPoolSize;
+    // twitter-keywords are also matched locally on the tweet text, whole words only unless keyword-whole-words is false
+    // with drop-unmatched-tweets a tweet that contains none of the keywords is dropped before it is serialized
+    // it is off unless set to true, replayed tweets are dropped the same way when it is on
+    private Boolean keywordWholeWords;
+    private Boolean dropUnmatchedTweets;
 }
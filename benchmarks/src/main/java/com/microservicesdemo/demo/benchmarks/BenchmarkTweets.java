@@ -0,0 +1,51 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.config.TwitterToKafkaServiceConfigData;
+import com.microservicesdemo.demo.twitterToKafkaService.mock.MockTweetGenerator;
+import com.microservicesdemo.demo.twitterToKafkaService.transformer.TwitterStatusToAvroTransformer;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+
+// shared test data for the benchmarks, same keywords and tweet length as config-client-twitter_to_kafka.yml
+public final class BenchmarkTweets {
+    public static final String TOPIC_NAME = "twitter-topic";
+
+    public static final String[] KEYWORDS = new String[]{"Java", "Microservices", "Spring", "Kafka", "Elasticsearch"};
+
+    public static final int MIN_TWEET_LENGTH = 5;
+
+    public static final int MAX_TWEET_LENGTH = 15;
+
+    private BenchmarkTweets() {
+    }
+
+    public static MockTweetGenerator newGenerator() {
+        return new MockTweetGenerator(KEYWORDS, MIN_TWEET_LENGTH, MAX_TWEET_LENGTH);
+    }
+
+    // a status parsed from json, this is the same twitter4j implementation we get from the real twitter stream
+    public static Status newJsonStatus() {
+        try {
+            return newGenerator().nextStatusFromJson();
+        } catch (TwitterException e) {
+            throw new IllegalStateException("Could not create benchmark status", e);
+        }
+    }
+
+    public static TwitterStatusToAvroTransformer newTransformer(int recordPoolSize) {
+        TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData = new TwitterToKafkaServiceConfigData();
+        twitterToKafkaServiceConfigData.setRecordPoolSize(recordPoolSize);
+        return new TwitterStatusToAvroTransformer(twitterToKafkaServiceConfigData);
+    }
+
+    public static TwitterAvroModel[] newTwitterAvroModels(int count) {
+        MockTweetGenerator mockTweetGenerator = newGenerator();
+        TwitterStatusToAvroTransformer transformer = newTransformer(0);
+        TwitterAvroModel[] models = new TwitterAvroModel[count];
+        for (int i = 0; i < count; i++) {
+            models[i] = transformer.getTwitterAvroModelFromStatus(mockTweetGenerator.nextStatus());
+        }
+        return models;
+    }
+}
@@ -0,0 +1,113 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.config.KafkaProducerConfigData.DeliveryGuarantee;
+import com.microservicesdemo.demo.config.KafkaProducerConfigData.PoolSharding;
+import com.microservicesdemo.demo.config.SpillConfigData;
+import com.microservicesdemo.demo.kafka.producer.config.metrics.TwitterKafkaProducerMetrics;
+import com.microservicesdemo.demo.kafka.producer.config.partition.impl.KeyHashPartitionStrategy;
+import com.microservicesdemo.demo.kafka.producer.config.pool.KafkaProducerPool;
+import com.microservicesdemo.demo.kafka.producer.config.service.impl.TwitterKafkaProducer;
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchRecord;
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchSendResult;
+import com.microservicesdemo.demo.kafka.producer.config.spill.impl.MappedSegmentSpillBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// the throughput cost of the delivery guarantees, a batch of tweets per invocation against the 3 broker docker cluster
+// start the cluster with docker-compose/kafka_cluster.yml first, then eg.
+//   java -jar benchmarks/target/benchmarks.jar DeliveryGuaranteeBenchmark -t 4
+// every invocation waits until its batch is acked (sendBatch) or committed (sendBatchInTransaction),
+// like the hand off worker does with exactly-once, so all three modes pay the round trip to the brokers.
+// the score is per record. idempotence should cost next to nothing, a transaction adds the AddPartitionsToTxn
+// and EndTxn requests to the coordinator and the commit markers, so the larger the batch the smaller the cost
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DeliveryGuaranteeBenchmark {
+    private static final String BOOTSTRAP_SERVERS =
+            System.getProperty("benchmark.bootstrap.servers", "localhost:19092,localhost:29092,localhost:39092");
+
+    private static final String TOPIC_NAME = System.getProperty("benchmark.topic", BenchmarkTweets.TOPIC_NAME);
+
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"AT_LEAST_ONCE", "IDEMPOTENT", "EXACTLY_ONCE"})
+    public DeliveryGuarantee deliveryGuarantee;
+
+    private KafkaProducerPool<Long, TwitterAvroModel> kafkaProducerPool;
+
+    private TwitterKafkaProducer twitterKafkaProducer;
+
+    private final List<BatchRecord<Long, TwitterAvroModel>> batch = new ArrayList<>(BATCH_SIZE);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // same settings as kafka-producer-config in config-client-twitter_to_kafka.yml and KafkaProducerConfig,
+        // except the value serializer, that would need the schema registry
+        Map<String, Object> producerConfig = new HashMap<>();
+        producerConfig.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, BOOTSTRAP_SERVERS);
+        producerConfig.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, LongSerializer.class);
+        producerConfig.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, AvroBinarySerializer.class);
+        producerConfig.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384 * 100);
+        producerConfig.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        producerConfig.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "snappy");
+        producerConfig.put(ProducerConfig.ACKS_CONFIG, "all");
+        producerConfig.put(ProducerConfig.RETRIES_CONFIG, 5);
+        producerConfig.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, deliveryGuarantee != DeliveryGuarantee.AT_LEAST_ONCE);
+        DefaultKafkaProducerFactory<Long, TwitterAvroModel> producerFactory = new DefaultKafkaProducerFactory<>(producerConfig);
+        if (deliveryGuarantee == DeliveryGuarantee.EXACTLY_ONCE) {
+            // a new prefix per run, so a run never has to wait for the transactions a killed run left open
+            producerFactory.setTransactionIdPrefix("delivery-guarantee-benchmark-" + UUID.randomUUID() + "-0-");
+        }
+        kafkaProducerPool = new KafkaProducerPool<>(List.of(producerFactory), PoolSharding.KEY_HASH, new LongSerializer());
+        twitterKafkaProducer = new TwitterKafkaProducer(kafkaProducerPool,
+                new TwitterKafkaProducerMetrics(new SimpleMeterRegistry()), new KeyHashPartitionStrategy<>(),
+                // spill-config.enabled is not set, so the spill log is disabled
+                new MappedSegmentSpillBuffer(new SpillConfigData()));
+        TwitterAvroModel[] models = BenchmarkTweets.newTwitterAvroModels(BATCH_SIZE);
+        for (TwitterAvroModel model : models) {
+            batch.add(new BatchRecord<>(model.getUserId(), model));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        kafkaProducerPool.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public BatchSendResult<Long, TwitterAvroModel> sendBatch() {
+        if (deliveryGuarantee == DeliveryGuarantee.EXACTLY_ONCE) {
+            return twitterKafkaProducer.sendBatchInTransaction(TOPIC_NAME, batch).join();
+        }
+        return twitterKafkaProducer.sendBatch(TOPIC_NAME, batch).join();
+    }
+}
@@ -0,0 +1,107 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.config.KafkaProducerConfigData.PoolSharding;
+import com.microservicesdemo.demo.config.SpillConfigData;
+import com.microservicesdemo.demo.kafka.producer.config.metrics.TwitterKafkaProducerMetrics;
+import com.microservicesdemo.demo.kafka.producer.config.partition.impl.KeyHashPartitionStrategy;
+import com.microservicesdemo.demo.kafka.producer.config.pool.KafkaProducerPool;
+import com.microservicesdemo.demo.kafka.producer.config.service.impl.TwitterKafkaProducer;
+import com.microservicesdemo.demo.kafka.producer.config.spill.impl.MappedSegmentSpillBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// TwitterKafkaProducer.send with a pool of real kafka producers against the 3 broker docker cluster
+// start the cluster with docker-compose/kafka_cluster.yml first, then run the benchmark once per core count, eg.
+//   java -jar benchmarks/target/benchmarks.jar KafkaProducerPoolBenchmark -t 1
+//   java -jar benchmarks/target/benchmarks.jar KafkaProducerPoolBenchmark -t 4
+//   java -jar benchmarks/target/benchmarks.jar KafkaProducerPoolBenchmark -t max
+// with one producer the score stops growing with the thread count, the pool should scale until the brokers are the limit.
+// the send is async so the score is the rate at which the producers take records, when the brokers can not keep up
+// buffer.memory fills and send blocks, so after the warmup this is the sustained throughput of the cluster
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class KafkaProducerPoolBenchmark {
+    private static final String BOOTSTRAP_SERVERS =
+            System.getProperty("benchmark.bootstrap.servers", "localhost:19092,localhost:29092,localhost:39092");
+
+    private static final String TOPIC_NAME = System.getProperty("benchmark.topic", BenchmarkTweets.TOPIC_NAME);
+
+    private static final int MODEL_COUNT = 1024;
+
+    @Param({"1", "2", "4", "8"})
+    public int poolSize;
+
+    // with PARTITION sharding a pool larger than the partition count of the topic leaves producers idle
+    @Param({"KEY_HASH", "PARTITION"})
+    public PoolSharding sharding;
+
+    private KafkaProducerPool<Long, TwitterAvroModel> kafkaProducerPool;
+
+    private TwitterKafkaProducer twitterKafkaProducer;
+
+    private TwitterAvroModel[] models;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // same settings as kafka-producer-config in config-client-twitter_to_kafka.yml,
+        // except the value serializer, that would need the schema registry
+        Map<String, Object> producerConfig = new HashMap<>();
+        producerConfig.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, BOOTSTRAP_SERVERS);
+        producerConfig.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, LongSerializer.class);
+        producerConfig.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, AvroBinarySerializer.class);
+        producerConfig.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384 * 100);
+        producerConfig.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        producerConfig.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "snappy");
+        producerConfig.put(ProducerConfig.ACKS_CONFIG, "all");
+        List<ProducerFactory<Long, TwitterAvroModel>> producerFactories = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            producerFactories.add(new DefaultKafkaProducerFactory<>(producerConfig));
+        }
+        kafkaProducerPool = new KafkaProducerPool<>(producerFactories, sharding, new LongSerializer());
+        twitterKafkaProducer = new TwitterKafkaProducer(kafkaProducerPool,
+                new TwitterKafkaProducerMetrics(new SimpleMeterRegistry()), new KeyHashPartitionStrategy<>(),
+                // spill-config.enabled is not set, so the spill log is disabled
+                new MappedSegmentSpillBuffer(new SpillConfigData()));
+        models = BenchmarkTweets.newTwitterAvroModels(MODEL_COUNT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // flushes what is still in the accumulators
+        kafkaProducerPool.destroy();
+    }
+
+    @Benchmark
+    public void send() {
+        TwitterAvroModel model = models[ThreadLocalRandom.current().nextInt(MODEL_COUNT)];
+        twitterKafkaProducer.send(TOPIC_NAME, model.getUserId(), model);
+    }
+}
@@ -0,0 +1,104 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.KeywordMatches;
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.impl.AhoCorasickKeywordMatcher;
+import com.microservicesdemo.demo.twitterToKafkaService.mock.MockTweetGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// keyword matching of a mock tweet text, the Aho-Corasick matcher against checking every keyword with contains
+// the configured keywords are padded with random words up to keywordCount, the mock tweets only ever contain
+// the configured ones, so the extra keywords are the misses a big keyword list mostly has
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeywordMatcherBenchmark {
+    private static final int TEXT_COUNT = 1024;
+
+    @Param({"5", "1000", "5000"})
+    private int keywordCount;
+
+    private String[] texts;
+
+    private String[] lowerCaseKeywords;
+
+    private AhoCorasickKeywordMatcher keywordMatcher;
+
+    private KeywordMatches keywordMatches;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        List<String> keywords = new ArrayList<>(Arrays.asList(BenchmarkTweets.KEYWORDS));
+        Random random = new Random(42);
+        while (keywords.size() < keywordCount) {
+            char[] word = new char[6 + random.nextInt(8)];
+            for (int i = 0; i < word.length; i++) {
+                word[i] = (char) ('a' + random.nextInt(26));
+            }
+            keywords.add(new String(word));
+        }
+        lowerCaseKeywords = keywords.stream().map(keyword -> keyword.toLowerCase(Locale.ROOT)).toArray(String[]::new);
+        keywordMatcher = new AhoCorasickKeywordMatcher(keywords, false);
+        keywordMatches = keywordMatcher.newMatches();
+
+        MockTweetGenerator mockTweetGenerator = BenchmarkTweets.newGenerator();
+        texts = new String[TEXT_COUNT];
+        for (int i = 0; i < TEXT_COUNT; i++) {
+            texts[i] = mockTweetGenerator.nextTweetText();
+            // both ways must find the same keywords, or we are comparing different work
+            int expected = containsEveryKeyword(texts[i]);
+            int found = keywordMatcher.match(texts[i], keywordMatches);
+            if (expected != found || found == 0) {
+                throw new IllegalStateException("Matcher found " + found + " keywords instead of " + expected + " in " + texts[i]);
+            }
+        }
+        System.out.printf("%nKeyword matcher for %d keywords has %d states%n", keywordMatcher.getKeywordCount(), keywordMatcher.getStateCount());
+    }
+
+    @Benchmark
+    public int ahoCorasick() {
+        return keywordMatcher.match(nextText(), keywordMatches);
+    }
+
+    @Benchmark
+    public int containsEveryKeyword() {
+        return containsEveryKeyword(nextText());
+    }
+
+    private int containsEveryKeyword(String text) {
+        String lowerCaseText = text.toLowerCase(Locale.ROOT);
+        int found = 0;
+        for (String keyword : lowerCaseKeywords) {
+            if (lowerCaseText.contains(keyword)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private String nextText() {
+        index = (index + 1) & (TEXT_COUNT - 1);
+        return texts[index];
+    }
+}
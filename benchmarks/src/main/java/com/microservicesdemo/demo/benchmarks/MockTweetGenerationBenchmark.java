@@ -0,0 +1,43 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservicesdemo.demo.twitterToKafkaService.mock.MockTweetGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+
+import java.util.concurrent.TimeUnit;
+
+// cost of creating one mock tweet in MockKafkaStreamRunner, json round trip vs the direct reused status
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MockTweetGenerationBenchmark {
+    private MockTweetGenerator mockTweetGenerator;
+
+    @Setup
+    public void setUp() {
+        mockTweetGenerator = BenchmarkTweets.newGenerator();
+    }
+
+    @Benchmark
+    public Status nextStatusFromJson() throws TwitterException {
+        return mockTweetGenerator.nextStatusFromJson();
+    }
+
+    @Benchmark
+    public Status nextStatus() {
+        return mockTweetGenerator.nextStatus();
+    }
+}
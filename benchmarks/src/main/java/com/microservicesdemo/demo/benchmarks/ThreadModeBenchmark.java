@@ -0,0 +1,175 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.common.concurrent.ThreadFactories;
+import com.microservicesdemo.demo.config.HandOffConfigData;
+import com.microservicesdemo.demo.config.HandOffConfigData.OverflowPolicy;
+import com.microservicesdemo.demo.config.ThreadingConfigData;
+import com.microservicesdemo.demo.config.ThreadingConfigData.ThreadMode;
+import com.microservicesdemo.demo.kafka.producer.config.service.KafkaProducer;
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchRecord;
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchSendResult;
+import com.microservicesdemo.demo.twitterToKafkaService.handoff.impl.BoundedProducerHandOff;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// PLATFORM vs VIRTUAL threads from ThreadFactories, for the places where the service blocks on a thread
+// blockingTasks runs concurrency tasks that each block for 1 ms, on a fixed pool of PLATFORM_THREADS threads or on a
+// virtual thread per task, so with more tasks than threads the platform pool needs concurrency / PLATFORM_THREADS rounds
+// handOffWorkers pushes HAND_OFF_RECORDS records through the BoundedProducerHandOff worker loop of the service, with
+// workerCount workers and a kafka producer whose send blocks for 1 ms like it does while the producer buffer is full
+// every benchmark has its own state, so the idle hand off workers dont run while the blocking tasks are measured
+// Note: VIRTUAL needs a java 21 jvm, eg. run the jar with java 21, on older jvms ThreadFactories logs a warning once
+// and falls back to platform threads, the hand off logs the mode of its workers when it starts
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadModeBenchmark {
+    private static final int PLATFORM_THREADS = 200;
+
+    private static final long BLOCKING_CALL_MS = 1;
+
+    private static final int HAND_OFF_RECORDS = 2000;
+
+    @State(Scope.Benchmark)
+    public static class BlockingTasks {
+        @Param({"PLATFORM", "VIRTUAL"})
+        public ThreadMode threadMode;
+
+        @Param({"100", "10000"})
+        public int concurrency;
+
+        private ExecutorService executorService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            executorService = ThreadFactories.newExecutor(threadMode, "benchmark", PLATFORM_THREADS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            executorService.shutdownNow();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class HandOff {
+        @Param({"PLATFORM", "VIRTUAL"})
+        public ThreadMode threadMode;
+
+        @Param({"10", "1000"})
+        public int workerCount;
+
+        private final BlockingKafkaProducer kafkaProducer = new BlockingKafkaProducer();
+
+        private BoundedProducerHandOff producerHandOff;
+
+        private TwitterAvroModel[] models;
+
+        // one record per send, so every record blocks a worker, and the block policy so no record is dropped
+        @Setup(Level.Trial)
+        public void setUp() {
+            HandOffConfigData handOffConfigData = new HandOffConfigData();
+            handOffConfigData.setEnabled(true);
+            handOffConfigData.setCapacity(HAND_OFF_RECORDS);
+            handOffConfigData.setWorkerCount(workerCount);
+            handOffConfigData.setBatchSize(1);
+            handOffConfigData.setOverflowPolicy(OverflowPolicy.BLOCK);
+            ThreadingConfigData threadingConfigData = new ThreadingConfigData();
+            threadingConfigData.setMode(threadMode);
+            producerHandOff = new BoundedProducerHandOff(handOffConfigData, threadingConfigData, kafkaProducer,
+                    new SimpleMeterRegistry());
+            producerHandOff.start();
+            models = BenchmarkTweets.newTwitterAvroModels(HAND_OFF_RECORDS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            producerHandOff.shutDown();
+        }
+    }
+
+    @Benchmark
+    public void blockingTasks(BlockingTasks state) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(state.concurrency);
+        for (int i = 0; i < state.concurrency; i++) {
+            state.executorService.execute(() -> {
+                try {
+                    Thread.sleep(BLOCKING_CALL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    // time until the workers sent every record, with fewer workers than records they need several rounds
+    @Benchmark
+    public void handOffWorkers(HandOff state) throws InterruptedException {
+        CountDownLatch sent = state.kafkaProducer.expect(HAND_OFF_RECORDS);
+        for (TwitterAvroModel model : state.models) {
+            state.producerHandOff.submit(BenchmarkTweets.TOPIC_NAME, model.getUserId(), model);
+        }
+        sent.await();
+    }
+
+    // stands in for TwitterKafkaProducer, the hand off only calls send with a batch size of 1 and no transactions
+    static class BlockingKafkaProducer implements KafkaProducer<Long, TwitterAvroModel> {
+        private volatile CountDownLatch sent = new CountDownLatch(0);
+
+        CountDownLatch expect(int count) {
+            sent = new CountDownLatch(count);
+            return sent;
+        }
+
+        @Override
+        public void send(String topicName, Long key, TwitterAvroModel message) {
+            try {
+                Thread.sleep(BLOCKING_CALL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sent.countDown();
+        }
+
+        @Override
+        public CompletableFuture<BatchSendResult<Long, TwitterAvroModel>> sendBatch(String topicName,
+                                                                                   List<BatchRecord<Long, TwitterAvroModel>> records) {
+            throw new UnsupportedOperationException("The hand off sends single records in this benchmark");
+        }
+
+        @Override
+        public boolean isTransactional() {
+            return false;
+        }
+
+        @Override
+        public CompletableFuture<BatchSendResult<Long, TwitterAvroModel>> sendBatchInTransaction(String topicName,
+                                                                                                List<BatchRecord<Long, TwitterAvroModel>> records) {
+            throw new UnsupportedOperationException("The hand off sends single records in this benchmark");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservicesdemo.demo.config.DedupConfigData;
+import com.microservicesdemo.demo.twitterToKafkaService.dedup.impl.RotatingBloomFilterDeduplicator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// cost of the de-dup check on the listener thread, with a new tweet id on every call like the live stream
+// the setup fills one generation up to the size it was built for and prints the false positive rate
+// we measured for new ids next to the estimate of the twitter.dedup.false.positive.probability gauge
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TweetDeduplicationBenchmark {
+    private static final long EXPECTED_TWEETS = 1_000_000;
+
+    private static final long PROBE_COUNT = EXPECTED_TWEETS / 10;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicLong nextId = new AtomicLong();
+
+    private RotatingBloomFilterDeduplicator deduplicator;
+
+    @Setup
+    public void setUp() {
+        DedupConfigData dedupConfigData = new DedupConfigData();
+        dedupConfigData.setEnabled(true);
+        // rotate every 5 seconds, so the measurement also runs while generations are cleared
+        dedupConfigData.setWindowMs(20_000L);
+        dedupConfigData.setGenerations(4);
+        dedupConfigData.setExpectedTweetsPerGeneration(EXPECTED_TWEETS);
+        dedupConfigData.setFalsePositiveProbability(0.001);
+        deduplicator = new RotatingBloomFilterDeduplicator(dedupConfigData, meterRegistry);
+        deduplicator.start();
+
+        // new ids can already be false positives while the filter fills up, they are not counted below
+        for (long id = 0; id < EXPECTED_TWEETS; id++) {
+            deduplicator.isDuplicate(id);
+        }
+        // probe with a tenth of that, every probe is also added so the filter keeps filling while we measure
+        double estimated = meterRegistry.get("twitter.dedup.false.positive.probability").gauge().value();
+        long falsePositives = 0;
+        for (long id = EXPECTED_TWEETS; id < EXPECTED_TWEETS + PROBE_COUNT; id++) {
+            if (deduplicator.isDuplicate(id)) {
+                falsePositives++;
+            }
+        }
+        for (long id = 0; id < EXPECTED_TWEETS; id++) {
+            if (!deduplicator.isDuplicate(id)) {
+                throw new IllegalStateException("Seen id " + id + " not reported as duplicate");
+            }
+        }
+        System.out.printf("%nMeasured false positive rate %.5f, estimated %.5f, %s bytes off heap%n",
+                (double) falsePositives / PROBE_COUNT, estimated,
+                (long) meterRegistry.get("twitter.dedup.memory.bytes").gauge().value());
+        nextId.set(EXPECTED_TWEETS + PROBE_COUNT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        deduplicator.shutDown();
+    }
+
+    @Benchmark
+    public boolean newTweet() {
+        return deduplicator.isDuplicate(nextId.incrementAndGet());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean newTweetFourThreads() {
+        return deduplicator.isDuplicate(nextId.incrementAndGet());
+    }
+}
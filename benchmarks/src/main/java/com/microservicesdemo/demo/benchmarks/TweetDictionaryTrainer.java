@@ -0,0 +1,78 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.config.KafkaConfigData.ValueFormat;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.TwitterAvroModelSerializer;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.codec.impl.ZstdDictionaryValueCodec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// offline tool that trains the zstd dictionary for kafka-producer-config.value-codec: zstd-dictionary
+// the samples are mock tweets serialized in the value format of the topic the dictionary is for, so the dictionary
+// also learns the header and field layout and not only the words. the service refuses zstd-dictionary while a topic
+// uses confluent-avro, so the format is avro-single-object (the default) or protobuf, train one dictionary per format
+// usage: java -cp benchmarks/target/benchmarks.jar com.microservicesdemo.demo.benchmarks.TweetDictionaryTrainer <dictionary file> [samples] [dictionary size] [avro-single-object|protobuf]
+public final class TweetDictionaryTrainer {
+    private static final int DEFAULT_SAMPLE_COUNT = 100_000;
+
+    private static final int DEFAULT_DICTIONARY_SIZE = 16 * 1024;
+
+    static final ValueFormat DEFAULT_VALUE_FORMAT = ValueFormat.AVRO_SINGLE_OBJECT;
+
+    private TweetDictionaryTrainer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TweetDictionaryTrainer <dictionary file> [samples] [dictionary size] [avro-single-object|protobuf]");
+            System.exit(1);
+        }
+        Path dictionaryPath = Paths.get(args[0]);
+        int sampleCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SAMPLE_COUNT;
+        int dictionarySize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DICTIONARY_SIZE;
+        ValueFormat valueFormat = args.length > 3
+                ? ValueFormat.valueOf(args[3].trim().toUpperCase(Locale.ROOT).replace('-', '_'))
+                : DEFAULT_VALUE_FORMAT;
+        if (valueFormat == ValueFormat.CONFLUENT_AVRO) {
+            System.err.println("zstd-dictionary can not be used with confluent-avro, train for avro-single-object or protobuf");
+            System.exit(1);
+        }
+        byte[] dictionary = train(sampleCount, dictionarySize, valueFormat);
+        if (dictionaryPath.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(dictionaryPath.toAbsolutePath().getParent());
+        }
+        Files.write(dictionaryPath, dictionary);
+        System.out.printf("Trained a %d byte %s dictionary from %d tweets into %s%n", dictionary.length, valueFormat,
+                sampleCount, dictionaryPath);
+    }
+
+    public static byte[] train(int sampleCount, int dictionarySize, ValueFormat valueFormat) {
+        return ZstdDictionaryValueCodec.train(newSampleValues(sampleCount, valueFormat), dictionarySize);
+    }
+
+    // the serializer configs that write the benchmark topic in the value format, the codec is added by the caller
+    static Map<String, Object> serializerConfigs(ValueFormat valueFormat) {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(TwitterAvroModelSerializer.VALUE_FORMATS_CONFIG, Collections.singletonMap(BenchmarkTweets.TOPIC_NAME, valueFormat));
+        return configs;
+    }
+
+    static List<byte[]> newSampleValues(int sampleCount, ValueFormat valueFormat) {
+        TwitterAvroModelSerializer serializer = new TwitterAvroModelSerializer();
+        serializer.configure(serializerConfigs(valueFormat), false);
+        List<byte[]> samples = new ArrayList<>(sampleCount);
+        for (TwitterAvroModel model : BenchmarkTweets.newTwitterAvroModels(sampleCount)) {
+            samples.add(serializer.serialize(BenchmarkTweets.TOPIC_NAME, model));
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,109 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.SchemaIdRegistry;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.TwitterAvroModelSerializer;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// avro binary serialization of the TwitterAvroModel
+// serializeLikeKafkaAvroSerializer follows what KafkaAvroSerializer does per record, a new output stream and datum writer on every call
+// serializeWithReusedEncoder reuses the writer, stream and encoder, to show how much of the cost is allocation
+// serializeWithTwitterAvroModelSerializer is the serializer the producer uses, it writes the full confluent wire format,
+// compare it with serializeLikeKafkaAvroSerializerWireFormat which adds the same header the way KafkaAvroSerializer does.
+// run with -prof gc to see the allocation per record next to the throughput
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TwitterAvroModelSerializationBenchmark {
+    private static final int MODEL_COUNT = 1024;
+
+    private TwitterAvroModel[] models;
+
+    private int index;
+
+    private static final int SCHEMA_ID = 1;
+
+    private final Map<Schema, Integer> schemaIdCache = new IdentityHashMap<>(Collections.singletonMap(
+            TwitterAvroModel.getClassSchema(), SCHEMA_ID));
+
+    private final DatumWriter<TwitterAvroModel> reusedWriter = new SpecificDatumWriter<>(TwitterAvroModel.getClassSchema());
+
+    private final ByteArrayOutputStream reusedOut = new ByteArrayOutputStream();
+
+    private BinaryEncoder reusedEncoder;
+
+    private final TwitterAvroModelSerializer twitterAvroModelSerializer = new TwitterAvroModelSerializer();
+
+    @Setup
+    public void setUp() {
+        models = BenchmarkTweets.newTwitterAvroModels(MODEL_COUNT);
+        SchemaIdRegistry schemaIdRegistry = new SchemaIdRegistry();
+        schemaIdRegistry.register(BenchmarkTweets.TOPIC_NAME, SCHEMA_ID);
+        twitterAvroModelSerializer.configure(
+                Collections.singletonMap(TwitterAvroModelSerializer.SCHEMA_ID_REGISTRY_CONFIG, schemaIdRegistry), false);
+    }
+
+    @Benchmark
+    public byte[] serializeLikeKafkaAvroSerializer() throws IOException {
+        return AvroBinarySerializer.serialize(nextModel());
+    }
+
+    @Benchmark
+    public byte[] serializeWithReusedEncoder() throws IOException {
+        reusedOut.reset();
+        reusedEncoder = EncoderFactory.get().directBinaryEncoder(reusedOut, reusedEncoder);
+        reusedWriter.write(nextModel(), reusedEncoder);
+        reusedEncoder.flush();
+        return reusedOut.toByteArray();
+    }
+
+    // KafkaAvroSerializer per record: schema id from the registry client cache (a map lookup keyed by the schema),
+    // a new ByteArrayOutputStream, magic byte and id, a new DatumWriter
+    @Benchmark
+    public byte[] serializeLikeKafkaAvroSerializerWireFormat() throws IOException {
+        TwitterAvroModel model = nextModel();
+        int schemaId = schemaIdCache.get(model.getSchema());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0);
+        out.write(ByteBuffer.allocate(Integer.BYTES).putInt(schemaId).array());
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        new SpecificDatumWriter<>(model.getSchema()).write(model, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializeWithTwitterAvroModelSerializer() {
+        return twitterAvroModelSerializer.serialize(BenchmarkTweets.TOPIC_NAME, nextModel());
+    }
+
+    private TwitterAvroModel nextModel() {
+        index = (index + 1) & (MODEL_COUNT - 1);
+        return models[index];
+    }
+}
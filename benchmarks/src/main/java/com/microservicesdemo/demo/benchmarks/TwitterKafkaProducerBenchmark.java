@@ -0,0 +1,113 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.config.SpillConfigData;
+import com.microservicesdemo.demo.kafka.producer.config.metrics.TwitterKafkaProducerMetrics;
+import com.microservicesdemo.demo.kafka.producer.config.partition.impl.KeyHashPartitionStrategy;
+import com.microservicesdemo.demo.kafka.producer.config.pool.KafkaProducerPool;
+import com.microservicesdemo.demo.kafka.producer.config.service.impl.TwitterKafkaProducer;
+import com.microservicesdemo.demo.kafka.producer.config.spill.impl.MappedSegmentSpillBuffer;
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchRecord;
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchSendResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// TwitterKafkaProducer.send against an in process MockProducer, so we measure our own send path
+// (kafka template, listenable future callback, logging and avro serialization) without the network
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TwitterKafkaProducerBenchmark {
+    private static final int MODEL_COUNT = 1024;
+
+    private static final int BATCH_SIZE = 500;
+
+    private TwitterKafkaProducer twitterKafkaProducer;
+
+    private TwitterAvroModel[] models;
+
+    private int index;
+
+    private final List<BatchRecord<Long, TwitterAvroModel>> batch = new ArrayList<>(BATCH_SIZE);
+
+    @Setup
+    public void setUp() {
+        DiscardingMockProducer mockProducer = new DiscardingMockProducer();
+        twitterKafkaProducer = new TwitterKafkaProducer(KafkaProducerPool.of(() -> mockProducer),
+                new TwitterKafkaProducerMetrics(new SimpleMeterRegistry()), new KeyHashPartitionStrategy<>(),
+                // spill-config.enabled is not set, so the spill log is disabled
+                new MappedSegmentSpillBuffer(new SpillConfigData()));
+        models = BenchmarkTweets.newTwitterAvroModels(MODEL_COUNT);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new BatchRecord<>(models[i].getUserId(), models[i]));
+        }
+    }
+
+    @Benchmark
+    public void send() {
+        index = (index + 1) & (MODEL_COUNT - 1);
+        TwitterAvroModel model = models[index];
+        twitterKafkaProducer.send(BenchmarkTweets.TOPIC_NAME, model.getUserId(), model);
+    }
+
+    // same records through sendBatch, the score is per record so it can be compared with send
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public BatchSendResult<Long, TwitterAvroModel> sendBatch() {
+        return twitterKafkaProducer.sendBatch(BenchmarkTweets.TOPIC_NAME, batch).join();
+    }
+
+    // MockProducer completes every send right away, but it also keeps every record in its history
+    // so we clear it from time to time, and ignore close since KafkaTemplate closes the producer after each send
+    static class DiscardingMockProducer extends MockProducer<Long, TwitterAvroModel> {
+        private static final int CLEAR_EVERY = 10_000;
+
+        private int sentSinceClear;
+
+        DiscardingMockProducer() {
+            super(true, new LongSerializer(), new AvroBinarySerializer<>());
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<Long, TwitterAvroModel> record, Callback callback) {
+            Future<RecordMetadata> future = super.send(record, callback);
+            if (++sentSinceClear == CLEAR_EVERY) {
+                clear();
+                sentSinceClear = 0;
+            }
+            return future;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(Duration timeout) {
+        }
+    }
+}
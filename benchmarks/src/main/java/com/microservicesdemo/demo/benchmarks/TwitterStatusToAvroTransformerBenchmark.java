@@ -0,0 +1,51 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroRecord;
+import com.microservicesdemo.demo.twitterToKafkaService.transformer.TwitterStatusToAvroTransformer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import twitter4j.Status;
+
+import java.util.concurrent.TimeUnit;
+
+// cost of converting a twitter4j Status to the avro model, this runs for every tweet in onStatus
+// getTwitterAvroRecordFromStatus fills a pooled record and recycles it right away, like the producer does after the ack
+// run with -prof gc to compare the allocation per tweet of the two paths
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TwitterStatusToAvroTransformerBenchmark {
+    private final TwitterStatusToAvroTransformer transformer = BenchmarkTweets.newTransformer(1024);
+
+    private Status status;
+
+    @Setup
+    public void setUp() {
+        status = BenchmarkTweets.newJsonStatus();
+    }
+
+    @Benchmark
+    public TwitterAvroModel getTwitterAvroModelFromStatus() {
+        return transformer.getTwitterAvroModelFromStatus(status);
+    }
+
+    @Benchmark
+    public long getTwitterAvroRecordFromStatus() {
+        TwitterAvroModel twitterAvroModel = transformer.getTwitterAvroRecordFromStatus(status);
+        long id = twitterAvroModel.getId();
+        TwitterAvroRecord.recycle(twitterAvroModel);
+        return id;
+    }
+}
@@ -0,0 +1,129 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.config.KafkaConfigData.ValueFormat;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.TwitterAvroModelSerializer;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.codec.impl.ZstdDictionaryValueCodec;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// bytes on the wire and cpu of the batch compression types against the zstd dictionary value codec
+// one op serializes batchSize tweets and builds the record batch the producer would send, with the same
+// MemoryRecordsBuilder the kafka producer uses, so the size is what goes over the network and to the broker log
+// zstd-dictionary compresses the values and sends the batch uncompressed, the other modes are compression-type
+// the setup prints the bytes per record of each mode, read it next to the ops/s (and -prof gc for the allocation)
+// small batches are where the dictionary helps, the batch codecs have almost nothing to find repeats in
+// every mode writes avro-single-object values, the service refuses zstd-dictionary with confluent-avro
+// so measuring the codecs on confluent values would compare against a setup that can not run
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValueCompressionBenchmark {
+    private static final int MODEL_COUNT = 1024;
+
+    private static final int DICTIONARY_SAMPLE_COUNT = 50_000;
+
+    private static final int DICTIONARY_SIZE = 16 * 1024;
+
+    private static final ValueFormat VALUE_FORMAT = TweetDictionaryTrainer.DEFAULT_VALUE_FORMAT;
+
+    @Param({"none", "snappy", "lz4", "gzip", "zstd", "zstd-dictionary"})
+    private String mode;
+
+    @Param({"10", "500"})
+    private int batchSize;
+
+    private final TwitterAvroModelSerializer valueSerializer = new TwitterAvroModelSerializer();
+
+    private final LongSerializer keySerializer = new LongSerializer();
+
+    private CompressionType compressionType;
+
+    private TwitterAvroModel[] models;
+
+    private ByteBuffer batchBuffer;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        models = BenchmarkTweets.newTwitterAvroModels(MODEL_COUNT);
+        Map<String, Object> configs = TweetDictionaryTrainer.serializerConfigs(VALUE_FORMAT);
+        if ("zstd-dictionary".equals(mode)) {
+            // trained from other mock tweets than the ones we send, like a dictionary trained offline would be
+            ZstdDictionaryValueCodec valueCodec = new ZstdDictionaryValueCodec(
+                    TweetDictionaryTrainer.train(DICTIONARY_SAMPLE_COUNT, DICTIONARY_SIZE, VALUE_FORMAT), 3);
+            configs.put(TwitterAvroModelSerializer.VALUE_CODEC_CONFIG, valueCodec);
+            compressionType = CompressionType.NONE;
+            checkRoundTrip(valueCodec);
+        } else {
+            compressionType = CompressionType.forName(mode);
+        }
+        valueSerializer.configure(configs, false);
+        batchBuffer = ByteBuffer.allocate(1024 * 1024);
+
+        long totalBytes = 0;
+        int batches = MODEL_COUNT / batchSize;
+        for (int i = 0; i < batches; i++) {
+            totalBytes += buildBatch();
+        }
+        System.out.printf("%n%s with batches of %d records: %.1f bytes per record%n", mode, batchSize,
+                (double) totalBytes / (batches * batchSize));
+    }
+
+    @Benchmark
+    public int buildBatch() {
+        batchBuffer.clear();
+        MemoryRecordsBuilder builder = MemoryRecords.builder(batchBuffer, compressionType, TimestampType.CREATE_TIME, 0);
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < batchSize; i++) {
+            TwitterAvroModel model = nextModel();
+            byte[] value = valueSerializer.serialize(BenchmarkTweets.TOPIC_NAME, model);
+            builder.append(timestamp, keySerializer.serialize(BenchmarkTweets.TOPIC_NAME, model.getUserId()), value);
+        }
+        return builder.build().sizeInBytes();
+    }
+
+    private void checkRoundTrip(ZstdDictionaryValueCodec valueCodec) {
+        TwitterAvroModelSerializer plainSerializer = new TwitterAvroModelSerializer();
+        Map<String, Object> configs = TweetDictionaryTrainer.serializerConfigs(VALUE_FORMAT);
+        plainSerializer.configure(configs, false);
+        configs.put(TwitterAvroModelSerializer.VALUE_CODEC_CONFIG, valueCodec);
+        TwitterAvroModelSerializer compressingSerializer = new TwitterAvroModelSerializer();
+        compressingSerializer.configure(configs, false);
+        for (TwitterAvroModel model : models) {
+            byte[] plain = plainSerializer.serialize(BenchmarkTweets.TOPIC_NAME, model);
+            byte[] compressed = compressingSerializer.serialize(BenchmarkTweets.TOPIC_NAME, model);
+            if (!Arrays.equals(plain, valueCodec.decode(compressed))) {
+                throw new IllegalStateException("zstd dictionary value did not decompress to the serialized value");
+            }
+        }
+    }
+
+    private TwitterAvroModel nextModel() {
+        index = (index + 1) & (MODEL_COUNT - 1);
+        return models[index];
+    }
+}
@@ -0,0 +1,78 @@
+package com.microservicesdemo.demo.benchmarks;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.config.KafkaConfigData.ValueFormat;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.SchemaIdRegistry;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.TwitterAvroModelSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// serialization throughput and encoded size of the value formats of TwitterAvroModelSerializer
+// CONFLUENT_AVRO is the format we send today, the setup prints the average encoded size of every format
+// so the size column can be read next to the throughput, eg. java -jar benchmarks.jar ValueFormatBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValueFormatBenchmark {
+    private static final int MODEL_COUNT = 1024;
+
+    @Param({"CONFLUENT_AVRO", "AVRO_SINGLE_OBJECT", "PROTOBUF"})
+    private ValueFormat valueFormat;
+
+    private final TwitterAvroModelSerializer twitterAvroModelSerializer = new TwitterAvroModelSerializer();
+
+    private TwitterAvroModel[] models;
+
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException {
+        models = BenchmarkTweets.newTwitterAvroModels(MODEL_COUNT);
+        SchemaIdRegistry schemaIdRegistry = new SchemaIdRegistry();
+        schemaIdRegistry.register(BenchmarkTweets.TOPIC_NAME, 1);
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(TwitterAvroModelSerializer.SCHEMA_ID_REGISTRY_CONFIG, schemaIdRegistry);
+        configs.put(TwitterAvroModelSerializer.VALUE_FORMATS_CONFIG, Collections.singletonMap(BenchmarkTweets.TOPIC_NAME, valueFormat));
+        twitterAvroModelSerializer.configure(configs, false);
+
+        long totalBytes = 0;
+        for (TwitterAvroModel model : models) {
+            byte[] value = twitterAvroModelSerializer.serialize(BenchmarkTweets.TOPIC_NAME, model);
+            totalBytes += value.length;
+            // the single object encoding can be read back with the generated decoder, check we wrote it right
+            if (valueFormat == ValueFormat.AVRO_SINGLE_OBJECT && !model.equals(TwitterAvroModel.getDecoder().decode(ByteBuffer.wrap(value)))) {
+                throw new IllegalStateException("Single object encoding did not decode to the same model");
+            }
+        }
+        System.out.printf("%nAverage encoded size of %s: %.1f bytes%n", valueFormat, (double) totalBytes / models.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return twitterAvroModelSerializer.serialize(BenchmarkTweets.TOPIC_NAME, nextModel());
+    }
+
+    private TwitterAvroModel nextModel() {
+        index = (index + 1) & (MODEL_COUNT - 1);
+        return models[index];
+    }
+}
@@ -0,0 +1,111 @@
+package com.microservicesdemo.demo.benchmarks.loadtest;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.ThreadMXBean;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// gc pauses and allocated bytes of this jvm between start and stop
+// the pauses come from the gc notifications, so we see every single pause and not only the sum the mx beans keep
+// the allocated bytes are summed per thread, the bytes of a thread that dies in between are lost,
+// that is why a step starts measuring after the warmup, when the generator, hand off and producer threads all run
+// with the embedded broker the broker threads are in this jvm as well and are part of both numbers
+public class JvmActivityRecorder implements NotificationListener {
+    private final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+    private final AtomicLong pauseCount = new AtomicLong();
+
+    private final AtomicLong pauseTotalMs = new AtomicLong();
+
+    private final AtomicLong pauseMaxMs = new AtomicLong();
+
+    // allocated bytes by thread id when we started, a thread that is not in here started after us
+    private Map<Long, Long> allocatedBytesAtStart = new HashMap<>();
+
+    private long allocatedBytes;
+
+    public void start() {
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        for (GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (garbageCollector instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) garbageCollector;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+        allocatedBytesAtStart = allocatedBytesOfLiveThreads();
+    }
+
+    public void stop() {
+        allocatedBytes = 0;
+        allocatedBytesOfLiveThreads().forEach((threadId, allocated) ->
+                allocatedBytes += allocated - allocatedBytesAtStart.getOrDefault(threadId, 0L));
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // was never added, nothing to remove
+            }
+        }
+        emitters.clear();
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        // the concurrent cycles of g1 (java 20 on), zgc and shenandoah run next to the application, only their pauses count
+        String collector = info.getGcName();
+        if (collector.contains("Concurrent") || collector.contains("Cycles")) {
+            return;
+        }
+        long durationMs = info.getGcInfo().getDuration();
+        pauseCount.incrementAndGet();
+        pauseTotalMs.addAndGet(durationMs);
+        pauseMaxMs.accumulateAndGet(durationMs, Math::max);
+    }
+
+    public long getPauseCount() {
+        return pauseCount.get();
+    }
+
+    public long getPauseTotalMs() {
+        return pauseTotalMs.get();
+    }
+
+    public long getPauseMaxMs() {
+        return pauseMaxMs.get();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    private Map<Long, Long> allocatedBytesOfLiveThreads() {
+        long[] threadIds = threadMXBean.getAllThreadIds();
+        long[] allocated = threadMXBean.getThreadAllocatedBytes(threadIds);
+        Map<Long, Long> allocatedByThread = new HashMap<>();
+        for (int i = 0; i < threadIds.length; i++) {
+            // -1 for a thread that died since getAllThreadIds
+            if (allocated[i] >= 0) {
+                allocatedByThread.put(threadIds[i], allocated[i]);
+            }
+        }
+        return allocatedByThread;
+    }
+}
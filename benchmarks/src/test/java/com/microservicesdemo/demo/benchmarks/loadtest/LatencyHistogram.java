@@ -0,0 +1,75 @@
+package com.microservicesdemo.demo.benchmarks.loadtest;
+
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+
+import java.util.concurrent.TimeUnit;
+
+// percentiles of a timer over a time span, from two snapshots of its percentile histogram
+// the percentiles the timer publishes itself cover its last decay window and would include the warmup, with a
+// histogram that never decays end minus start are exactly the values recorded in between
+// the buckets grow by about 10% to 30%, we interpolate linearly within a bucket
+public class LatencyHistogram {
+    private final double[] bucketBoundsNanos;
+
+    // count of the values up to each bucket bound
+    private final double[] countsUpToBound;
+
+    private final long count;
+
+    private LatencyHistogram(double[] bucketBoundsNanos, double[] countsUpToBound, long count) {
+        this.bucketBoundsNanos = bucketBoundsNanos;
+        this.countsUpToBound = countsUpToBound;
+        this.count = count;
+    }
+
+    public static LatencyHistogram between(HistogramSnapshot start, HistogramSnapshot end) {
+        CountAtBucket[] startBuckets = start.histogramCounts();
+        CountAtBucket[] endBuckets = end.histogramCounts();
+        if (endBuckets.length == 0 || startBuckets.length != endBuckets.length) {
+            throw new IllegalStateException("The timer has no percentile histogram to read the percentiles from");
+        }
+        double[] bounds = new double[endBuckets.length];
+        double[] counts = new double[endBuckets.length];
+        for (int i = 0; i < endBuckets.length; i++) {
+            bounds[i] = endBuckets[i].bucket(TimeUnit.NANOSECONDS);
+            counts[i] = endBuckets[i].count() - startBuckets[i].count();
+            // the counts of a decaying histogram can go down, see the expiry LoadTestRunner sets for the timer
+            if (counts[i] < 0) {
+                throw new IllegalStateException("The histogram counts went down between the snapshots, the histogram of the timer decays");
+            }
+            // every bucket is summed up on its own while the producer keeps recording, so a bucket can have
+            // a few values less than the one below it, that are values recorded in between
+            if (i > 0 && counts[i] < counts[i - 1]) {
+                counts[i] = counts[i - 1];
+            }
+        }
+        // the count of the snapshot is read apart from the buckets, with the last bucket the percentiles always add up
+        return new LatencyHistogram(bounds, counts, (long) counts[counts.length - 1]);
+    }
+
+    // the value below which the given share of the recorded values are, in milliseconds
+    // values above the last bucket (30 seconds for timers) are not counted
+    public double percentileMs(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        double rank = percentile * count;
+        double lowerBound = 0;
+        double countUpToLowerBound = 0;
+        for (int i = 0; i < bucketBoundsNanos.length; i++) {
+            if (countsUpToBound[i] >= rank) {
+                double countInBucket = countsUpToBound[i] - countUpToLowerBound;
+                double share = countInBucket == 0 ? 1 : (rank - countUpToLowerBound) / countInBucket;
+                return toMs(lowerBound + share * (bucketBoundsNanos[i] - lowerBound));
+            }
+            lowerBound = bucketBoundsNanos[i];
+            countUpToLowerBound = countsUpToBound[i];
+        }
+        return toMs(bucketBoundsNanos[bucketBoundsNanos.length - 1]);
+    }
+
+    private static double toMs(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,155 @@
+package com.microservicesdemo.demo.benchmarks.loadtest;
+
+import com.microservicesdemo.demo.benchmarks.loadtest.RateStepResult.Metric;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+// the committed results of a load run (benchmarks/load-test-baseline.properties) and the thresholds a new run
+// is held to. a metric regresses when it is worse than the baseline by more than its threshold share, the latency and
+// gc thresholds also allow a few milliseconds, a p99 of 3 ms going to 4 ms is noise and not a regression
+// the numbers only mean something on the machine they were recorded on, record it again on the machine that checks,
+// eg. the ci runner, with -Dloadtest.record-baseline=true and commit the file
+public class LoadTestBaseline {
+    private static final String THRESHOLD_PREFIX = "threshold.";
+
+    private static final String RECORDED_PREFIX = "recorded.";
+
+    private static final Map<String, String> DEFAULT_THRESHOLDS = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_THRESHOLDS.put("throughput", "0.10");
+        DEFAULT_THRESHOLDS.put("latency", "0.30");
+        DEFAULT_THRESHOLDS.put("latency.slack-ms", "2");
+        DEFAULT_THRESHOLDS.put("tail-latency", "0.50");
+        DEFAULT_THRESHOLDS.put("tail-latency.slack-ms", "5");
+        DEFAULT_THRESHOLDS.put("gc", "0.50");
+        DEFAULT_THRESHOLDS.put("gc.slack-ms", "10");
+        DEFAULT_THRESHOLDS.put("allocation", "0.15");
+    }
+
+    private final Properties properties;
+
+    private LoadTestBaseline(Properties properties) {
+        this.properties = properties;
+    }
+
+    // null when there is no baseline file yet
+    public static LoadTestBaseline load(Path baselineFile) {
+        if (!Files.exists(baselineFile)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(baselineFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the load test baseline " + baselineFile, e);
+        }
+        return new LoadTestBaseline(properties);
+    }
+
+    // the thresholds of an existing baseline are kept, so recording again doesnt reset tuned thresholds
+    public static void write(Path file, Map<String, String> recordedWith, List<RateStepResult> results,
+                             LoadTestBaseline previous, String comment) {
+        Properties properties = new SortedProperties();
+        DEFAULT_THRESHOLDS.forEach((name, value) -> properties.setProperty(THRESHOLD_PREFIX + name,
+                previous == null ? value : previous.properties.getProperty(THRESHOLD_PREFIX + name, value)));
+        recordedWith.forEach((name, value) -> properties.setProperty(RECORDED_PREFIX + name, value));
+        results.forEach(result -> result.toProperties(properties));
+        try {
+            if (file.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                properties.store(writer, comment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the load test results to " + file, e);
+        }
+    }
+
+    // the differences between how the baseline and this run were made, a comparison across them is only a hint
+    public List<String> recordedWithDifferences(Map<String, String> recordedWith) {
+        List<String> differences = new ArrayList<>();
+        recordedWith.forEach((name, value) -> {
+            String baselineValue = properties.getProperty(RECORDED_PREFIX + name);
+            if (!Objects.equals(value, baselineValue)) {
+                differences.add(name + " is " + value + " but the baseline was recorded with " + baselineValue);
+            }
+        });
+        return differences;
+    }
+
+    public RateStepResult result(long rate) {
+        return RateStepResult.fromProperties(rate, properties);
+    }
+
+    // a description of every metric of the run that is worse than the baseline by more than its threshold
+    public List<String> regressions(RateStepResult current) {
+        List<String> regressions = new ArrayList<>();
+        if (current.getFailures() > 0) {
+            regressions.add(current.getFailures() + " records could not be sent");
+        }
+        RateStepResult baseline = result(current.getRate());
+        if (baseline == null) {
+            return regressions;
+        }
+        for (Metric metric : Metric.values()) {
+            Double baselineValue = baseline.get(metric);
+            Double currentValue = current.get(metric);
+            if (baselineValue == null || currentValue == null) {
+                continue;
+            }
+            double share = threshold(metric.getThresholdName());
+            boolean regressed;
+            if (metric.isHigherIsBetter()) {
+                regressed = currentValue < baselineValue * (1 - share);
+            } else {
+                regressed = currentValue > baselineValue * (1 + share) + slack(metric);
+            }
+            if (regressed) {
+                regressions.add(String.format("%s %s %s, baseline %s (threshold %.0f%%)", metric.getKey(),
+                        RateStepResult.format(currentValue), metric.getUnit(), RateStepResult.format(baselineValue),
+                        share * 100));
+            }
+        }
+        return regressions;
+    }
+
+    private double slack(Metric metric) {
+        String slackName = metric.getThresholdName() + ".slack-ms";
+        return DEFAULT_THRESHOLDS.containsKey(slackName) ? threshold(slackName) : 0;
+    }
+
+    private double threshold(String name) {
+        String override = LoadTestSettings.thresholdOverride(name);
+        if (!override.isEmpty()) {
+            return Double.parseDouble(override);
+        }
+        return Double.parseDouble(properties.getProperty(THRESHOLD_PREFIX + name, DEFAULT_THRESHOLDS.get(name)));
+    }
+
+    // stores the keys in order, so a new baseline gives a readable diff against the committed one
+    private static class SortedProperties extends Properties {
+        @Override
+        public synchronized Set<Map.Entry<Object, Object>> entrySet() {
+            Set<Map.Entry<Object, Object>> sorted = new TreeSet<>(
+                    (first, second) -> first.getKey().toString().compareTo(second.getKey().toString()));
+            sorted.addAll(super.entrySet());
+            return sorted;
+        }
+    }
+}
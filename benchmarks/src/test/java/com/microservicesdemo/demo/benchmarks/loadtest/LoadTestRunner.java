@@ -0,0 +1,232 @@
+package com.microservicesdemo.demo.benchmarks.loadtest;
+
+import com.microservicesdemo.demo.benchmarks.loadtest.RateStepResult.Metric;
+import com.microservicesdemo.demo.kafka.test.KafkaTestEnvironment;
+import com.microservicesdemo.demo.twitterToKafkaService.TwitterToKafkaServiceApplication;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// end to end load test of twitter-to-kafka-service, from the Status the mock stream hands to the listener to the
+// broker ack. every rate of loadtest.rates is one step: the whole service is started with the mock runner generating
+// that many tweets per second, after the warmup we measure throughput, ack latency percentiles, gc pauses and
+// allocation, then the service is stopped again. the steps are compared with the committed baseline file and the
+// run exits with 1 when one of them regressed beyond the thresholds of the baseline
+// by default it runs against the embedded broker and schema registry of kafka-test-support, in this jvm, so it needs
+// no docker and no config server, the service reads config-client-twitter_to_kafka.yml directly
+// run it with the load-test maven profile after an mvn install, the shaded benchmarks.jar can not start spring boot:
+//   mvn -Pload-test -pl benchmarks verify
+//   mvn -Pload-test -pl benchmarks verify -Dloadtest.record-baseline=true     (write a new baseline)
+//   mvn -Pload-test -pl benchmarks verify -Dloadtest.bootstrap-servers=localhost:19092 -Dloadtest.schema-registry-url=http://localhost:8081
+public final class LoadTestRunner {
+    // see TwitterToKafkaServiceApplication.main, has to be set before the first avro class is loaded
+    private static final String AVRO_CUSTOM_CODERS_PROPERTY = "org.apache.avro.specific.use_custom_coders";
+
+    private static final String RECORDS_SENT = "twitter.kafka.producer.records.sent";
+
+    private static final String ACK_LATENCY = "twitter.kafka.producer.ack.latency";
+
+    private static final String FAILURES = "twitter.kafka.producer.failures";
+
+    private static final String STATUS_RECEIVED = "twitter.status.received";
+
+    private static final String HAND_OFF_DROPPED = "twitter.handoff.dropped";
+
+    // a step that gets less than this share of its rate into the listener is past what the service can take
+    private static final double SATURATED_SHARE = 0.95;
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty(AVRO_CUSTOM_CODERS_PROPERTY, "true");
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        List<RateStepResult> results = new ArrayList<>();
+        try (KafkaTestEnvironment environment = settings.isEmbeddedBroker() ? new KafkaTestEnvironment().start() : null) {
+            Map<String, Object> kafkaProperties = environment != null ? environment.springProperties() : externalKafkaProperties(settings);
+            for (long rate : settings.getRates()) {
+                RateStepResult result = runStep(settings, rate, kafkaProperties);
+                System.out.println(describe(result));
+                results.add(result);
+            }
+        }
+        System.exit(evaluate(settings, results) ? 0 : 1);
+    }
+
+    private static RateStepResult runStep(LoadTestSettings settings, long rate, Map<String, Object> kafkaProperties)
+            throws IOException, InterruptedException {
+        System.out.printf("Running %d tweets per second: %ds warmup, %ds measured%n", rate,
+                settings.getWarmup().getSeconds(), settings.getMeasure().getSeconds());
+        // a spill log left over from an earlier step would be replayed into this one
+        Path spillDirectory = Files.createTempDirectory("load-test-spill-");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TwitterToKafkaServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run(serviceArguments(settings, rate, kafkaProperties, spillDirectory))) {
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            Thread.sleep(settings.getWarmup().toMillis());
+            JvmActivityRecorder jvmActivityRecorder = new JvmActivityRecorder();
+            jvmActivityRecorder.start();
+            MeterReadings start = MeterReadings.read(meterRegistry);
+            Thread.sleep(settings.getMeasure().toMillis());
+            MeterReadings end = MeterReadings.read(meterRegistry);
+            jvmActivityRecorder.stop();
+            return result(rate, start, end, jvmActivityRecorder);
+        } finally {
+            Utils.delete(spillDirectory.toFile());
+        }
+    }
+
+    // command line arguments and not default properties, they have to win over the values of the config file
+    private static String[] serviceArguments(LoadTestSettings settings, long rate, Map<String, Object> kafkaProperties,
+                                             Path spillDirectory) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.cloud.config.enabled", false);
+        properties.put("spring.config.additional-location", "file:" + settings.getConfigFile().toAbsolutePath());
+        properties.put("twitter-to-kafka-service.enable-mock-tweets", true);
+        properties.put("twitter-to-kafka-service.mock-tweets-per-second", rate);
+        properties.put("twitter-to-kafka-service.mock-thread-count", settings.getGeneratorThreads());
+        properties.put("spill-config.directory", spillDirectory.toAbsolutePath());
+        // the ack latency timer publishes percentiles, so its histogram decays and rotates every 40 seconds,
+        // with one buffer that expires after the run it keeps every value and the counts only go up
+        properties.put("management.metrics.distribution.expiry." + ACK_LATENCY, "3650d");
+        properties.put("management.metrics.distribution.buffer-length." + ACK_LATENCY, 1);
+        properties.putAll(kafkaProperties);
+        return properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+
+    private static Map<String, Object> externalKafkaProperties(LoadTestSettings settings) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("kafka-config.bootstrap-servers", settings.getBootstrapServers());
+        if (!settings.getSchemaRegistryUrl().isEmpty()) {
+            properties.put("kafka-config.schema-registry-url", settings.getSchemaRegistryUrl());
+        }
+        return properties;
+    }
+
+    private static RateStepResult result(long rate, MeterReadings start, MeterReadings end, JvmActivityRecorder jvmActivityRecorder) {
+        double seconds = (end.nanoTime - start.nanoTime) / (double) Duration.ofSeconds(1).toNanos();
+        long sent = (long) (end.sent - start.sent);
+        LatencyHistogram ackLatency = LatencyHistogram.between(start.ackLatency, end.ackLatency);
+        RateStepResult result = new RateStepResult(rate);
+        result.set(Metric.THROUGHPUT, sent / seconds);
+        result.set(Metric.ACK_P50, ackLatency.percentileMs(0.5));
+        result.set(Metric.ACK_P99, ackLatency.percentileMs(0.99));
+        result.set(Metric.ACK_P999, ackLatency.percentileMs(0.999));
+        result.set(Metric.GC_PAUSE, jvmActivityRecorder.getPauseTotalMs() / seconds);
+        result.set(Metric.GC_MAX_PAUSE, jvmActivityRecorder.getPauseMaxMs());
+        result.set(Metric.ALLOCATION_PER_RECORD, jvmActivityRecorder.getAllocatedBytes() / (double) Math.max(1, sent));
+        result.setReceivedPerSecond((end.received - start.received) / seconds);
+        result.setFailures((long) (end.failures - start.failures));
+        result.setDropped((long) (end.dropped - start.dropped));
+        result.setGcPauseCount(jvmActivityRecorder.getPauseCount());
+        result.setAllocationMbPerSecond(jvmActivityRecorder.getAllocatedBytes() / seconds / (1024 * 1024));
+        return result;
+    }
+
+    // writes the results file, then records the baseline or compares against it, false when the run failed
+    private static boolean evaluate(LoadTestSettings settings, List<RateStepResult> results) {
+        Map<String, String> recordedWith = recordedWith(settings);
+        LoadTestBaseline baseline = LoadTestBaseline.load(settings.getBaselineFile());
+        LoadTestBaseline.write(settings.getResultsFile(), recordedWith, results, baseline, "load test results");
+        System.out.println("Results written to " + settings.getResultsFile());
+        if (settings.isRecordBaseline()) {
+            LoadTestBaseline.write(settings.getBaselineFile(), recordedWith, results, baseline,
+                    "load test baseline, compared against by mvn -Pload-test -pl benchmarks verify");
+            System.out.println("Baseline written to " + settings.getBaselineFile());
+            return results.stream().allMatch(result -> result.getFailures() == 0);
+        }
+        if (baseline == null) {
+            System.out.println("No baseline at " + settings.getBaselineFile() + ", record one with -Dloadtest.record-baseline=true");
+            return results.stream().allMatch(result -> result.getFailures() == 0);
+        }
+        baseline.recordedWithDifferences(recordedWith)
+                .forEach(difference -> System.out.println("Warning: " + difference));
+        boolean passed = true;
+        for (RateStepResult result : results) {
+            if (baseline.result(result.getRate()) == null) {
+                System.out.printf("%d tweets per second: no baseline for this rate%n", result.getRate());
+            }
+            List<String> regressions = baseline.regressions(result);
+            for (String regression : regressions) {
+                System.out.printf("REGRESSION at %d tweets per second: %s%n", result.getRate(), regression);
+            }
+            passed &= regressions.isEmpty();
+        }
+        System.out.println(passed ? "Load test passed against the baseline" : "Load test FAILED against the baseline");
+        return passed;
+    }
+
+    // how the numbers were made, a baseline from other hardware or another broker is no baseline for this run
+    private static Map<String, String> recordedWith(LoadTestSettings settings) {
+        Map<String, String> recordedWith = new LinkedHashMap<>();
+        recordedWith.put("java.version", System.getProperty("java.version"));
+        recordedWith.put("processors", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        recordedWith.put("max-heap-mb", String.valueOf(Runtime.getRuntime().maxMemory() / (1024 * 1024)));
+        recordedWith.put("broker", settings.isEmbeddedBroker() ? "embedded" : settings.getBootstrapServers());
+        recordedWith.put("generator-threads", String.valueOf(settings.getGeneratorThreads()));
+        recordedWith.put("warmup-seconds", String.valueOf(settings.getWarmup().getSeconds()));
+        recordedWith.put("measure-seconds", String.valueOf(settings.getMeasure().getSeconds()));
+        return recordedWith;
+    }
+
+    private static String describe(RateStepResult result) {
+        boolean saturated = result.getReceivedPerSecond() < result.getRate() * SATURATED_SHARE;
+        return String.format("%d tweets per second%s: received %.0f/s, acked %.0f/s, ack p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, "
+                        + "gc %d pauses %.1f ms/s max %.0f ms, allocation %.1f MB/s %.0f bytes/record, failures %d, dropped %d",
+                result.getRate(), saturated ? " (saturated)" : "", result.getReceivedPerSecond(), result.get(Metric.THROUGHPUT),
+                result.get(Metric.ACK_P50), result.get(Metric.ACK_P99), result.get(Metric.ACK_P999),
+                result.getGcPauseCount(), result.get(Metric.GC_PAUSE), result.get(Metric.GC_MAX_PAUSE),
+                result.getAllocationMbPerSecond(), result.get(Metric.ALLOCATION_PER_RECORD),
+                result.getFailures(), result.getDropped());
+    }
+
+    // the meters of the service at one point in time, the prometheus registry counts from the start of the service
+    private static class MeterReadings {
+        private long nanoTime;
+
+        private double sent;
+
+        private double received;
+
+        private double failures;
+
+        private double dropped;
+
+        private HistogramSnapshot ackLatency;
+
+        private static MeterReadings read(MeterRegistry meterRegistry) {
+            MeterReadings readings = new MeterReadings();
+            Timer ackLatencyTimer = meterRegistry.get(ACK_LATENCY).timer();
+            readings.ackLatency = ackLatencyTimer.takeSnapshot();
+            readings.sent = meterRegistry.get(RECORDS_SENT).counter().count();
+            readings.received = count(meterRegistry, STATUS_RECEIVED);
+            readings.failures = count(meterRegistry, FAILURES);
+            readings.dropped = count(meterRegistry, HAND_OFF_DROPPED);
+            readings.nanoTime = System.nanoTime();
+            return readings;
+        }
+
+        // the sum over all counters of the name, 0 when none was created yet (eg. no failure so far)
+        private static double count(MeterRegistry meterRegistry, String name) {
+            return meterRegistry.find(name).counters().stream().mapToDouble(Counter::count).sum();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.microservicesdemo.demo.benchmarks.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+// what a load run does, read from loadtest.* system properties, the load-test maven profile passes them on
+// to the forked jvm, so they can be changed with eg. mvn -Pload-test -pl benchmarks verify -Dloadtest.rates=1000,2000
+public class LoadTestSettings {
+    private static final String PREFIX = "loadtest.";
+
+    // mock tweets per second of each step, the steps run from the lowest rate up
+    private final List<Long> rates;
+
+    private final Duration warmup;
+
+    private final Duration measure;
+
+    private final int generatorThreads;
+
+    private final Path configFile;
+
+    private final Path baselineFile;
+
+    private final Path resultsFile;
+
+    // write the results of this run to the baseline file instead of comparing against it
+    private final boolean recordBaseline;
+
+    // empty starts the embedded broker and schema registry of kafka-test-support in this jvm
+    private final String bootstrapServers;
+
+    private final String schemaRegistryUrl;
+
+    private LoadTestSettings() {
+        this.rates = parseRates(property("rates", "1000,5000,20000,50000"));
+        this.warmup = Duration.ofSeconds(Long.parseLong(property("warmup-seconds", "10")));
+        this.measure = Duration.ofSeconds(Long.parseLong(property("measure-seconds", "20")));
+        this.generatorThreads = Integer.parseInt(property("generator-threads", "2"));
+        this.configFile = Paths.get(property("config-file", "config-server-repository/config-client-twitter_to_kafka.yml"));
+        this.baselineFile = Paths.get(property("baseline-file", "benchmarks/load-test-baseline.properties"));
+        this.resultsFile = Paths.get(property("results-file", "benchmarks/target/load-test-results.properties"));
+        this.recordBaseline = Boolean.parseBoolean(property("record-baseline", "false"));
+        this.bootstrapServers = property("bootstrap-servers", "");
+        this.schemaRegistryUrl = property("schema-registry-url", "");
+    }
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings();
+    }
+
+    // a threshold given on the command line wins over the one stored in the baseline file
+    public static String thresholdOverride(String name) {
+        return property("threshold." + name, "");
+    }
+
+    public List<Long> getRates() {
+        return rates;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getMeasure() {
+        return measure;
+    }
+
+    public int getGeneratorThreads() {
+        return generatorThreads;
+    }
+
+    public Path getConfigFile() {
+        return configFile;
+    }
+
+    public Path getBaselineFile() {
+        return baselineFile;
+    }
+
+    public Path getResultsFile() {
+        return resultsFile;
+    }
+
+    public boolean isRecordBaseline() {
+        return recordBaseline;
+    }
+
+    public boolean isEmbeddedBroker() {
+        return bootstrapServers.isEmpty();
+    }
+
+    public String getBootstrapServers() {
+        return bootstrapServers;
+    }
+
+    public String getSchemaRegistryUrl() {
+        return schemaRegistryUrl;
+    }
+
+    // the maven profile passes unset properties as empty strings, so empty means default as well
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(PREFIX + name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    private static List<Long> parseRates(String rates) {
+        SortedSet<Long> parsed = new TreeSet<>();
+        for (String rate : rates.split(",")) {
+            if (!rate.trim().isEmpty()) {
+                parsed.add(Long.parseLong(rate.trim()));
+            }
+        }
+        if (parsed.isEmpty() || parsed.first() <= 0) {
+            throw new IllegalArgumentException("The rates in " + PREFIX + "rates must be greater than 0: " + rates);
+        }
+        return new ArrayList<>(parsed);
+    }
+}
@@ -0,0 +1,176 @@
+package com.microservicesdemo.demo.benchmarks.loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+// what one step of a load run measured, at one mock tweet rate
+public class RateStepResult {
+    // the measured values that are compared against the baseline
+    // higherIsBetter says in which direction a change is a regression, thresholdName picks the threshold of the baseline file
+    public enum Metric {
+        THROUGHPUT("throughput", "records/s", true, "throughput"),
+        ACK_P50("ack.p50.ms", "ms", false, "latency"),
+        ACK_P99("ack.p99.ms", "ms", false, "latency"),
+        // one in a thousand, a few gc pauses or a slow fsync of the broker more or less move it a lot
+        ACK_P999("ack.p999.ms", "ms", false, "tail-latency"),
+        GC_PAUSE("gc.pause.ms.per.second", "ms/s", false, "gc"),
+        GC_MAX_PAUSE("gc.max.pause.ms", "ms", false, "gc"),
+        // per record and not per second, the allocation rate goes up with the throughput
+        ALLOCATION_PER_RECORD("allocation.bytes.per.record", "bytes", false, "allocation");
+
+        private final String key;
+
+        private final String unit;
+
+        private final boolean higherIsBetter;
+
+        private final String thresholdName;
+
+        Metric(String key, String unit, boolean higherIsBetter, String thresholdName) {
+            this.key = key;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+            this.thresholdName = thresholdName;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        public boolean isHigherIsBetter() {
+            return higherIsBetter;
+        }
+
+        public String getThresholdName() {
+            return thresholdName;
+        }
+    }
+
+    private static final String RECEIVED_PER_SECOND = "received.per.second";
+
+    private static final String FAILURES = "failures";
+
+    private static final String DROPPED = "dropped";
+
+    private static final String GC_PAUSE_COUNT = "gc.pause.count";
+
+    private static final String ALLOCATION_MB_PER_SECOND = "allocation.mb.per.second";
+
+    private final long rate;
+
+    private final Map<Metric, Double> values = new EnumMap<>(Metric.class);
+
+    // only reported, tweets that made it into the listener per second, below the rate when the generators are blocked
+    private double receivedPerSecond;
+
+    // records the producer could not send, any of them fails the run
+    private long failures;
+
+    // tweets the hand off dropped because its queue was full, only with the drop overflow policies
+    private long dropped;
+
+    private long gcPauseCount;
+
+    private double allocationMbPerSecond;
+
+    public RateStepResult(long rate) {
+        this.rate = rate;
+    }
+
+    public static String keyPrefix(long rate) {
+        return "rate." + rate + ".";
+    }
+
+    // null when the properties have no result for this rate
+    public static RateStepResult fromProperties(long rate, Properties properties) {
+        String prefix = keyPrefix(rate);
+        if (properties.getProperty(prefix + Metric.THROUGHPUT.getKey()) == null) {
+            return null;
+        }
+        RateStepResult result = new RateStepResult(rate);
+        for (Metric metric : Metric.values()) {
+            String value = properties.getProperty(prefix + metric.getKey());
+            if (value != null) {
+                result.values.put(metric, Double.parseDouble(value));
+            }
+        }
+        result.receivedPerSecond = Double.parseDouble(properties.getProperty(prefix + RECEIVED_PER_SECOND, "0"));
+        result.failures = Long.parseLong(properties.getProperty(prefix + FAILURES, "0"));
+        result.dropped = Long.parseLong(properties.getProperty(prefix + DROPPED, "0"));
+        result.gcPauseCount = Long.parseLong(properties.getProperty(prefix + GC_PAUSE_COUNT, "0"));
+        result.allocationMbPerSecond = Double.parseDouble(properties.getProperty(prefix + ALLOCATION_MB_PER_SECOND, "0"));
+        return result;
+    }
+
+    public void toProperties(Properties properties) {
+        String prefix = keyPrefix(rate);
+        values.forEach((metric, value) -> properties.setProperty(prefix + metric.getKey(), format(value)));
+        properties.setProperty(prefix + RECEIVED_PER_SECOND, format(receivedPerSecond));
+        properties.setProperty(prefix + FAILURES, String.valueOf(failures));
+        properties.setProperty(prefix + DROPPED, String.valueOf(dropped));
+        properties.setProperty(prefix + GC_PAUSE_COUNT, String.valueOf(gcPauseCount));
+        properties.setProperty(prefix + ALLOCATION_MB_PER_SECOND, format(allocationMbPerSecond));
+    }
+
+    public long getRate() {
+        return rate;
+    }
+
+    public Double get(Metric metric) {
+        return values.get(metric);
+    }
+
+    public void set(Metric metric, double value) {
+        values.put(metric, value);
+    }
+
+    public double getReceivedPerSecond() {
+        return receivedPerSecond;
+    }
+
+    public void setReceivedPerSecond(double receivedPerSecond) {
+        this.receivedPerSecond = receivedPerSecond;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public void setFailures(long failures) {
+        this.failures = failures;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public void setDropped(long dropped) {
+        this.dropped = dropped;
+    }
+
+    public long getGcPauseCount() {
+        return gcPauseCount;
+    }
+
+    public void setGcPauseCount(long gcPauseCount) {
+        this.gcPauseCount = gcPauseCount;
+    }
+
+    public double getAllocationMbPerSecond() {
+        return allocationMbPerSecond;
+    }
+
+    public void setAllocationMbPerSecond(double allocationMbPerSecond) {
+        this.allocationMbPerSecond = allocationMbPerSecond;
+    }
+
+    public static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
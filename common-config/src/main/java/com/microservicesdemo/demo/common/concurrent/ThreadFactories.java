@@ -0,0 +1,116 @@
+package com.microservicesdemo.demo.common.concurrent;
+
+import com.microservicesdemo.demo.config.ThreadingConfigData.ThreadMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// named thread factories and executors for the two thread modes of threading-config
+// we still compile for java 11, so the virtual thread api (Thread.ofVirtual, Executors.newThreadPerTaskExecutor)
+// is looked up with reflection once, on a java 21 runtime we get virtual threads and on older ones platform threads
+// Note: virtual threads are cheap to block, so a blocking call (a full producer buffer, a paced replay)
+// only parks the virtual thread and frees its carrier, but they are not faster for cpu bound work
+public final class ThreadFactories {
+    private static final Logger LOG = LoggerFactory.getLogger(ThreadFactories.class);
+
+    // Thread.ofVirtual(), Thread.Builder.name(String, long), Thread.Builder.factory(), null before java 21
+    private static final Method OF_VIRTUAL;
+
+    private static final Method BUILDER_NAME;
+
+    private static final Method BUILDER_FACTORY;
+
+    // Executors.newThreadPerTaskExecutor(ThreadFactory)
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    // every executor asks for its mode, but the fallback warning is only logged once
+    private static final AtomicBoolean FALLBACK_LOGGED = new AtomicBoolean();
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            // java 19 and 20 have the methods as a preview api, they throw unless the jvm runs with --enable-preview
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private ThreadFactories() {
+    }
+
+    public static boolean isVirtualThreadsAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    // the mode we really run with, VIRTUAL turns into PLATFORM when the jvm has no virtual threads
+    public static ThreadMode effectiveMode(ThreadMode mode) {
+        if (mode == ThreadMode.VIRTUAL && !isVirtualThreadsAvailable()) {
+            if (FALLBACK_LOGGED.compareAndSet(false, true)) {
+                LOG.warn("Virtual threads need a java 21 runtime, running on java {} with platform threads",
+                        System.getProperty("java.specification.version"));
+            }
+            return ThreadMode.PLATFORM;
+        }
+        return mode != null ? mode : ThreadMode.PLATFORM;
+    }
+
+    // threads named namePrefix-0, namePrefix-1 ..., platform threads are daemon threads so they never hold up the jvm exit
+    // virtual threads are always daemon threads
+    public static ThreadFactory newThreadFactory(ThreadMode mode, String namePrefix) {
+        if (effectiveMode(mode) == ThreadMode.VIRTUAL) {
+            try {
+                Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix + "-", 0L);
+                return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create a virtual thread factory", e);
+            }
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // platform mode: a fixed pool of platformThreads threads, tasks beyond that wait in the queue
+    // virtual mode: a new virtual thread per task, there is no pool and nothing waits for a free thread
+    public static ExecutorService newExecutor(ThreadMode mode, String namePrefix, int platformThreads) {
+        ThreadFactory threadFactory = newThreadFactory(mode, namePrefix);
+        if (effectiveMode(mode) == ThreadMode.VIRTUAL) {
+            try {
+                return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create a virtual thread executor", e);
+            }
+        }
+        return Executors.newFixedThreadPool(platformThreads, threadFactory);
+    }
+
+    // one platform daemon thread named namePrefix-0 for periodic background work, eg. a tuner or a rotation
+    // it is not a thread mode of threading-config, a scheduler thread sleeps most of the time and gains nothing from
+    // being virtual, and ScheduledThreadPoolExecutor keeps its threads anyway
+    public static ScheduledExecutorService newSingleThreadScheduler(String namePrefix) {
+        return Executors.newSingleThreadScheduledExecutor(newThreadFactory(ThreadMode.PLATFORM, namePrefix));
+    }
+}
@@ -0,0 +1,113 @@
+package com.microservicesdemo.demo.common.logging;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// wraps a slf4j logger for log statements on the hot path, like one log line per tweet
+// instead of writing every message it only writes a sample of them, so the log volume stays the same whatever the throughput
+// two sampling modes:
+// everyNth(logger, n) - writes 1 message out of every n calls
+// perSecond(logger, k) - writes at most k messages per second, the rest of the calls in that second are skipped
+// the level check and the sample check are done before formatting, so a skipped message costs an atomic increment
+// Note: create one SampledLogger per log statement (as a static final field), each one keeps its own counters
+public final class SampledLogger {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Logger logger;
+
+    private final long everyNth;
+
+    private final int maxPerSecond;
+
+    private final AtomicLong callCount = new AtomicLong();
+
+    private final AtomicInteger windowCount = new AtomicInteger();
+
+    private volatile long windowStartNanos = System.nanoTime();
+
+    private SampledLogger(Logger logger, long everyNth, int maxPerSecond) {
+        this.logger = logger;
+        this.everyNth = everyNth;
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public static SampledLogger everyNth(Logger logger, long n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Sample rate must be at least 1, got " + n);
+        }
+        return new SampledLogger(logger, n, 0);
+    }
+
+    public static SampledLogger perSecond(Logger logger, int maxPerSecond) {
+        if (maxPerSecond < 1) {
+            throw new IllegalArgumentException("Max messages per second must be at least 1, got " + maxPerSecond);
+        }
+        return new SampledLogger(logger, 0, maxPerSecond);
+    }
+
+    public void debug(String format, Object arg1, Object arg2) {
+        if (logger.isDebugEnabled() && sample()) {
+            logger.debug(format, arg1, arg2);
+        }
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        if (logger.isInfoEnabled() && sample()) {
+            logger.info(format, arg1, arg2);
+        }
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        if (logger.isWarnEnabled() && sample()) {
+            logger.warn(format, arg1, arg2);
+        }
+    }
+
+    // fixed arities and no varargs, a varargs call allocates its array before we can skip it
+    // slf4j has no fixed arity for 3 or more arguments, there the array is only built for a message that is written
+    public void error(String format, Object arg) {
+        if (logger.isErrorEnabled() && sample()) {
+            logger.error(format, arg);
+        }
+    }
+
+    public void error(String format, Object arg1, Object arg2) {
+        if (logger.isErrorEnabled() && sample()) {
+            logger.error(format, arg1, arg2);
+        }
+    }
+
+    public void error(String format, Object arg1, Object arg2, Object arg3) {
+        if (logger.isErrorEnabled() && sample()) {
+            logger.error(format, arg1, arg2, arg3);
+        }
+    }
+
+    public void error(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+        if (logger.isErrorEnabled() && sample()) {
+            logger.error(format, arg1, arg2, arg3, arg4);
+        }
+    }
+
+    // returns true when this call should be written to the log
+    public boolean sample() {
+        if (everyNth > 0) {
+            return callCount.getAndIncrement() % everyNth == 0;
+        }
+        long now = System.nanoTime();
+        long windowStart = windowStartNanos;
+        if (now - windowStart >= NANOS_PER_SECOND) {
+            // only one thread wins the new window, the others just count in it
+            synchronized (this) {
+                if (windowStartNanos == windowStart) {
+                    windowCount.set(0);
+                    windowStartNanos = now;
+                }
+            }
+        }
+        return windowCount.incrementAndGet() <= maxPerSecond;
+    }
+}
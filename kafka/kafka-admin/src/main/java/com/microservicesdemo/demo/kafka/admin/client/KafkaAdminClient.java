@@ -2,37 +2,59 @@ package com.microservicesdemo.demo.kafka.admin.client;
 
 import com.microservicesdemo.demo.config.KafkaConfigData;
 import com.microservicesdemo.demo.config.RetryConfigData;
+import com.microservicesdemo.demo.config.TopicRoutingConfigData;
 import com.microservicesdemo.demo.kafka.admin.config.WebClientConfig;
 import com.microservicesdemo.demo.kafka.admin.exception.KafkaClientException;
 import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.CreateTopicsOptions;
 import org.apache.kafka.clients.admin.CreateTopicsResult;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.admin.TopicListing;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.errors.TopicExistsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.retry.RetryContext;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Component
 public class KafkaAdminClient {
     private static final Logger LOG = LoggerFactory.getLogger(KafkaAdminClient.class);
 
+    private static final MediaType SCHEMA_REGISTRY_CONTENT_TYPE = MediaType.parseMediaType("application/vnd.schemaregistry.v1+json");
+
     // construcotr injecting all depenccies
     private final KafkaConfigData kafkaConfigData;
 
     private final RetryConfigData retryConfigData;
 
+    private final TopicRoutingConfigData topicRoutingConfigData;
+
     // this is via admin client depency
     private final AdminClient adminClient;
 
@@ -42,122 +64,232 @@ public class KafkaAdminClient {
     // inject webclient as well
     private final WebClient webClient;
 
-    public KafkaAdminClient(KafkaConfigData kafkaConfigData, RetryConfigData retryConfigData, AdminClient adminClient, RetryTemplate retryTemplate, WebClient webClient) {
+    // the last failure we retried, per startup deadline, so a startup that runs out of time can tell why
+    // the calls of one startup share the deadline, so it is the last failure of any of them
+    private final Map<Long, KafkaClientException> lastRetriedFailures = new ConcurrentHashMap<>();
+
+    public KafkaAdminClient(KafkaConfigData kafkaConfigData, RetryConfigData retryConfigData, TopicRoutingConfigData topicRoutingConfigData, AdminClient adminClient, RetryTemplate retryTemplate, WebClient webClient) {
         this.kafkaConfigData = kafkaConfigData;
         this.retryConfigData = retryConfigData;
+        this.topicRoutingConfigData = topicRoutingConfigData;
         this.adminClient = adminClient;
         this.retryTemplate = retryTemplate;
         // spring will inject weblcient implementation bean at runtime,
         this.webClient = webClient;
     }
 
+    // the startup calls below are asynchronous and share one deadline, computed once from kafka-config.startup-timeout-ms
+    // every retry stops at the deadline instead of after max-attempts, so topic creation and the registry probe
+    // can run at the same time and together they never take longer than the timeout
+    public long startupDeadlineNanos() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(kafkaConfigData.getStartupTimeoutMs());
+    }
+
+    // blocking versions for callers that dont need to run anything next to them
     public void createTopics() {
-        // this is coming from admin client depencdy that we added
-        CreateTopicsResult createTopicsResult;
-        try {
-            createTopicsResult = retryTemplate.execute(this::doCreateTopics);
-        } catch (Throwable t) {
-            throw new KafkaClientException("Reached max number of retry for creating kafka topics!", t);
-        }
-        // double check to make sure topics are created
-        checkTopicsCreated();
+        long deadlineNanos = startupDeadlineNanos();
+        await(createTopicsAsync(deadlineNanos), deadlineNanos);
     }
 
-    private CreateTopicsResult doCreateTopics(RetryContext retryContext) {
-        List<String> topicNames = kafkaConfigData.getTopicNamesToCreate();
-        LOG.info("Creating {} topics, attempt {}", topicNames.size(), retryContext.getRetryCount());
+    public void checkSchemaRegistry() {
+        long deadlineNanos = startupDeadlineNanos();
+        await(checkSchemaRegistryAsync(deadlineNanos), deadlineNanos);
+    }
 
-        // convert list of topic names to stream
-        List<NewTopic> kafkaTopics = topicNames.stream().map(topic -> new NewTopic(
-                topic.trim(),
-                kafkaConfigData.getNumOfPartitions(),
-                kafkaConfigData.getReplicationFactor()
-        )).collect(Collectors.toList());
-
-        // pass created topics into adminclient creeatetopic
-        return adminClient.createTopics(kafkaTopics);
-    }
-
-    public void checkTopicsCreated() {
-        Collection<TopicListing> topics = getTopics();
-        int retryCount = 1;
-        Integer maxRetry = retryConfigData.getMaxAttempts();
-        Integer multiplier = retryConfigData.getMultiplier().intValue();
-        Long sleepTimeMs = retryConfigData.getSleepTimeMs();
-        for (String topic: kafkaConfigData.getTopicNamesToCreate()) {
-            // create topics is an asynchronous logic, thats why we added custom retry logic in top of retry template
-            // custom retry login, wait until topics created or max retry reached
-            while (!isTopicCreated(topics, topic)) {
-                // check until max retry time
-                checkMaxRetry(retryCount++, maxRetry);
-                sleep(sleepTimeMs);
-                // exponentially increase the sleep time until we get to the topics using getTopics method
-                sleepTimeMs *= multiplier;
-                topics = getTopics();
-            }
-        }
+    public int registerSchema(String subject, String schema) {
+        long deadlineNanos = startupDeadlineNanos();
+        return await(registerSchemaAsync(subject, schema, deadlineNanos), deadlineNanos);
+    }
+
+    // completes once the controller created every topic, we dont poll listTopics afterwards anymore
+    // the create call itself is the verification, its per topic futures only complete when the topic exists
+    // a topic that was already there (eg. after a restart of the service) fails with TopicExistsException, which is fine
+    public CompletableFuture<Void> createTopicsAsync(long deadlineNanos) {
+        List<NewTopic> kafkaTopics = getTopicsToCreate();
+        return retryUntil(deadlineNanos, "creating kafka topics", KafkaAdminClient::isRetriableKafkaError, attempt -> {
+            LOG.info("Creating {} topics, attempt {}", kafkaTopics.size(), attempt);
+            // the admin client retries internally on its own until the timeout, eg. while the brokers are still starting
+            CreateTopicsOptions createTopicsOptions = new CreateTopicsOptions().timeoutMs(remainingMs(deadlineNanos));
+            // pass created topics into adminclient creeatetopic
+            CreateTopicsResult createTopicsResult = adminClient.createTopics(kafkaTopics, createTopicsOptions);
+            CompletableFuture<?>[] topicsCreated = createTopicsResult.values().entrySet().stream()
+                    .map(topic -> toCompletableFuture(topic.getValue()).handle((ignored, error) -> {
+                        Throwable cause = unwrap(error);
+                        if (cause != null && !(cause instanceof TopicExistsException)) {
+                            throw new CompletionException(cause);
+                        }
+                        LOG.info("Topic {} is ready", topic.getKey());
+                        return null;
+                    }))
+                    .toArray(CompletableFuture[]::new);
+            return CompletableFuture.allOf(topicsCreated);
+        });
     }
 
     // check to see if schema registry is up and running
     // because we will run everything schema regisry, kafka and services in same compose file
     // we dont want to fail at startup because schema registry is unreachable
-    // to do that we need to make a REST call to schema regisry end point
-    public void checkSchemaRegistry() {
-        int retryCount = 1;
-        Integer maxRetry = retryConfigData.getMaxAttempts();
-        // getMultipplier is a type double but we get intValue of int
-        int multiplier = retryConfigData.getMultiplier().intValue();
-        Long sleepTimeMs = retryConfigData.getSleepTimeMs();
-        // check to see if we have successful schema registry http status
-        // we will try check and wait until schemaregistry is up and running and wait until max retry
-        while (!getSchemaRegistryStatus().is2xxSuccessful()) {
-            // check until max retry time
-            checkMaxRetry(retryCount++, maxRetry);
-            sleep(sleepTimeMs);
-            sleepTimeMs *= multiplier;
-        }
+    // the probe is a non blocking WebClient call, retried with backoff until the registry answers with a 2xx status
+    public CompletableFuture<Void> checkSchemaRegistryAsync(long deadlineNanos) {
+        // every error is retried here, a registry that refuses connections or answers 503 is just not up yet
+        return retryUntil(deadlineNanos, "checking the schema registry", error -> true, attempt -> webClient
+                .method(HttpMethod.GET)
+                .uri(kafkaConfigData.getSchemaRegistryUrl())
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+                .timeout(Duration.ofMillis(remainingMs(deadlineNanos)))
+                .toFuture()
+                .thenAccept(status -> {
+                    if (!status.is2xxSuccessful()) {
+                        throw new KafkaClientException("Schema registry is not ready, status " + status);
+                    }
+                }));
     }
 
-    // will return a httpstatus object
-    private HttpStatus getSchemaRegistryStatus() {
-        // we will make a rest call here and return the http status, to check the status of the schema registry
-        try {
+    // register the schema for the subject, or get the id when the same schema is already registered
+    // the schema registry returns {"id": 1} for POST /subjects/{subject}/versions with {"schema": "<avsc json>"}
+    // a 4xx answer (eg. an incompatible schema) is not retried, a 5xx or a connection error is
+    public CompletableFuture<Integer> registerSchemaAsync(String subject, String schema, long deadlineNanos) {
+        return retryUntil(deadlineNanos, "registering schema of subject " + subject, KafkaAdminClient::isRetriableHttpError, attempt -> {
+            LOG.info("Registering schema for subject {}, attempt {}", subject, attempt);
             return webClient
-                    .method(HttpMethod.GET)
-                    .uri(kafkaConfigData.getSchemaRegistryUrl())
-                    .exchange()
-                    .map(ClientResponse::statusCode) // here we will map the response to ClientResponse statusCode object
-                    .block(); // block the operations to ge the result synchronosly from schema registry
-        } catch (Exception e) {
-            return HttpStatus.SERVICE_UNAVAILABLE;
-        }
+                    .method(HttpMethod.POST)
+                    .uri(kafkaConfigData.getSchemaRegistryUrl() + "/subjects/{subject}/versions", subject)
+                    .contentType(SCHEMA_REGISTRY_CONTENT_TYPE)
+                    .bodyValue(Collections.singletonMap("schema", schema))
+                    .retrieve()
+                    .bodyToMono(Map.class)
+                    .timeout(Duration.ofMillis(remainingMs(deadlineNanos)))
+                    .switchIfEmpty(Mono.error(() -> new KafkaClientException("Schema registry returned no body for subject " + subject)))
+                    .toFuture()
+                    .thenApply(response -> {
+                        if (!(response.get("id") instanceof Number)) {
+                            throw new KafkaClientException("Schema registry returned no schema id for subject " + subject + ": " + response);
+                        }
+                        return ((Number) response.get("id")).intValue();
+                    });
+        });
     }
 
-    private void sleep(Long sleepTimeMs) {
-        // we will just sleep for the configure amount of time
+    // waits for a startup future until the deadline, and throws the KafkaClientException it failed with as it is
+    // when the deadline passes first the last retried failure is the cause, eg. the broker refused the connection
+    public <T> T await(CompletableFuture<T> future, long deadlineNanos) {
         try {
-            Thread.sleep(sleepTimeMs);
+            return future.get(remainingMs(deadlineNanos), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            KafkaClientException lastFailure = lastRetriedFailures.get(deadlineNanos);
+            throw new KafkaClientException("Kafka topics and schema registry were not ready within " +
+                    kafkaConfigData.getStartupTimeoutMs() + " ms" +
+                    (lastFailure != null ? ", last failure: " + lastFailure.getMessage() : ""), lastFailure);
         } catch (InterruptedException e) {
-            throw new KafkaClientException("Error while sleeping for waitingnew created topics ");
+            Thread.currentThread().interrupt();
+            throw new KafkaClientException("Interrupted while waiting for kafka topics and schema registry", e);
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof KafkaClientException) {
+                throw (KafkaClientException) cause;
+            }
+            throw new KafkaClientException("Error while waiting for kafka topics and schema registry", cause);
+        } finally {
+            lastRetriedFailures.remove(deadlineNanos);
         }
     }
 
-    private void checkMaxRetry(int retry, Integer maxRetry) {
-        // check if the current retry number if greater than maxretry
-        // if it is greater then we throw kafka client exception
-        if(retry > maxRetry) {
-            throw new KafkaClientException("Reached max number of retry for reading kafka topics");
+    // runs the attempt again after a backoff until it succeeds, fails with an error that is not retriable, or the
+    // next try would start after the deadline, the backoff waits on CompletableFuture.delayedExecutor
+    // so no thread sleeps while we wait
+    private <T> CompletableFuture<T> retryUntil(long deadlineNanos, String operation, Predicate<Throwable> retriable,
+                                                IntFunction<CompletableFuture<T>> attempt) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        runAttempt(deadlineNanos, operation, retriable, attempt, 1, result);
+        return result;
+    }
+
+    private <T> void runAttempt(long deadlineNanos, String operation, Predicate<Throwable> retriable,
+                                IntFunction<CompletableFuture<T>> attempt, int attemptNumber, CompletableFuture<T> result) {
+        CompletableFuture<T> attemptResult;
+        try {
+            attemptResult = attempt.apply(attemptNumber);
+        } catch (RuntimeException e) {
+            attemptResult = CompletableFuture.failedFuture(e);
+        }
+        attemptResult.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            long backoffMs = backoffMs(attemptNumber);
+            if (result.isDone() || !retriable.test(cause) ||
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs) - deadlineNanos >= 0) {
+                result.completeExceptionally(new KafkaClientException(
+                        "Failed " + operation + " after " + attemptNumber + " attempts", cause));
+                return;
+            }
+            LOG.warn("Failed {}, attempt {}, retrying in {} ms: {}", operation, attemptNumber, backoffMs, cause.toString());
+            lastRetriedFailures.put(deadlineNanos, new KafkaClientException(
+                    "Failed " + operation + ", attempt " + attemptNumber + ": " + cause, cause));
+            CompletableFuture.delayedExecutor(backoffMs, TimeUnit.MILLISECONDS)
+                    .execute(() -> runAttempt(deadlineNanos, operation, retriable, attempt, attemptNumber + 1, result));
+        });
+    }
+
+    // initial-interval-ms * multiplier^(attempt - 1), capped at max-interval-ms
+    // the multiplier is a double here, the old sleep loops truncated it with intValue, so 1.5 became 1
+    private long backoffMs(int attemptNumber) {
+        double backoffMs = retryConfigData.getInitialIntervalMs() * Math.pow(retryConfigData.getMultiplier(), attemptNumber - 1);
+        return (long) Math.min(backoffMs, retryConfigData.getMaxIntervalMs());
+    }
+
+    private static int remainingMs(long deadlineNanos) {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        return (int) Math.max(1, Math.min(remainingMs, Integer.MAX_VALUE));
+    }
+
+    private static boolean isRetriableKafkaError(Throwable error) {
+        return error instanceof RetriableException;
+    }
+
+    private static boolean isRetriableHttpError(Throwable error) {
+        if (error instanceof WebClientResponseException) {
+            return ((WebClientResponseException) error).getStatusCode().is5xxServerError();
+        }
+        return !(error instanceof KafkaClientException);
+    }
+
+    private static <T> CompletableFuture<T> toCompletableFuture(KafkaFuture<T> kafkaFuture) {
+        return kafkaFuture.toCompletionStage().toCompletableFuture();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
         }
+        return error;
     }
 
-    private boolean isTopicCreated(Collection<TopicListing> topics, String topicName) {
-        // if topic collection is null we return false
-        if(topics == null) {
-            return false;
+    // kafka-config.topic-names-to-create with the default partition count, plus the topics of the routes
+    // in topic-routing-config, each with its own partition count and replication factor
+    // a topic that is in both lists is created with the settings of its route
+    public List<NewTopic> getTopicsToCreate() {
+        Map<String, NewTopic> kafkaTopics = new LinkedHashMap<>();
+        // convert list of topic names to stream
+        kafkaConfigData.getTopicNamesToCreate().stream().map(topic -> new NewTopic(
+                topic.trim(),
+                kafkaConfigData.getNumOfPartitions(),
+                kafkaConfigData.getReplicationFactor()
+        )).forEach(topic -> kafkaTopics.put(topic.name(), topic));
+        for (TopicRoutingConfigData.Route route : topicRoutingConfigData.getRoutesToCreate()) {
+            String topic = route.getTopic().trim();
+            kafkaTopics.put(topic, new NewTopic(topic,
+                    route.getNumOfPartitions() != null ? route.getNumOfPartitions() : kafkaConfigData.getNumOfPartitions(),
+                    route.getReplicationFactor() != null ? route.getReplicationFactor() : kafkaConfigData.getReplicationFactor()));
         }
+        return new ArrayList<>(kafkaTopics.values());
+    }
 
-        // otherwise we will convert topics to string and search topicName we passed
-        return topics.stream().anyMatch(topic -> topic.name().equals(topicName));
+    private List<String> getTopicNamesToCreate() {
+        return getTopicsToCreate().stream().map(NewTopic::name).collect(Collectors.toList());
     }
 
     // read topics that was created
@@ -176,7 +308,7 @@ public class KafkaAdminClient {
             throws ExecutionException, InterruptedException {
         LOG.info(
                 "Reading kafka topic {}, attempt {}",
-                kafkaConfigData.getTopicNamesToCreate().toArray(), retryContext.getRetryCount()
+                getTopicNamesToCreate().toArray(), retryContext.getRetryCount()
         );
 
         // collection of topic listings
@@ -0,0 +1,152 @@
+package com.microservicesdemo.demo.kafka.avro.model;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.ResolvingDecoder;
+
+import java.io.IOException;
+
+// mutable, reusable TwitterAvroModel for the ingest hot path, written against the same twitter.avsc schema
+// the generated class keeps createdAt as a boxed Long and is built through the avro Builder,
+// which validates and deep copies every field, so every tweet costs a builder, a model and a Long
+// here createdAt is a primitive with a null flag, the fields are set in place and the record goes back
+// to its TwitterAvroRecordPool once kafka acked it, so a tweet costs no model garbage at all
+// it extends the generated class so the kafka producer, the serializer and the spill log dont need to know about it,
+// they all go through get/put or customEncode/customDecode which are overridden below
+// Note: a pooled record has one owner at a time, dont keep a reference to it after calling recycle
+// and TwitterAvroModel.newBuilder(record) reads the private fields of the generated class, so it misses createdAt
+public class TwitterAvroRecord extends TwitterAvroModel {
+    private static final long serialVersionUID = 1L;
+
+    // null when the record is not pooled, then recycle does nothing and the gc takes it as usual
+    private final transient TwitterAvroRecordPool pool;
+
+    // set while the record sits in the pool, so a second recycle can not hand it out twice
+    private transient boolean pooled;
+
+    private long createdAtMillis;
+
+    private boolean hasCreatedAt;
+
+    public TwitterAvroRecord() {
+        this(null);
+    }
+
+    TwitterAvroRecord(TwitterAvroRecordPool pool) {
+        this.pool = pool;
+    }
+
+    // fills all fields in place, this is what the transformer calls instead of the Builder
+    public TwitterAvroRecord set(long userId, long id, String text, long createdAtMillis) {
+        setUserId(userId);
+        setId(id);
+        setText(text);
+        this.createdAtMillis = createdAtMillis;
+        this.hasCreatedAt = true;
+        return this;
+    }
+
+    public boolean hasCreatedAt() {
+        return hasCreatedAt;
+    }
+
+    // createdAt without boxing, only valid when hasCreatedAt is true
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public void setCreatedAtMillis(long createdAtMillis) {
+        this.createdAtMillis = createdAtMillis;
+        this.hasCreatedAt = true;
+    }
+
+    // boxes on every call, the hot path uses getCreatedAtMillis instead
+    @Override
+    public Long getCreatedAt() {
+        return hasCreatedAt ? createdAtMillis : null;
+    }
+
+    @Override
+    public void setCreatedAt(Long value) {
+        this.hasCreatedAt = value != null;
+        this.createdAtMillis = value != null ? value : 0;
+    }
+
+    // drops the text reference so a record waiting in the pool doesnt keep the tweet alive
+    public void clear() {
+        setUserId(0);
+        setId(0);
+        setText(null);
+        this.createdAtMillis = 0;
+        this.hasCreatedAt = false;
+    }
+
+    // hands the record back to its pool, call it once the record is no longer needed (eg. kafka acked it)
+    public void recycle() {
+        if (pool == null || pooled) {
+            return;
+        }
+        pooled = true;
+        pool.release(this);
+    }
+
+    // for code that only knows the message as a TwitterAvroModel, generated models are left to the gc
+    public static void recycle(TwitterAvroModel model) {
+        if (model instanceof TwitterAvroRecord) {
+            ((TwitterAvroRecord) model).recycle();
+        }
+    }
+
+    // called by the pool when the record is handed out again
+    void acquired() {
+        pooled = false;
+    }
+
+    @Override
+    public Object get(int field) {
+        if (field == 3) {
+            return getCreatedAt();
+        }
+        return super.get(field);
+    }
+
+    @Override
+    public void put(int field, Object value) {
+        if (field == 3) {
+            setCreatedAt((Long) value);
+            return;
+        }
+        super.put(field, value);
+    }
+
+    // same binary layout as the generated customEncode, but createdAt is written without unboxing a Long
+    @Override
+    public void customEncode(Encoder out) throws IOException {
+        out.writeLong(getUserId());
+        out.writeLong(getId());
+        String text = getText();
+        if (text == null) {
+            out.writeIndex(0);
+            out.writeNull();
+        } else {
+            out.writeIndex(1);
+            out.writeString(text);
+        }
+        if (!hasCreatedAt) {
+            out.writeIndex(0);
+            out.writeNull();
+        } else {
+            out.writeIndex(1);
+            out.writeLong(createdAtMillis);
+        }
+    }
+
+    // decoding is only used by the spill replay, so we let the generated code resolve the schema
+    // and move the boxed createdAt it read over to the primitive field
+    @Override
+    public void customDecode(ResolvingDecoder in) throws IOException {
+        super.customDecode(in);
+        setCreatedAt(super.getCreatedAt());
+        super.setCreatedAt(null);
+    }
+}
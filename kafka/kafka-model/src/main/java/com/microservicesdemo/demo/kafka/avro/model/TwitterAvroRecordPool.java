@@ -0,0 +1,36 @@
+package com.microservicesdemo.demo.kafka.avro.model;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// free list of TwitterAvroRecord objects, records are acquired on the stream thread and recycled on the kafka producer
+// io thread once they are acked, so the free list has to be thread safe
+// ArrayBlockingQueue is a preallocated array, offer and poll dont allocate a node like ConcurrentLinkedQueue would
+// when the pool is empty (more records in flight than the capacity) we just create a new record,
+// and when it is full a recycled record is left to the gc, so the pool never blocks the stream thread
+public class TwitterAvroRecordPool {
+    private final BlockingQueue<TwitterAvroRecord> freeRecords;
+
+    public TwitterAvroRecordPool(int capacity) {
+        this.freeRecords = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    public TwitterAvroRecord acquire() {
+        TwitterAvroRecord record = freeRecords.poll();
+        if (record == null) {
+            return new TwitterAvroRecord(this);
+        }
+        record.acquired();
+        return record;
+    }
+
+    // records waiting to be acquired again
+    public int getFreeRecords() {
+        return freeRecords.size();
+    }
+
+    void release(TwitterAvroRecord record) {
+        record.clear();
+        freeRecords.offer(record);
+    }
+}
@@ -2,17 +2,40 @@ package com.microservicesdemo.demo.kafka.producer.config;
 
 import com.microservicesdemo.demo.config.KafkaConfigData;
 import com.microservicesdemo.demo.config.KafkaProducerConfigData;
+import com.microservicesdemo.demo.config.KafkaProducerConfigData.DeliveryGuarantee;
+import com.microservicesdemo.demo.config.KafkaProducerConfigData.PartitionStrategyType;
+import com.microservicesdemo.demo.config.KafkaProducerConfigData.ValueCodecType;
+import com.microservicesdemo.demo.kafka.producer.config.batching.SwitchingProducerFactory;
+import com.microservicesdemo.demo.kafka.producer.config.partition.PartitionStrategy;
+import com.microservicesdemo.demo.kafka.producer.config.partition.impl.HotKeyAwarePartitionStrategy;
+import com.microservicesdemo.demo.kafka.producer.config.partition.impl.KeyHashPartitionStrategy;
+import com.microservicesdemo.demo.kafka.producer.config.partition.impl.StickyPartitionStrategy;
+import com.microservicesdemo.demo.kafka.producer.config.pool.KafkaProducerPool;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.SchemaIdRegistry;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.TwitterAvroModelSerializer;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.codec.ValueCodec;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.codec.impl.IdentityValueCodec;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.codec.impl.ZstdDictionaryValueCodec;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.avro.specific.SpecificRecordBase;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import java.io.Serializable;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 // here we will specify to generic variables
@@ -23,10 +46,16 @@ public class KafkaProducerConfig<K extends Serializable, V extends SpecificRecor
 
     private final KafkaProducerConfigData kafkaProducerConfigData;
 
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final SchemaIdRegistry schemaIdRegistry;
+
     // ignore the warning intellij just being weird, mvn clean install build passes -- also @COmponsnetScan in twtiiertokafkasevice application should scan
-    public KafkaProducerConfig(KafkaConfigData kafkaConfigData, KafkaProducerConfigData kafkaProducerConfigData) {
+    public KafkaProducerConfig(KafkaConfigData kafkaConfigData, KafkaProducerConfigData kafkaProducerConfigData, ObjectProvider<MeterRegistry> meterRegistryProvider, SchemaIdRegistry schemaIdRegistry) {
         this.kafkaConfigData = kafkaConfigData;
         this.kafkaProducerConfigData = kafkaProducerConfigData;
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.schemaIdRegistry = schemaIdRegistry;
     }
 
     // create a map as a bean to hold and return a configuration data related to kafka producers
@@ -38,27 +67,113 @@ public class KafkaProducerConfig<K extends Serializable, V extends SpecificRecor
         props.put(kafkaConfigData.getSchemaRegistryUrlKey(), kafkaConfigData.getSchemaRegistryUrl());
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, kafkaProducerConfigData.getKeySerializerClass());
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, kafkaProducerConfigData.getValueSerializerClass());
+        // schema ids for TwitterAvroModelSerializer, kafka passes the whole map to the configure method of the serializer
+        props.put(TwitterAvroModelSerializer.SCHEMA_ID_REGISTRY_CONFIG, schemaIdRegistry);
+        if (kafkaConfigData.getTopicValueFormats() != null) {
+            props.put(TwitterAvroModelSerializer.VALUE_FORMATS_CONFIG, kafkaConfigData.getTopicValueFormats());
+        }
+        props.put(TwitterAvroModelSerializer.VALUE_CODEC_CONFIG, valueCodec());
         props.put(ProducerConfig.BATCH_SIZE_CONFIG, kafkaProducerConfigData.getBatchSize() * kafkaProducerConfigData.getBatchSizeBoostFactor());
         props.put(ProducerConfig.LINGER_MS_CONFIG, kafkaProducerConfigData.getLingerMs());
         props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, kafkaProducerConfigData.getCompressionType());
         props.put(ProducerConfig.ACKS_CONFIG, kafkaProducerConfigData.getAcks());
         props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, kafkaProducerConfigData.getRequestTimeoutMs());
         props.put(ProducerConfig.RETRIES_CONFIG, kafkaProducerConfigData.getRetryCount());
+        // kafka-clients 3.x turns idempotence on by default when the other configs allow it, we set it either way
+        // so the delivery-guarantee in the config is what we run with, not a side effect of acks and retries
+        DeliveryGuarantee deliveryGuarantee = kafkaProducerConfigData.getDeliveryGuaranteeOrDefault();
+        if (deliveryGuarantee == DeliveryGuarantee.AT_LEAST_ONCE) {
+            props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+        } else {
+            // the broker keeps the last sequence numbers of every producer id and partition and drops retried batches,
+            // that needs acks from all in sync replicas and at most 5 batches in flight per connection
+            props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+            props.put(ProducerConfig.ACKS_CONFIG, "all");
+            props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        }
+        // eg. the partitioner.class of the sticky partition strategy
+        props.putAll(partitionStrategy().producerConfigs());
         return props;
     }
 
-    // createa bean to construct a producer factory to return a default kafka producer
-    // pass the producer configuration that we created in above method as a parmater in the consitrucrot
+    // create a bean with the strategy that picks the partition of every record, see partition-strategy in the config
+    @Bean
+    public PartitionStrategy<K> partitionStrategy() {
+        PartitionStrategyType partitionStrategyType = kafkaProducerConfigData.getPartitionStrategy() == null ?
+                PartitionStrategyType.KEY_HASH : kafkaProducerConfigData.getPartitionStrategy();
+        switch (partitionStrategyType) {
+            case STICKY:
+                return new StickyPartitionStrategy<>();
+            case HOT_KEY_AWARE:
+                return new HotKeyAwarePartitionStrategy<>(keySerializer(),
+                        kafkaProducerConfigData.getHotKeyWindowMs(),
+                        kafkaProducerConfigData.getHotKeyShare(),
+                        kafkaProducerConfigData.getHotKeyMinWindowRecords());
+            default:
+                return new KeyHashPartitionStrategy<>();
+        }
+    }
+
+    // create a bean with the codec every serialized value goes through, see value-codec in the config
+    // the dictionary is read once here and shared by all producers of the pool
     @Bean
-    public ProducerFactory<K, V> producerFactory() {
-        return new DefaultKafkaProducerFactory<>(producerConfig());
+    public ValueCodec valueCodec() {
+        if (kafkaProducerConfigData.getValueCodec() == ValueCodecType.ZSTD_DICTIONARY) {
+            int level = kafkaProducerConfigData.getValueCodecLevel() == null ? 3 : kafkaProducerConfigData.getValueCodecLevel();
+            return ZstdDictionaryValueCodec.fromFile(Paths.get(kafkaProducerConfigData.getValueCodecDictionaryPath()), level);
+        }
+        return new IdentityValueCodec();
     }
 
-    // create a bean to return a kafka template, and pass the producer factory as a parameter in the consturcor
+    // create a bean with the pool of kafka producers, every producer has its own producer factory and kafka template
+    // pass the producer configuration that we created in above method to every producer factory
     @Bean
-    public KafkaTemplate<K, V> kafkaTemplate() {
-        // here kafka template is wrapper class around kafka producer
-        // and it provides some method to be able to send data to kafka easily
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaProducerPool<K, V> kafkaProducerPool() {
+        int poolSize = kafkaProducerConfigData.getProducerPoolSize() == null ? 1 :
+                Math.max(1, kafkaProducerConfigData.getProducerPoolSize());
+        List<ProducerFactory<K, V>> producerFactories = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            producerFactories.add(producerFactory(i));
+        }
+        return new KafkaProducerPool<>(producerFactories, kafkaProducerConfigData.getProducerPoolSharding(), keySerializer());
+    }
+
+    // construct a producer factory to return a default kafka producer
+    private ProducerFactory<K, V> producerFactory(int shard) {
+        ProducerFactory<K, V> producerFactory;
+        if (kafkaProducerConfigData.getDeliveryGuaranteeOrDefault() == DeliveryGuarantee.EXACTLY_ONCE) {
+            // spring caches the transactional producers and numbers them after the prefix, eg. <prefix>-0-0, <prefix>-0-1
+            // when several worker threads are in a transaction at the same time, so the ids stay the same after a restart
+            // and the new producer fences the one of the crashed instance. we never use SwitchingProducerFactory here,
+            // a switch would create producers with the same ids and fence the ones with open transactions
+            if (!StringUtils.hasText(kafkaProducerConfigData.getTransactionalIdPrefix())) {
+                throw new IllegalStateException("Delivery guarantee exactly-once needs a transactional-id-prefix");
+            }
+            DefaultKafkaProducerFactory<K, V> transactionalFactory = new DefaultKafkaProducerFactory<>(producerConfig());
+            transactionalFactory.setTransactionIdPrefix(kafkaProducerConfigData.getTransactionalIdPrefix() + "-" + shard + "-");
+            producerFactory = transactionalFactory;
+        } else if (Boolean.TRUE.equals(kafkaProducerConfigData.getAdaptiveBatchingEnabled())) {
+            // with adaptive batching AdaptiveBatchingTuner switches this factory to producers with tuned linger.ms and batch.size
+            producerFactory = new SwitchingProducerFactory<>(producerConfig());
+        } else {
+            producerFactory = new DefaultKafkaProducerFactory<>(producerConfig());
+        }
+        // bind the kafka client metrics (record-send-rate, batch-size-avg, buffer-available-bytes, ...) to micrometer
+        // so they show up next to our own twitter.kafka.producer.* meters, only if there is a registry in the context
+        meterRegistryProvider.ifAvailable(meterRegistry ->
+                producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry)));
+        return producerFactory;
+    }
+
+    // the pool and the hot key strategy serialize the key themselves to hash it, with the same serializer the producers use
+    @SuppressWarnings("unchecked")
+    private Serializer<K> keySerializer() {
+        try {
+            Serializer<K> keySerializer = Utils.newInstance(kafkaProducerConfigData.getKeySerializerClass(), Serializer.class);
+            keySerializer.configure(Collections.emptyMap(), true);
+            return keySerializer;
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Key serializer class not found: " + kafkaProducerConfigData.getKeySerializerClass(), e);
+        }
     }
 }
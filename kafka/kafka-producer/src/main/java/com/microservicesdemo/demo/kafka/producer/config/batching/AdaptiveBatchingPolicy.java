@@ -0,0 +1,68 @@
+package com.microservicesdemo.demo.kafka.producer.config.batching;
+
+// decides the next linger.ms and batch.size from the producer metrics of the last window
+// it moves one step per check, so a short spike does not swing the producer from one bound to the other:
+// - light traffic: smallest linger and batch, a record should not wait for a batch that will never fill
+// - batches are closed full: double batch.size, the producer sends on size before linger expires
+// - batches are mostly empty: first double linger.ms to give them time to fill,
+//   when linger is already at the max, halve batch.size so we dont reserve memory we never use
+public class AdaptiveBatchingPolicy {
+    private static final double FULL_BATCH_RATIO = 0.9;
+
+    private static final double EMPTY_BATCH_RATIO = 0.25;
+
+    private final int minLingerMs;
+
+    private final int maxLingerMs;
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private final double lightLoadRecordsPerSecond;
+
+    public AdaptiveBatchingPolicy(int minLingerMs, int maxLingerMs, int minBatchSize, int maxBatchSize,
+                                  double lightLoadRecordsPerSecond) {
+        if (minLingerMs < 0 || maxLingerMs < minLingerMs || minBatchSize <= 0 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("Invalid adaptive batching bounds, linger.ms [" + minLingerMs + ", " +
+                    maxLingerMs + "], batch.size [" + minBatchSize + ", " + maxBatchSize + "]");
+        }
+        this.minLingerMs = minLingerMs;
+        this.maxLingerMs = maxLingerMs;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.lightLoadRecordsPerSecond = lightLoadRecordsPerSecond;
+    }
+
+    // the configured static settings may be outside the adaptive bounds, start from the nearest allowed value
+    public BatchSettings clamp(BatchSettings settings) {
+        return new BatchSettings(clamp(settings.getLingerMs(), minLingerMs, maxLingerMs),
+                clamp(settings.getBatchSize(), minBatchSize, maxBatchSize));
+    }
+
+    public BatchSettings next(BatchSettings current, double recordSendRate, double batchSizeAvg) {
+        // kafka reports NaN until the first batch of the window is sent, keep what we have
+        if (Double.isNaN(recordSendRate) || Double.isNaN(batchSizeAvg)) {
+            return current;
+        }
+        if (recordSendRate < lightLoadRecordsPerSecond) {
+            return new BatchSettings(minLingerMs, minBatchSize);
+        }
+        double fillRatio = batchSizeAvg / current.getBatchSize();
+        if (fillRatio >= FULL_BATCH_RATIO) {
+            return new BatchSettings(current.getLingerMs(), clamp(current.getBatchSize() * 2L, minBatchSize, maxBatchSize));
+        }
+        if (fillRatio < EMPTY_BATCH_RATIO) {
+            if (current.getLingerMs() < maxLingerMs) {
+                return new BatchSettings(clamp(Math.max(1, current.getLingerMs()) * 2L, minLingerMs, maxLingerMs),
+                        current.getBatchSize());
+            }
+            return new BatchSettings(current.getLingerMs(), clamp(current.getBatchSize() / 2L, minBatchSize, maxBatchSize));
+        }
+        return current;
+    }
+
+    private static int clamp(long value, int min, int max) {
+        return (int) Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,151 @@
+package com.microservicesdemo.demo.kafka.producer.config.batching;
+
+import com.microservicesdemo.demo.common.concurrent.ThreadFactories;
+import com.microservicesdemo.demo.config.KafkaProducerConfigData;
+import com.microservicesdemo.demo.kafka.producer.config.pool.KafkaProducerPool;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// watches record-send-rate and batch-size-avg of the kafka producer and switches to a producer
+// with tuned linger.ms and batch.size (see AdaptiveBatchingPolicy) when the load changes
+// it only works when KafkaProducerConfig created SwitchingProducerFactory's, that is when adaptive-batching-enabled is true
+// with a producer pool all producers get the same settings, computed from the average of their metrics,
+// the pool spreads the records evenly so the producers see about the same load
+@Component
+public class AdaptiveBatchingTuner {
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveBatchingTuner.class);
+
+    private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+
+    // long enough for a sender thread that already got the old producer to finish its send call, a send that doesnt
+    // wait for buffer memory takes microseconds. the sends are held back for it on every switch, so keep it short
+    private static final Duration CLOSE_GRACE_PERIOD = Duration.ofMillis(100);
+
+    private final KafkaProducerConfigData kafkaProducerConfigData;
+
+    private final KafkaProducerPool<?, ?> kafkaProducerPool;
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private AdaptiveBatchingPolicy adaptiveBatchingPolicy;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile BatchSettings currentSettings;
+
+    // a new producer starts with empty metric windows, skip the first check after a switch
+    private boolean skipNextCheck;
+
+    public AdaptiveBatchingTuner(KafkaProducerConfigData kafkaProducerConfigData,
+                                 KafkaProducerPool<?, ?> kafkaProducerPool,
+                                 ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.kafkaProducerConfigData = kafkaProducerConfigData;
+        this.kafkaProducerPool = kafkaProducerPool;
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!(kafkaProducerPool.getProducerFactories().get(0) instanceof SwitchingProducerFactory)) {
+            LOG.info("Adaptive producer batching is disabled");
+            return;
+        }
+        adaptiveBatchingPolicy = new AdaptiveBatchingPolicy(
+                kafkaProducerConfigData.getAdaptiveMinLingerMs(),
+                kafkaProducerConfigData.getAdaptiveMaxLingerMs(),
+                kafkaProducerConfigData.getAdaptiveMinBatchSize(),
+                kafkaProducerConfigData.getAdaptiveMaxBatchSize(),
+                kafkaProducerConfigData.getAdaptiveLightLoadRecordsPerSecond());
+        // the static settings from producerConfig are what the first producer runs with
+        currentSettings = new BatchSettings(kafkaProducerConfigData.getLingerMs(),
+                kafkaProducerConfigData.getBatchSize() * kafkaProducerConfigData.getBatchSizeBoostFactor());
+        meterRegistryProvider.ifAvailable(this::registerGauges);
+
+        long intervalMs = kafkaProducerConfigData.getAdaptiveCheckIntervalMs();
+        scheduler = ThreadFactories.newSingleThreadScheduler("kafka-adaptive-batching");
+        scheduler.scheduleWithFixedDelay(this::check, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        LOG.info("Started adaptive producer batching with {}, checking every {} ms", currentSettings, intervalMs);
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void check() {
+        try {
+            if (skipNextCheck) {
+                skipNextCheck = false;
+                return;
+            }
+            double recordSendRate = 0;
+            double batchSizeAvg = 0;
+            List<ProducerFactory<?, ?>> producerFactories = new ArrayList<>(kafkaProducerPool.getProducerFactories());
+            for (ProducerFactory<?, ?> producerFactory : producerFactories) {
+                Map<MetricName, ? extends Metric> metrics = producerFactory.createProducer().metrics();
+                recordSendRate += metricValue(metrics, "record-send-rate") / producerFactories.size();
+                batchSizeAvg += metricValue(metrics, "batch-size-avg") / producerFactories.size();
+            }
+            BatchSettings nextSettings = adaptiveBatchingPolicy.next(
+                    adaptiveBatchingPolicy.clamp(currentSettings), recordSendRate, batchSizeAvg);
+            if (nextSettings.equals(currentSettings)) {
+                return;
+            }
+            LOG.info("Switching kafka producer from {} to {}, record-send-rate={}/s batch-size-avg={}",
+                    currentSettings, nextSettings, String.format("%.0f", recordSendRate), String.format("%.0f", batchSizeAvg));
+            Map<String, Object> overrides = new HashMap<>();
+            overrides.put(ProducerConfig.LINGER_MS_CONFIG, nextSettings.getLingerMs());
+            overrides.put(ProducerConfig.BATCH_SIZE_CONFIG, nextSettings.getBatchSize());
+            for (ProducerFactory<?, ?> producerFactory : producerFactories) {
+                ((SwitchingProducerFactory<?, ?>) producerFactory).switchTo(overrides, CLOSE_GRACE_PERIOD);
+            }
+            currentSettings = nextSettings;
+            skipNextCheck = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // never let an exception cancel the scheduled task, we try again on the next check
+            LOG.warn("Adaptive producer batching check failed", e);
+        }
+    }
+
+    private static double metricValue(Map<MetricName, ? extends Metric> metrics, String name) {
+        for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+            MetricName metricName = entry.getKey();
+            if (name.equals(metricName.name()) && PRODUCER_METRICS_GROUP.equals(metricName.group())) {
+                Object value = entry.getValue().metricValue();
+                return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private void registerGauges(MeterRegistry meterRegistry) {
+        Gauge.builder("twitter.kafka.producer.adaptive.linger.ms", this, tuner -> tuner.currentSettings.getLingerMs())
+                .description("linger.ms of the current kafka producer")
+                .register(meterRegistry);
+        Gauge.builder("twitter.kafka.producer.adaptive.batch.size", this, tuner -> tuner.currentSettings.getBatchSize())
+                .description("batch.size of the current kafka producer")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,45 @@
+package com.microservicesdemo.demo.kafka.producer.config.batching;
+
+import java.util.Objects;
+
+// the two producer settings the adaptive batching tunes, immutable so the tuner can compare old and new settings
+public final class BatchSettings {
+    private final int lingerMs;
+
+    private final int batchSize;
+
+    public BatchSettings(int lingerMs, int batchSize) {
+        this.lingerMs = lingerMs;
+        this.batchSize = batchSize;
+    }
+
+    public int getLingerMs() {
+        return lingerMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BatchSettings)) {
+            return false;
+        }
+        BatchSettings that = (BatchSettings) o;
+        return lingerMs == that.lingerMs && batchSize == that.batchSize;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lingerMs, batchSize);
+    }
+
+    @Override
+    public String toString() {
+        return "linger.ms=" + lingerMs + ", batch.size=" + batchSize;
+    }
+}
@@ -0,0 +1,145 @@
+package com.microservicesdemo.demo.kafka.producer.config.batching;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+// producer factory that can switch to a new kafka producer with other configs while the application is sending
+// linger.ms and batch.size can not be changed on a running KafkaProducer, so the adaptive batching builds a new one.
+// we dont use DefaultKafkaProducerFactory.updateConfigs + reset for that, reset closes the producer immediately
+// and a thread that got the old producer just before would fail its send with "producer closed".
+// the two producers have different producer ids, so the broker can not keep their batches in order, a record the
+// new producer sends could be written before an older record of the same key that is still in flight on the old one.
+// so a switch holds new sends back: createProducer waits while the old producer finishes the sends that already got it
+// (the grace period) and flushes everything it has, only then the new producer is handed out and the old one closed.
+// nothing is lost and the records of a partition stay in order, the sends only stall for the grace period and the flush
+// Note: a send that got the old producer and is still blocked in it after the grace period (a full buffer.memory
+// waits up to max.block.ms) can still end up behind the first records of the new producer
+public class SwitchingProducerFactory<K, V> implements ProducerFactory<K, V>, DisposableBean {
+    private final Map<String, Object> baseConfigs;
+
+    private final AtomicReference<DefaultKafkaProducerFactory<K, V>> current;
+
+    // set while a switch flushes the old producer, createProducer waits on it, null the rest of the time
+    // so the send path only pays a volatile read
+    private volatile CountDownLatch switchInProgress;
+
+    // listeners (eg. micrometer) are applied to every producer we create, not only the first one
+    private final List<Listener<K, V>> listeners = new CopyOnWriteArrayList<>();
+
+    public SwitchingProducerFactory(Map<String, Object> baseConfigs) {
+        this.baseConfigs = Collections.unmodifiableMap(new HashMap<>(baseConfigs));
+        this.current = new AtomicReference<>(new DefaultKafkaProducerFactory<>(this.baseConfigs));
+    }
+
+    // switch new sends to a producer built with the base configs plus the overrides,
+    // this blocks the calling thread, and the sends, for the grace period and the flush of the old producer
+    public void switchTo(Map<String, Object> configOverrides, Duration closeGracePeriod) throws InterruptedException {
+        Map<String, Object> configs = new HashMap<>(baseConfigs);
+        configs.putAll(configOverrides);
+        DefaultKafkaProducerFactory<K, V> newFactory = new DefaultKafkaProducerFactory<>(configs);
+        listeners.forEach(newFactory::addListener);
+        CountDownLatch gate = new CountDownLatch(1);
+        switchInProgress = gate;
+        DefaultKafkaProducerFactory<K, V> oldFactory = current.get();
+        try {
+            Thread.sleep(closeGracePeriod.toMillis());
+            // blocks until every record the old producer got is acked or failed
+            oldFactory.createProducer().flush();
+            current.set(newFactory);
+        } finally {
+            // an interrupted switch keeps the old producer, the sends go on with it
+            switchInProgress = null;
+            gate.countDown();
+        }
+        oldFactory.destroy();
+    }
+
+    @Override
+    public Producer<K, V> createProducer() {
+        awaitSwitch();
+        return current.get().createProducer();
+    }
+
+    @Override
+    public Producer<K, V> createProducer(String txIdPrefix) {
+        awaitSwitch();
+        return current.get().createProducer(txIdPrefix);
+    }
+
+    @Override
+    public Producer<K, V> createNonTransactionalProducer() {
+        awaitSwitch();
+        return current.get().createNonTransactionalProducer();
+    }
+
+    @Override
+    public boolean transactionCapable() {
+        return current.get().transactionCapable();
+    }
+
+    @Override
+    public String getTransactionIdPrefix() {
+        return current.get().getTransactionIdPrefix();
+    }
+
+    @Override
+    public Map<String, Object> getConfigurationProperties() {
+        return current.get().getConfigurationProperties();
+    }
+
+    @Override
+    public Duration getPhysicalCloseTimeout() {
+        return current.get().getPhysicalCloseTimeout();
+    }
+
+    @Override
+    public void reset() {
+        current.get().reset();
+    }
+
+    @Override
+    public void addListener(Listener<K, V> listener) {
+        listeners.add(listener);
+        current.get().addListener(listener);
+    }
+
+    @Override
+    public boolean removeListener(Listener<K, V> listener) {
+        listeners.remove(listener);
+        return current.get().removeListener(listener);
+    }
+
+    @Override
+    public List<Listener<K, V>> getListeners() {
+        return Collections.unmodifiableList(listeners);
+    }
+
+    @Override
+    public void destroy() {
+        current.get().destroy();
+    }
+
+    private void awaitSwitch() {
+        CountDownLatch gate = switchInProgress;
+        if (gate == null) {
+            return;
+        }
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            // keep the interrupt for the caller, it gets whatever producer is current now
+            Thread.currentThread().interrupt();
+        }
+    }
+}
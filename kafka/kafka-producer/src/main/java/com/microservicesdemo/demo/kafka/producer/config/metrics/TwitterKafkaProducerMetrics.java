@@ -0,0 +1,82 @@
+package com.microservicesdemo.demo.kafka.producer.config.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// micrometer meters for the kafka send path, exposed by the actuator prometheus endpoint of the service
+// we take System.nanoTime timestamps instead of Timer.Sample objects, so measuring a record doesnt allocate
+@Component
+public class TwitterKafkaProducerMetrics {
+    private static final String PREFIX = "twitter.kafka.producer";
+
+    private final MeterRegistry meterRegistry;
+
+    // time spent inside kafkaTemplate.send, it blocks when metadata is missing or buffer.memory is full
+    private final Timer sendBlockedTimer;
+
+    // time from kafkaTemplate.send to the broker ack
+    private final Timer ackLatencyTimer;
+
+    private final Counter sentCounter;
+
+    private final AtomicLong inFlight = new AtomicLong();
+
+    // one counter per exception type, created on first use
+    private final Map<Class<?>, Counter> failureCounters = new ConcurrentHashMap<>();
+
+    public TwitterKafkaProducerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.sendBlockedTimer = Timer.builder(PREFIX + ".send.blocked")
+                .description("Time spent blocked in the kafka producer send call")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.ackLatencyTimer = Timer.builder(PREFIX + ".ack.latency")
+                .description("Time from send to the broker acknowledgement")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sentCounter = Counter.builder(PREFIX + ".records.sent")
+                .description("Records acknowledged by the brokers")
+                .register(meterRegistry);
+        Gauge.builder(PREFIX + ".in.flight", inFlight, AtomicLong::get)
+                .description("Records sent but not acknowledged yet")
+                .register(meterRegistry);
+    }
+
+    // call right before the send, returns the start time to pass to the other methods
+    public long sendStarted(int recordCount) {
+        inFlight.addAndGet(recordCount);
+        return System.nanoTime();
+    }
+
+    public void sendReturned(long startNanos) {
+        sendBlockedTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void acked(long startNanos) {
+        ackLatencyTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        sentCounter.increment();
+        inFlight.decrementAndGet();
+    }
+
+    public void failed(long startNanos, Throwable throwable) {
+        ackLatencyTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        inFlight.decrementAndGet();
+        failureCounters.computeIfAbsent(throwable.getClass(), exceptionClass -> Counter.builder(PREFIX + ".failures")
+                .description("Records that could not be sent, by exception type")
+                .tag("exception", exceptionClass.getSimpleName())
+                .register(meterRegistry)).increment();
+    }
+
+    public long getInFlight() {
+        return inFlight.get();
+    }
+}
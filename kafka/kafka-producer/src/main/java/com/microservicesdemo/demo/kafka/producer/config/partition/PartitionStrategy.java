@@ -0,0 +1,19 @@
+package com.microservicesdemo.demo.kafka.producer.config.partition;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+// decides the partition of a record before it is handed to the kafka producer
+// a strategy either picks the partition itself or leaves it to the partitioner of the kafka producer,
+// it can set that partitioner with producerConfigs
+public interface PartitionStrategy<K> {
+    // extra configs for the kafka producer, eg. partitioner.class
+    default Map<String, Object> producerConfigs() {
+        return Collections.emptyMap();
+    }
+
+    // returns null when the partitioner of the kafka producer should decide
+    // partitionCounts gives the partition count of a topic, it is only called by strategies that need it
+    RecordPartition partition(String topicName, K key, ToIntFunction<String> partitionCounts);
+}
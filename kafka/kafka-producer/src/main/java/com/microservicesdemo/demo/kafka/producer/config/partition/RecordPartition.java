@@ -0,0 +1,40 @@
+package com.microservicesdemo.demo.kafka.producer.config.partition;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+// partition picked by a PartitionStrategy, with the salt when the key was spread over several partitions
+public final class RecordPartition {
+    // header with the salt as a 4 byte int, consumers that need the order of a hot key can merge its salted partitions
+    public static final String KEY_SALT_HEADER = "key-salt";
+
+    public static final int NO_SALT = -1;
+
+    private final int partition;
+
+    private final int salt;
+
+    public RecordPartition(int partition, int salt) {
+        this.partition = partition;
+        this.salt = salt;
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+
+    public int getSalt() {
+        return salt;
+    }
+
+    // headers for the ProducerRecord, null when the key was not salted
+    public Iterable<Header> headers() {
+        if (salt == NO_SALT) {
+            return null;
+        }
+        return Collections.singletonList(new RecordHeader(KEY_SALT_HEADER, ByteBuffer.allocate(Integer.BYTES).putInt(salt).array()));
+    }
+}
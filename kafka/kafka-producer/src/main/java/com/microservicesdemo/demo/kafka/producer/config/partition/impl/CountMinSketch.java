@@ -0,0 +1,51 @@
+package com.microservicesdemo.demo.kafka.producer.config.partition.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// fixed size approximate counter for an unbounded number of keys, estimates are never lower than the real count
+// we use it to find the hot keys without keeping a counter for every user we ever saw
+class CountMinSketch {
+    private static final int DEPTH = 4;
+
+    // odd constants to derive the DEPTH hash functions from one key hash
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final int widthMask;
+
+    private final AtomicLongArray counts;
+
+    private final LongAdder total = new LongAdder();
+
+    CountMinSketch(int width) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Count min sketch width must be a power of 2, got " + width);
+        }
+        this.widthMask = width - 1;
+        this.counts = new AtomicLongArray(DEPTH * width);
+    }
+
+    void add(long keyHash) {
+        for (int row = 0; row < DEPTH; row++) {
+            counts.incrementAndGet(index(row, keyHash));
+        }
+        total.increment();
+    }
+
+    long estimate(long keyHash) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counts.get(index(row, keyHash)));
+        }
+        return min;
+    }
+
+    long total() {
+        return total.sum();
+    }
+
+    private int index(int row, long keyHash) {
+        long hash = (keyHash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        return row * (widthMask + 1) + (int) ((hash >>> 32) & widthMask);
+    }
+}
@@ -0,0 +1,105 @@
+package com.microservicesdemo.demo.kafka.producer.config.partition.impl;
+
+import com.microservicesdemo.demo.kafka.producer.config.partition.PartitionStrategy;
+import com.microservicesdemo.demo.kafka.producer.config.partition.RecordPartition;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+// partitions by key hash like the kafka default, but spreads hot keys over several partitions
+// the records of every key are counted in a count min sketch per time window, a key is hot when in the last
+// complete window it had more than hotKeyShare of the records one partition would get with an even load.
+// a hot key gets a random salt in [0, spread) and goes to partition (hash partition + salt) % partitions,
+// spread grows with the load of the key, so it stays even when num-of-partitions grows.
+// the salt is sent in the key-salt header, the key itself is not changed so consumers still see the user id
+public class HotKeyAwarePartitionStrategy<K> implements PartitionStrategy<K> {
+    private static final int SKETCH_WIDTH = 4096;
+
+    private final Serializer<K> keySerializer;
+
+    private final long windowNanos;
+
+    private final double hotKeyShare;
+
+    private final long minWindowRecords;
+
+    private volatile Window window;
+
+    public HotKeyAwarePartitionStrategy(Serializer<K> keySerializer, long windowMs, double hotKeyShare, long minWindowRecords) {
+        this.keySerializer = keySerializer;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.hotKeyShare = hotKeyShare;
+        this.minWindowRecords = minWindowRecords;
+        this.window = new Window(System.nanoTime(), new CountMinSketch(SKETCH_WIDTH), null);
+    }
+
+    @Override
+    public RecordPartition partition(String topicName, K key, ToIntFunction<String> partitionCounts) {
+        if (key == null) {
+            return null;
+        }
+        long keyHash = key.hashCode();
+        Window current = currentWindow();
+        current.counts.add(keyHash);
+        int spread = spread(current.previousCounts, keyHash, partitionCounts.applyAsInt(topicName));
+        if (spread <= 1) {
+            // not hot, let the default partitioner hash it so the partition is the same as with KEY_HASH
+            return null;
+        }
+        int partitions = partitionCounts.applyAsInt(topicName);
+        int hashPartition = Utils.toPositive(Utils.murmur2(keySerializer.serialize(topicName, key))) % partitions;
+        int salt = ThreadLocalRandom.current().nextInt(spread);
+        return new RecordPartition((hashPartition + salt) % partitions, salt);
+    }
+
+    // number of partitions to spread the key over, 1 when the key is not hot
+    private int spread(CountMinSketch previousCounts, long keyHash, int partitions) {
+        if (previousCounts == null || partitions <= 1) {
+            return 1;
+        }
+        long total = previousCounts.total();
+        if (total < minWindowRecords) {
+            return 1;
+        }
+        double hotKeyThreshold = hotKeyShare * total / partitions;
+        long keyCount = previousCounts.estimate(keyHash);
+        if (keyCount <= hotKeyThreshold) {
+            return 1;
+        }
+        return (int) Math.min(partitions, Math.max(2, Math.ceil(keyCount / hotKeyThreshold)));
+    }
+
+    // windows are rotated by the sending threads, there is no timer thread
+    private Window currentWindow() {
+        Window current = window;
+        long now = System.nanoTime();
+        if (now - current.startNanos < windowNanos) {
+            return current;
+        }
+        synchronized (this) {
+            if (window == current) {
+                // a window that was skipped because nothing was sent tells us nothing about the next one
+                CountMinSketch previous = now - current.startNanos < 2 * windowNanos ? current.counts : null;
+                window = new Window(now, new CountMinSketch(SKETCH_WIDTH), previous);
+            }
+            return window;
+        }
+    }
+
+    private static final class Window {
+        private final long startNanos;
+
+        private final CountMinSketch counts;
+
+        private final CountMinSketch previousCounts;
+
+        private Window(long startNanos, CountMinSketch counts, CountMinSketch previousCounts) {
+            this.startNanos = startNanos;
+            this.counts = counts;
+            this.previousCounts = previousCounts;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.microservicesdemo.demo.kafka.producer.config.partition.impl;
+
+import com.microservicesdemo.demo.kafka.producer.config.partition.PartitionStrategy;
+import com.microservicesdemo.demo.kafka.producer.config.partition.RecordPartition;
+
+import java.util.function.ToIntFunction;
+
+// the kafka default, the DefaultPartitioner of the producer hashes the serialized key with murmur2
+// all records of a key go to one partition, so a prolific user makes its partition hot
+public class KeyHashPartitionStrategy<K> implements PartitionStrategy<K> {
+    @Override
+    public RecordPartition partition(String topicName, K key, ToIntFunction<String> partitionCounts) {
+        return null;
+    }
+}
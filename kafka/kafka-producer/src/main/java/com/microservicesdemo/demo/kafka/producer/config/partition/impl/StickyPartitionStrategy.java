@@ -0,0 +1,24 @@
+package com.microservicesdemo.demo.kafka.producer.config.partition.impl;
+
+import com.microservicesdemo.demo.kafka.producer.config.partition.PartitionStrategy;
+import com.microservicesdemo.demo.kafka.producer.config.partition.RecordPartition;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.UniformStickyPartitioner;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+// ignores the key, the producer fills a batch for one partition and then moves on to the next one
+// this gives the fullest batches and an even load, but the records of a user are not ordered anymore
+public class StickyPartitionStrategy<K> implements PartitionStrategy<K> {
+    @Override
+    public Map<String, Object> producerConfigs() {
+        return Collections.singletonMap(ProducerConfig.PARTITIONER_CLASS_CONFIG, UniformStickyPartitioner.class);
+    }
+
+    @Override
+    public RecordPartition partition(String topicName, K key, ToIntFunction<String> partitionCounts) {
+        return null;
+    }
+}
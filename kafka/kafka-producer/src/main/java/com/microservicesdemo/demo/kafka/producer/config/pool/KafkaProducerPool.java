@@ -0,0 +1,128 @@
+package com.microservicesdemo.demo.kafka.producer.config.pool;
+
+import com.microservicesdemo.demo.config.KafkaProducerConfigData.PoolSharding;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// a fixed number of kafka producers, each with its own KafkaTemplate
+// a single KafkaProducer serializes all sending threads on the lock of its record accumulator
+// and has one sender thread doing the network io, with a pool every producer only sees its share of the records.
+// a record always goes to the same producer for the same key, so the order per key stays the same as with one producer
+public class KafkaProducerPool<K, V> implements DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaProducerPool.class);
+
+    private final List<ProducerFactory<K, V>> producerFactories;
+
+    private final List<KafkaTemplate<K, V>> kafkaTemplates;
+
+    private final PoolSharding sharding;
+
+    // only used with PARTITION sharding, to compute the same partition as the kafka default partitioner
+    private final Serializer<K> keySerializer;
+
+    private final Map<String, Integer> partitionCounts = new ConcurrentHashMap<>();
+
+    public KafkaProducerPool(List<ProducerFactory<K, V>> producerFactories, PoolSharding sharding, Serializer<K> keySerializer) {
+        if (producerFactories.isEmpty()) {
+            throw new IllegalArgumentException("Kafka producer pool needs at least one producer factory");
+        }
+        this.producerFactories = Collections.unmodifiableList(new ArrayList<>(producerFactories));
+        List<KafkaTemplate<K, V>> templates = new ArrayList<>(producerFactories.size());
+        for (ProducerFactory<K, V> producerFactory : producerFactories) {
+            KafkaTemplate<K, V> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+            // with transactional producers a template only sends inside executeInTransaction by default,
+            // single sends and the spill replay still go through the idempotent non transactional producer of the factory
+            kafkaTemplate.setAllowNonTransactional(true);
+            templates.add(kafkaTemplate);
+        }
+        this.kafkaTemplates = Collections.unmodifiableList(templates);
+        this.sharding = sharding == null ? PoolSharding.KEY_HASH : sharding;
+        this.keySerializer = keySerializer;
+    }
+
+    // pool of one, used when the producer pool is not configured and by the benchmarks
+    public static <K, V> KafkaProducerPool<K, V> of(ProducerFactory<K, V> producerFactory) {
+        return new KafkaProducerPool<>(Collections.singletonList(producerFactory), PoolSharding.KEY_HASH, null);
+    }
+
+    public int size() {
+        return kafkaTemplates.size();
+    }
+
+    public List<ProducerFactory<K, V>> getProducerFactories() {
+        return producerFactories;
+    }
+
+    // true when the producers have a transactional.id, that is with the exactly-once delivery guarantee
+    public boolean isTransactional() {
+        return producerFactories.get(0).transactionCapable();
+    }
+
+    public KafkaTemplate<K, V> getKafkaTemplate(int shard) {
+        return kafkaTemplates.get(shard);
+    }
+
+    public KafkaTemplate<K, V> kafkaTemplateFor(String topicName, K key) {
+        return kafkaTemplates.get(shardFor(topicName, key));
+    }
+
+    public int shardFor(String topicName, K key) {
+        int size = kafkaTemplates.size();
+        if (size == 1) {
+            return 0;
+        }
+        if (key == null) {
+            // the default partitioner spreads null keys with its sticky partitioner anyway,
+            // so we only keep a thread on the same producer to avoid contention between threads
+            return (int) Math.floorMod(Thread.currentThread().getId(), size);
+        }
+        if (sharding == PoolSharding.PARTITION && keySerializer != null) {
+            // same formula as the kafka DefaultPartitioner for keyed records, so every producer owns a fixed set of partitions
+            byte[] keyBytes = keySerializer.serialize(topicName, key);
+            int partition = Utils.toPositive(Utils.murmur2(keyBytes)) % partitionCount(topicName);
+            return partition % size;
+        }
+        return Math.floorMod(key.hashCode(), size);
+    }
+
+    // for records that got their partition from a PartitionStrategy
+    public int shardFor(String topicName, K key, int partition) {
+        if (sharding == PoolSharding.PARTITION) {
+            return partition % kafkaTemplates.size();
+        }
+        return shardFor(topicName, key);
+    }
+
+    // topics are created with their partitions before we start sending, so we read the count only once per topic
+    public int partitionCount(String topicName) {
+        return partitionCounts.computeIfAbsent(topicName, topic -> kafkaTemplates.get(0).partitionsFor(topic).size());
+    }
+
+    @Override
+    public void destroy() {
+        for (ProducerFactory<K, V> producerFactory : producerFactories) {
+            if (producerFactory instanceof DisposableBean) {
+                try {
+                    ((DisposableBean) producerFactory).destroy();
+                } catch (Exception e) {
+                    // keep closing the other producers, they may still have records to flush
+                    LOG.error("Error while closing kafka producer", e);
+                }
+            }
+        }
+        if (keySerializer != null) {
+            keySerializer.close();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// schema ids of the topics we send to, registered once at startup (see KafkaStreamInitializer)
+// KafkaProducerConfig passes this bean to TwitterAvroModelSerializer through the producer config map,
+// so the serializer never calls the schema registry itself
+@Component
+public class SchemaIdRegistry {
+    private final Map<String, Integer> schemaIds = new ConcurrentHashMap<>();
+
+    public void register(String topicName, int schemaId) {
+        schemaIds.put(topicName, schemaId);
+    }
+
+    // null when no schema was registered for the topic
+    public Integer getSchemaId(String topicName) {
+        return schemaIds.get(topicName);
+    }
+
+    // subject name of the record values of a topic, the same as the TopicNameStrategy of the confluent serializers
+    public static String valueSubject(String topicName) {
+        return topicName + "-value";
+    }
+}
@@ -0,0 +1,98 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.config.KafkaConfigData.ValueFormat;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.codec.ValueCodec;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.codec.impl.IdentityValueCodec;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueBuffer;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueFormatWriter;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.impl.ConfluentAvroValueFormatWriter;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.impl.ProtobufValueFormatWriter;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.impl.SingleObjectAvroValueFormatWriter;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// value serializer for TwitterAvroModel, the value format is picked per topic (kafka-config.topic-value-formats)
+// the default is the same confluent wire format as KafkaAvroSerializer, so the consumers keep using KafkaAvroDeserializer.
+// KafkaAvroSerializer creates a ByteArrayOutputStream and a DatumWriter for every record and looks up the schema id
+// in the cache of the registry client. here every thread reuses its buffer and encoder, the model writes itself
+// with its generated custom coder, and the schema id comes from SchemaIdRegistry which was filled at startup.
+// the only allocation per record is the byte array kafka needs as the result
+// the serialized value can go through a ValueCodec (kafka-producer-config.value-codec), eg. zstd with a trained dictionary
+public class TwitterAvroModelSerializer implements Serializer<TwitterAvroModel> {
+    // producer config key of the SchemaIdRegistry instance
+    public static final String SCHEMA_ID_REGISTRY_CONFIG = "twitter.avro.schema.id.registry";
+
+    // producer config key of the Map<String, ValueFormat> with the value format of each topic
+    public static final String VALUE_FORMATS_CONFIG = "twitter.value.formats";
+
+    // producer config key of the ValueCodec instance, the values are sent as they are when it is not set
+    public static final String VALUE_CODEC_CONFIG = "twitter.value.codec";
+
+    private static final ThreadLocal<ValueBuffer> VALUE_BUFFERS = ThreadLocal.withInitial(ValueBuffer::new);
+
+    private ValueFormatWriter defaultWriter;
+
+    private ValueCodec valueCodec;
+
+    // only the topics with another format than the default, read only after configure
+    private final Map<String, ValueFormatWriter> topicWriters = new HashMap<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object registry = configs.get(SCHEMA_ID_REGISTRY_CONFIG);
+        if (registry != null && !(registry instanceof SchemaIdRegistry)) {
+            throw new SerializationException("Producer config " + SCHEMA_ID_REGISTRY_CONFIG + " must be a SchemaIdRegistry, got " + registry);
+        }
+        defaultWriter = new ConfluentAvroValueFormatWriter((SchemaIdRegistry) registry);
+        Object codec = configs.get(VALUE_CODEC_CONFIG);
+        if (codec != null && !(codec instanceof ValueCodec)) {
+            throw new SerializationException("Producer config " + VALUE_CODEC_CONFIG + " must be a ValueCodec, got " + codec);
+        }
+        valueCodec = codec != null ? (ValueCodec) codec : new IdentityValueCodec();
+        Object valueFormats = configs.get(VALUE_FORMATS_CONFIG);
+        if (valueFormats == null) {
+            return;
+        }
+        if (!(valueFormats instanceof Map)) {
+            throw new SerializationException("Producer config " + VALUE_FORMATS_CONFIG + " must be a map of topic to value format, got " + valueFormats);
+        }
+        for (Map.Entry<?, ?> topicValueFormat : ((Map<?, ?>) valueFormats).entrySet()) {
+            ValueFormat valueFormat = (ValueFormat) topicValueFormat.getValue();
+            if (valueFormat != ValueFormat.CONFLUENT_AVRO) {
+                topicWriters.put((String) topicValueFormat.getKey(), newWriter(valueFormat));
+            }
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, TwitterAvroModel data) {
+        if (data == null) {
+            return null;
+        }
+        ValueFormatWriter writer = topicWriters.isEmpty() ? defaultWriter : topicWriters.getOrDefault(topic, defaultWriter);
+        ValueBuffer valueBuffer = VALUE_BUFFERS.get();
+        valueBuffer.reset();
+        try {
+            writer.write(topic, data, valueBuffer);
+        } catch (IOException e) {
+            throw new SerializationException("Error serializing avro message for topic " + topic, e);
+        }
+        return valueCodec.encode(valueBuffer);
+    }
+
+    private static ValueFormatWriter newWriter(ValueFormat valueFormat) {
+        switch (valueFormat) {
+            case AVRO_SINGLE_OBJECT:
+                return new SingleObjectAvroValueFormatWriter();
+            case PROTOBUF:
+                return new ProtobufValueFormatWriter();
+            default:
+                throw new SerializationException("Unsupported value format " + valueFormat);
+        }
+    }
+}
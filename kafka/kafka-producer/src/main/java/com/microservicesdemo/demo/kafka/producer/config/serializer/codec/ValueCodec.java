@@ -0,0 +1,11 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer.codec;
+
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueBuffer;
+
+// turns the serialized value in the buffer of the calling thread into the record value, eg. compresses it
+// there is no header telling the consumer which codec was used, a header costs about 30 bytes per record which is
+// more than a dictionary saves on a tweet. the codecs are told apart by the first bytes of the value instead,
+// a zstd frame starts with the magic number 28 B5 2F FD, which none of the value formats starts with
+public interface ValueCodec {
+    byte[] encode(ValueBuffer buffer);
+}
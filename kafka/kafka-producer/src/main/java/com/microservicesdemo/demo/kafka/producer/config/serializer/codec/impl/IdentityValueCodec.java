@@ -0,0 +1,12 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer.codec.impl;
+
+import com.microservicesdemo.demo.kafka.producer.config.serializer.codec.ValueCodec;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueBuffer;
+
+// the default, the serialized value goes to kafka as it is and only the batch is compressed (compression-type)
+public class IdentityValueCodec implements ValueCodec {
+    @Override
+    public byte[] encode(ValueBuffer buffer) {
+        return buffer.toRecordValue();
+    }
+}
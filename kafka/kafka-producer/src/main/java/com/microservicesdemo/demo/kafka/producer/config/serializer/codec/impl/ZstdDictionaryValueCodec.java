@@ -0,0 +1,99 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer.codec.impl;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.codec.ValueCodec;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueBuffer;
+import com.microservicesdemo.demo.kafka.producer.exception.KafkaProducerException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// compresses every value on its own with zstd and a dictionary trained offline from sample tweets
+// compression-type compresses a whole batch, so it only finds what repeats between the tweets of one batch,
+// and a small batch (low load, short linger) barely compresses. the dictionary already has the common words,
+// hashtags and field layout of our tweets, so even a single ~100 byte value compresses well
+// the zstd frame has the dictionary id, consumers need the same dictionary file to decompress (see decode)
+// the frame also holds the magic byte and schema id of a confluent-avro value, which a KafkaAvroDeserializer can not
+// read, so KafkaStreamInitializer only starts with this codec when no topic we send to uses confluent-avro
+public class ZstdDictionaryValueCodec implements ValueCodec {
+    private final ZstdDictCompress compressDictionary;
+
+    private final ZstdDictDecompress decompressDictionary;
+
+    private final int level;
+
+    // compression context and output buffer of one thread, the context keeps the loaded dictionary between records
+    private final ThreadLocal<CompressBuffer> compressBuffers;
+
+    public ZstdDictionaryValueCodec(byte[] dictionary, int level) {
+        this.compressDictionary = new ZstdDictCompress(dictionary, level);
+        this.decompressDictionary = new ZstdDictDecompress(dictionary);
+        this.level = level;
+        this.compressBuffers = ThreadLocal.withInitial(() -> new CompressBuffer(compressDictionary, level));
+    }
+
+    public static ZstdDictionaryValueCodec fromFile(Path dictionaryPath, int level) {
+        try {
+            return new ZstdDictionaryValueCodec(Files.readAllBytes(dictionaryPath), level);
+        } catch (IOException e) {
+            throw new KafkaProducerException("Could not read zstd dictionary " + dictionaryPath, e);
+        }
+    }
+
+    // builds a dictionary from sample values, the samples should be serialized the same way as the records we send
+    // zstd recommends about 100 times more sample bytes than the dictionary size
+    public static byte[] train(Iterable<byte[]> samples, int dictionarySize) {
+        long sampleBytes = 0;
+        for (byte[] sample : samples) {
+            sampleBytes += sample.length;
+        }
+        ZstdDictTrainer trainer = new ZstdDictTrainer((int) Math.min(Integer.MAX_VALUE, sampleBytes), dictionarySize);
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+        return trainer.trainSamples();
+    }
+
+    @Override
+    public byte[] encode(ValueBuffer buffer) {
+        return compressBuffers.get().compress(buffer.getBuffer(), buffer.size());
+    }
+
+    // what a consumer does with a value that starts with the zstd magic number
+    public byte[] decode(byte[] value) {
+        long size = Zstd.decompressedSize(value);
+        if (size <= 0 || size > Integer.MAX_VALUE) {
+            throw new KafkaProducerException("Value is not a zstd frame with a content size");
+        }
+        return Zstd.decompress(value, decompressDictionary, (int) size);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    private static final class CompressBuffer {
+        private final ZstdCompressCtx compressCtx;
+
+        private byte[] out = new byte[512];
+
+        private CompressBuffer(ZstdDictCompress dictionary, int level) {
+            this.compressCtx = new ZstdCompressCtx().setLevel(level).loadDict(dictionary);
+        }
+
+        private byte[] compress(byte[] source, int length) {
+            int bound = (int) Zstd.compressBound(length);
+            if (out.length < bound) {
+                out = new byte[Math.max(bound, out.length * 2)];
+            }
+            int compressedLength = compressCtx.compressByteArray(out, 0, out.length, source, 0, length);
+            return Arrays.copyOf(out, compressedLength);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer.format;
+
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+// buffer and avro encoder of one thread, the buffer grows to the largest record and stays that size
+// so the only allocation per record is the copy kafka gets as the record value
+public class ValueBuffer extends ByteArrayOutputStream {
+    private BinaryEncoder encoder;
+
+    public ValueBuffer() {
+        super(256);
+    }
+
+    // the write methods of ByteArrayOutputStream are synchronized, which costs a lock per byte for the protobuf varints
+    // a ValueBuffer is only used by its own thread, so we write to the array without the lock
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    // direct encoder on top of this buffer, reused for every record of the thread
+    public BinaryEncoder binaryEncoder() {
+        encoder = EncoderFactory.get().directBinaryEncoder(this, encoder);
+        return encoder;
+    }
+
+    public void writeIntBigEndian(int value) {
+        write(value >>> 24);
+        write(value >>> 16);
+        write(value >>> 8);
+        write(value);
+    }
+
+    public void writeLongLittleEndian(long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            write((int) (value >>> (8 * i)));
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (count + length > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + length));
+        }
+    }
+
+    // the backing array, only the first size() bytes are the current record
+    public byte[] getBuffer() {
+        return buf;
+    }
+
+    // the buffer is reused by the next record of this thread, so kafka gets a copy of exactly this record
+    public byte[] toRecordValue() {
+        return Arrays.copyOf(buf, count);
+    }
+}
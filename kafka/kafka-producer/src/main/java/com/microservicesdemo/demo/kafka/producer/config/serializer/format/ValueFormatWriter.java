@@ -0,0 +1,11 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer.format;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+
+import java.io.IOException;
+
+// writes one TwitterAvroModel in a value format (see KafkaConfigData.ValueFormat) into the reused buffer of the calling thread
+// TwitterAvroModelSerializer picks the writer of the topic and copies the buffer into the record value
+public interface ValueFormatWriter {
+    void write(String topicName, TwitterAvroModel data, ValueBuffer buffer) throws IOException;
+}
@@ -0,0 +1,35 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer.format.impl;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.SchemaIdRegistry;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueBuffer;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueFormatWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+
+// same wire format as KafkaAvroSerializer, [magic byte 0][int schema id][avro binary], so the consumers keep using
+// KafkaAvroDeserializer. the schema id comes from SchemaIdRegistry which was filled at startup
+public class ConfluentAvroValueFormatWriter implements ValueFormatWriter {
+    private static final byte MAGIC_BYTE = 0x0;
+
+    private final SchemaIdRegistry schemaIdRegistry;
+
+    public ConfluentAvroValueFormatWriter(SchemaIdRegistry schemaIdRegistry) {
+        this.schemaIdRegistry = schemaIdRegistry;
+    }
+
+    @Override
+    public void write(String topicName, TwitterAvroModel data, ValueBuffer buffer) throws IOException {
+        Integer schemaId = schemaIdRegistry != null ? schemaIdRegistry.getSchemaId(topicName) : null;
+        if (schemaId == null) {
+            throw new SerializationException("No schema id registered for topic " + topicName);
+        }
+        buffer.write(MAGIC_BYTE);
+        buffer.writeIntBigEndian(schemaId);
+        BinaryEncoder encoder = buffer.binaryEncoder();
+        data.customEncode(encoder);
+        encoder.flush();
+    }
+}
@@ -0,0 +1,72 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer.format.impl;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroRecord;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueBuffer;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueFormatWriter;
+
+import java.nio.charset.StandardCharsets;
+
+// protobuf binary of the TwitterProtoModel message in kafka-model/src/main/resources/proto/twitter.proto
+// the message has 4 scalar fields, so we write the protobuf wire format (tag varint, then varint or length + utf-8)
+// straight into the buffer instead of building a generated message and a CodedOutputStream for every record
+// Note: keep the field numbers in sync with twitter.proto
+public class ProtobufValueFormatWriter implements ValueFormatWriter {
+    private static final int WIRE_TYPE_VARINT = 0;
+
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+
+    private static final int USER_ID_FIELD = 1;
+
+    private static final int ID_FIELD = 2;
+
+    private static final int TEXT_FIELD = 3;
+
+    private static final int CREATED_AT_FIELD = 4;
+
+    @Override
+    public void write(String topicName, TwitterAvroModel data, ValueBuffer buffer) {
+        // proto3 leaves out scalar fields with the default value, the optional fields are written whenever they are set
+        if (data.getUserId() != 0) {
+            writeTag(buffer, USER_ID_FIELD, WIRE_TYPE_VARINT);
+            writeVarint(buffer, data.getUserId());
+        }
+        if (data.getId() != 0) {
+            writeTag(buffer, ID_FIELD, WIRE_TYPE_VARINT);
+            writeVarint(buffer, data.getId());
+        }
+        String text = data.getText();
+        if (text != null) {
+            writeTag(buffer, TEXT_FIELD, WIRE_TYPE_LENGTH_DELIMITED);
+            // String.getBytes is a jdk intrinsic, faster than encoding char by char into the buffer even with the extra array
+            // (avro does the same in writeString)
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            writeVarint(buffer, utf8.length);
+            buffer.write(utf8, 0, utf8.length);
+        }
+        // a pooled record has createdAt as a primitive, read it without boxing
+        if (data instanceof TwitterAvroRecord) {
+            TwitterAvroRecord twitterAvroRecord = (TwitterAvroRecord) data;
+            if (twitterAvroRecord.hasCreatedAt()) {
+                writeTag(buffer, CREATED_AT_FIELD, WIRE_TYPE_VARINT);
+                writeVarint(buffer, twitterAvroRecord.getCreatedAtMillis());
+            }
+        } else if (data.getCreatedAt() != null) {
+            writeTag(buffer, CREATED_AT_FIELD, WIRE_TYPE_VARINT);
+            writeVarint(buffer, data.getCreatedAt());
+        }
+    }
+
+    private static void writeTag(ValueBuffer buffer, int fieldNumber, int wireType) {
+        writeVarint(buffer, (fieldNumber << 3) | wireType);
+    }
+
+    // int64 fields are plain varints, negative values take 10 bytes like in protobuf
+    private static void writeVarint(ValueBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.write((int) value);
+    }
+}
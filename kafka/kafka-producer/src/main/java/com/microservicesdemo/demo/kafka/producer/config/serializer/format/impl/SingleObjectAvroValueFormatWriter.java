@@ -0,0 +1,28 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer.format.impl;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueBuffer;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueFormatWriter;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.io.BinaryEncoder;
+
+import java.io.IOException;
+
+// avro single object encoding, [C3 01][8 byte little endian CRC-64-AVRO fingerprint of the schema][avro binary]
+// the consumer finds the writer schema by its fingerprint, eg. TwitterAvroModel.getDecoder().decode(value),
+// so neither side needs the schema registry. this is what TwitterAvroModel.toByteBuffer writes,
+// but without the new output stream and datum writer per record
+public class SingleObjectAvroValueFormatWriter implements ValueFormatWriter {
+    private static final byte[] V1_HEADER = new byte[]{(byte) 0xC3, (byte) 0x01};
+
+    private static final long FINGERPRINT = SchemaNormalization.parsingFingerprint64(TwitterAvroModel.getClassSchema());
+
+    @Override
+    public void write(String topicName, TwitterAvroModel data, ValueBuffer buffer) throws IOException {
+        buffer.write(V1_HEADER);
+        buffer.writeLongLittleEndian(FINGERPRINT);
+        BinaryEncoder encoder = buffer.binaryEncoder();
+        data.customEncode(encoder);
+        encoder.flush();
+    }
+}
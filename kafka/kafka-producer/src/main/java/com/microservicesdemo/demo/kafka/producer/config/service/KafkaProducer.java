@@ -1,9 +1,25 @@
 package com.microservicesdemo.demo.kafka.producer.config.service;
 
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchRecord;
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchSendResult;
 import org.apache.avro.specific.SpecificRecordBase;
 
 import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface KafkaProducer<K extends Serializable, V extends SpecificRecordBase> {
     void send(String topicName, K key, V message);
+
+    // hands all records to the kafka producer at once and returns one future for the whole batch
+    // the future never completes exceptionally, failed records are listed in the result instead
+    CompletableFuture<BatchSendResult<K, V>> sendBatch(String topicName, List<BatchRecord<K, V>> records);
+
+    // true when the producers are transactional (delivery-guarantee exactly-once) and sendBatchInTransaction can be used
+    boolean isTransactional();
+
+    // like sendBatch, but the records are committed in a kafka transaction per producer of the pool,
+    // so read_committed consumers see all records of a producer's share of the batch or none of them.
+    // the future completes once the transactions are committed or aborted, records of an aborted transaction are failures
+    CompletableFuture<BatchSendResult<K, V>> sendBatchInTransaction(String topicName, List<BatchRecord<K, V>> records);
 }
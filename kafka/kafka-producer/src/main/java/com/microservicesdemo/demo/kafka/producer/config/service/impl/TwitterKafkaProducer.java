@@ -1,63 +1,384 @@
 package com.microservicesdemo.demo.kafka.producer.config.service.impl;
 
-import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.common.logging.SampledLogger;
+import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroRecord;
+import com.microservicesdemo.demo.kafka.producer.config.metrics.TwitterKafkaProducerMetrics;
+import com.microservicesdemo.demo.kafka.producer.config.partition.PartitionStrategy;
+import com.microservicesdemo.demo.kafka.producer.config.partition.RecordPartition;
+import com.microservicesdemo.demo.kafka.producer.config.pool.KafkaProducerPool;
+import com.microservicesdemo.demo.kafka.producer.config.spill.SpillBuffer;
 import com.microservicesdemo.demo.kafka.producer.config.service.KafkaProducer;
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchRecord;
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchSendResult;
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchSendResult.RecordFailure;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
 
 // for generic variables replacement we will use Long and TwitterAvroModel
 // TwitterAvroModel is a generated class file that we generated via schema
+// messages that are pooled TwitterAvroRecord objects are recycled here once they are acked or appended to the spill log,
+// a record that failed for good is left to the gc, the caller may still look at it in the failure log or batch result
 @Service
 public class TwitterKafkaProducer implements KafkaProducer<Long, TwitterAvroModel> {
     private static final Logger LOG = LoggerFactory.getLogger(TwitterKafkaProducer.class);
 
-    // inject kafka template to this spring bean
-    private final KafkaTemplate<Long, TwitterAvroModel> kafkaTemplate;
+    // logging every record costs more than serializing it, so on the send path we only log a sample
+    private static final SampledLogger SEND_LOG = SampledLogger.perSecond(LOG, 1);
 
-    public TwitterKafkaProducer(KafkaTemplate<Long, TwitterAvroModel> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
+    // when the brokers are down every record fails, keep the error log readable
+    private static final SampledLogger FAILURE_LOG = SampledLogger.perSecond(LOG, 10);
+
+    // inject the pool of kafka templates to this spring bean, every record is sent with the template of its shard
+    private final KafkaProducerPool<Long, TwitterAvroModel> kafkaProducerPool;
+
+    private final TwitterKafkaProducerMetrics twitterKafkaProducerMetrics;
+
+    // picks the partition of a record, or leaves it to the partitioner of the kafka producer
+    private final PartitionStrategy<Long> partitionStrategy;
+
+    // created once, a method reference per send would be a new object for every record
+    private final ToIntFunction<String> partitionCounts;
+
+    // takes the records kafka can not take right now, SpillReplayTask sends them later
+    private final SpillBuffer spillBuffer;
+
+    public TwitterKafkaProducer(KafkaProducerPool<Long, TwitterAvroModel> kafkaProducerPool, TwitterKafkaProducerMetrics twitterKafkaProducerMetrics, PartitionStrategy<Long> partitionStrategy, SpillBuffer spillBuffer) {
+        this.kafkaProducerPool = kafkaProducerPool;
+        this.twitterKafkaProducerMetrics = twitterKafkaProducerMetrics;
+        this.partitionStrategy = partitionStrategy;
+        this.partitionCounts = kafkaProducerPool::partitionCount;
+        this.spillBuffer = spillBuffer;
     }
 
 
-    // destory kafkaTemplote before application shut down
+    // destory the kafka producers before application shut down
     @PreDestroy
     public void close() {
-        if (kafkaTemplate != null) {
+        if (kafkaProducerPool != null) {
             LOG.info("Closing kafka producer");
-            kafkaTemplate.destroy();
+            kafkaProducerPool.destroy();
         }
     }
     @Override
     public void send(String topicName, Long key, TwitterAvroModel message) {
-        LOG.info("Sending Message='{}' to topic='{}", message, topicName);
+        SEND_LOG.info("Sending Message='{}' to topic='{}'", message, topicName);
         // this will return Listenable Furutre and add a generic parmater
         // it will include SendResult with Long and TwitterAvroModel with geenric variable
         // Listenabe Future: Register callback methods for handling events when the reposne return
         // here since the send method of kafkaTemplate is asyncrohnous kafkaTemplate.send, it returns a listenale future,
         // and to get a resoonse later asynchrnously, we simply added a callback method below and override its onSuccess and onFailure method
-        ListenableFuture<SendResult<Long, TwitterAvroModel>> kafkaResultFuture = kafkaTemplate.send(topicName, key, message);
+        // the producer is saturated or older records are waiting in the spill log, dont block and dont overtake them
+        if (spillBuffer.shouldSpill(twitterKafkaProducerMetrics.getInFlight()) && spillBuffer.append(topicName, key, message)) {
+            TwitterAvroRecord.recycle(message);
+            return;
+        }
+        long startNanos = twitterKafkaProducerMetrics.sendStarted(1);
+        ListenableFuture<SendResult<Long, TwitterAvroModel>> kafkaResultFuture;
+        try {
+            RecordPartition recordPartition = partitionStrategy.partition(topicName, key, partitionCounts);
+            if (recordPartition == null) {
+                kafkaResultFuture = kafkaProducerPool.kafkaTemplateFor(topicName, key).send(topicName, key, message);
+            } else {
+                int shard = kafkaProducerPool.shardFor(topicName, key, recordPartition.getPartition());
+                kafkaResultFuture = kafkaProducerPool.getKafkaTemplate(shard).send(new ProducerRecord<>(topicName,
+                        recordPartition.getPartition(), null, key, message, recordPartition.headers()));
+            }
+        } catch (RuntimeException e) {
+            twitterKafkaProducerMetrics.failed(startNanos, e);
+            // eg. max.block.ms expired because there is no metadata while the brokers are down
+            if (spillBuffer.append(topicName, key, message)) {
+                TwitterAvroRecord.recycle(message);
+                return;
+            }
+            throw e;
+        } finally {
+            twitterKafkaProducerMetrics.sendReturned(startNanos);
+        }
         // add a callback method to this listenable future object
-        addCallBack(topicName, message, kafkaResultFuture);
+        addCallBack(topicName, key, message, kafkaResultFuture, startNanos);
+    }
+
+    // instead of one kafkaTemplate.send and one listenable future callback per record,
+    // we get the producer once per shard with kafkaTemplate.execute and count the acks with a plain kafka Callback
+    @Override
+    public CompletableFuture<BatchSendResult<Long, TwitterAvroModel>> sendBatch(String topicName, List<BatchRecord<Long, TwitterAvroModel>> records) {
+        SEND_LOG.debug("Sending batch of {} messages to topic='{}'", records.size(), topicName);
+        if (spillBuffer.shouldSpill(twitterKafkaProducerMetrics.getInFlight())) {
+            return CompletableFuture.completedFuture(spillBatch(topicName, records));
+        }
+        long startNanos = twitterKafkaProducerMetrics.sendStarted(records.size());
+        BatchCompletion batchCompletion = new BatchCompletion(topicName, records, twitterKafkaProducerMetrics, spillBuffer, startNanos);
+        if (records.isEmpty()) {
+            return batchCompletion.future;
+        }
+        try {
+            int[] shards = assignShards(topicName, batchCompletion);
+            if (shards == null) {
+                return batchCompletion.future;
+            }
+            // the pool is small (about one producer per core), so scanning the batch once per shard is cheaper than grouping it
+            for (int shard = 0; shard < kafkaProducerPool.size(); shard++) {
+                sendBatchShard(shard, shards, topicName, batchCompletion);
+            }
+        } finally {
+            twitterKafkaProducerMetrics.sendReturned(startNanos);
+        }
+        return batchCompletion.future;
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return kafkaProducerPool.isTransactional();
+    }
+
+    // same sharding as sendBatch, but every shard sends its records in one transaction and commits it before we go on.
+    // the commit flushes the producer and waits for the acks, so unlike sendBatch this blocks the calling thread
+    // and the returned future is already complete. the records of an aborted transaction go to the spill log,
+    // the replay sends them with the idempotent non transactional producer, which read_committed consumers see as well
+    @Override
+    public CompletableFuture<BatchSendResult<Long, TwitterAvroModel>> sendBatchInTransaction(String topicName, List<BatchRecord<Long, TwitterAvroModel>> records) {
+        if (!isTransactional()) {
+            throw new IllegalStateException("Kafka producers are not transactional, set delivery-guarantee to exactly-once");
+        }
+        SEND_LOG.debug("Sending batch of {} messages in a transaction to topic='{}'", records.size(), topicName);
+        if (spillBuffer.shouldSpill(twitterKafkaProducerMetrics.getInFlight())) {
+            return CompletableFuture.completedFuture(spillBatch(topicName, records));
+        }
+        long startNanos = twitterKafkaProducerMetrics.sendStarted(records.size());
+        BatchCompletion batchCompletion = new BatchCompletion(topicName, records, twitterKafkaProducerMetrics, spillBuffer, startNanos);
+        if (records.isEmpty()) {
+            return batchCompletion.future;
+        }
+        try {
+            int[] shards = assignShards(topicName, batchCompletion);
+            if (shards == null) {
+                return batchCompletion.future;
+            }
+            for (int shard = 0; shard < kafkaProducerPool.size(); shard++) {
+                sendTransactionShard(shard, shards, topicName, batchCompletion);
+            }
+        } finally {
+            twitterKafkaProducerMetrics.sendReturned(startNanos);
+        }
+        return batchCompletion.future;
+    }
+
+    // the shard of every record of the batch, or null when we could not partition the batch,
+    // then all records were completed with the error and nothing was sent yet
+    private int[] assignShards(String topicName, BatchCompletion batchCompletion) {
+        List<BatchRecord<Long, TwitterAvroModel>> records = batchCompletion.records;
+        int[] shards = new int[records.size()];
+        try {
+            for (int i = 0; i < records.size(); i++) {
+                Long key = records.get(i).getKey();
+                RecordPartition recordPartition = partitionStrategy.partition(topicName, key, partitionCounts);
+                if (recordPartition == null) {
+                    shards[i] = kafkaProducerPool.shardFor(topicName, key);
+                } else {
+                    batchCompletion.partitions[i] = recordPartition;
+                    shards[i] = kafkaProducerPool.shardFor(topicName, key, recordPartition.getPartition());
+                }
+            }
+        } catch (RuntimeException e) {
+            // we could not read the partition count of the topic
+            for (int i = 0; i < records.size(); i++) {
+                batchCompletion.complete(i, e);
+            }
+            return null;
+        }
+        return shards;
+    }
+
+    // only the records that could not be appended to the spill log are failures
+    private BatchSendResult<Long, TwitterAvroModel> spillBatch(String topicName, List<BatchRecord<Long, TwitterAvroModel>> records) {
+        List<RecordFailure<Long, TwitterAvroModel>> failures = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            BatchRecord<Long, TwitterAvroModel> record = records.get(i);
+            if (!spillBuffer.append(topicName, record.getKey(), record.getMessage())) {
+                failures.add(new RecordFailure<>(i, record, new IllegalStateException("Record could not be spilled")));
+            } else {
+                TwitterAvroRecord.recycle(record.getMessage());
+            }
+        }
+        return new BatchSendResult<>(topicName, records.size(), failures);
+    }
+
+    private void sendBatchShard(int shard, int[] shards, String topicName, BatchCompletion batchCompletion) {
+        batchCompletion.submitted = 0;
+        try {
+            kafkaProducerPool.getKafkaTemplate(shard).execute(producer -> {
+                for (int i = 0; i < shards.length; i++) {
+                    if (shards[i] == shard) {
+                        sendBatchRecord(producer, topicName, i, batchCompletion);
+                        batchCompletion.submitted++;
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // we could not get a producer from the template, fail the records of this shard that were not handed to kafka
+            int skip = batchCompletion.submitted;
+            for (int i = 0; i < shards.length; i++) {
+                if (shards[i] == shard && skip-- <= 0) {
+                    batchCompletion.complete(i, e);
+                }
+            }
+        }
+    }
+
+    private void sendBatchRecord(Producer<Long, TwitterAvroModel> producer, String topicName, int index, BatchCompletion batchCompletion) {
+        try {
+            producer.send(producerRecord(topicName, index, batchCompletion), (metadata, exception) -> batchCompletion.complete(index, exception));
+        } catch (Exception e) {
+            // send throws instead of calling the callback for errors like serialization or max.block.ms timeouts
+            batchCompletion.complete(index, e);
+        }
+    }
+
+    private void sendTransactionShard(int shard, int[] shards, String topicName, BatchCompletion batchCompletion) {
+        boolean hasRecords = false;
+        for (int i = 0; i < shards.length && !hasRecords; i++) {
+            hasRecords = shards[i] == shard;
+        }
+        if (!hasRecords) {
+            // an empty transaction still costs a round trip to the transaction coordinator
+            return;
+        }
+        Exception exception = null;
+        try {
+            // a failed send makes commitTransaction throw, then spring closes the producer and the coordinator aborts
+            // the transaction, a send that throws right away ends the callback and spring aborts it.
+            // either way executeInTransaction rethrows and nothing was committed, so no record needs its own callback
+            kafkaProducerPool.getKafkaTemplate(shard).executeInTransaction(kafkaOperations -> kafkaOperations.execute(producer -> {
+                for (int i = 0; i < shards.length; i++) {
+                    if (shards[i] == shard) {
+                        producer.send(producerRecord(topicName, i, batchCompletion));
+                    }
+                }
+                return null;
+            }));
+        } catch (RuntimeException e) {
+            exception = e;
+        }
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i] == shard) {
+                batchCompletion.complete(i, exception);
+            }
+        }
+    }
+
+    private ProducerRecord<Long, TwitterAvroModel> producerRecord(String topicName, int index, BatchCompletion batchCompletion) {
+        BatchRecord<Long, TwitterAvroModel> record = batchCompletion.records.get(index);
+        RecordPartition recordPartition = batchCompletion.partitions[index];
+        return recordPartition == null ?
+                new ProducerRecord<>(topicName, record.getKey(), record.getMessage()) :
+                new ProducerRecord<>(topicName, recordPartition.getPartition(), null, record.getKey(), record.getMessage(),
+                        recordPartition.headers());
+    }
+
+    // completes the batch future once every record of the batch got its callback
+    private static class BatchCompletion {
+        private final CompletableFuture<BatchSendResult<Long, TwitterAvroModel>> future = new CompletableFuture<>();
+
+        private final TwitterKafkaProducerMetrics twitterKafkaProducerMetrics;
+
+        private final SpillBuffer spillBuffer;
+
+        private final long startNanos;
+
+        // records of the current shard handed to the kafka producer so far, only used by the thread calling sendBatch
+        private int submitted;
+
+        private final String topicName;
+
+        private final List<BatchRecord<Long, TwitterAvroModel>> records;
+
+        // partition picked by the partition strategy, null entries are left to the kafka producer
+        private final RecordPartition[] partitions;
+
+        private final AtomicInteger remaining;
+
+        private final List<RecordFailure<Long, TwitterAvroModel>> failures = new ArrayList<>();
+
+        BatchCompletion(String topicName, List<BatchRecord<Long, TwitterAvroModel>> records, TwitterKafkaProducerMetrics twitterKafkaProducerMetrics, SpillBuffer spillBuffer, long startNanos) {
+            this.twitterKafkaProducerMetrics = twitterKafkaProducerMetrics;
+            this.spillBuffer = spillBuffer;
+            this.startNanos = startNanos;
+            this.topicName = topicName;
+            this.records = records;
+            this.partitions = new RecordPartition[records.size()];
+            this.remaining = new AtomicInteger(records.size());
+            if (records.isEmpty()) {
+                future.complete(new BatchSendResult<>(topicName, 0, failures));
+            }
+        }
+
+        void complete(int index, Exception exception) {
+            if (exception == null) {
+                twitterKafkaProducerMetrics.acked(startNanos);
+            } else {
+                twitterKafkaProducerMetrics.failed(startNanos, exception);
+            }
+            // a record that made it to the spill log is not lost, the replay sends it later
+            BatchRecord<Long, TwitterAvroModel> record = records.get(index);
+            if (exception != null && !spillBuffer.append(topicName, record.getKey(), record.getMessage())) {
+                synchronized (failures) {
+                    failures.add(new RecordFailure<>(index, record, exception));
+                }
+            } else {
+                TwitterAvroRecord.recycle(record.getMessage());
+            }
+            if (remaining.decrementAndGet() == 0) {
+                BatchSendResult<Long, TwitterAvroModel> result;
+                synchronized (failures) {
+                    result = new BatchSendResult<>(topicName, records.size(), failures);
+                }
+                if (result.hasFailures()) {
+                    FAILURE_LOG.error("Error while sending {} of {} messages to topic {}", result.getFailures().size(),
+                            result.getRecordCount(), topicName, result.getFailures().get(0).getException());
+                }
+                future.complete(result);
+            }
+        }
     }
 
-    private void addCallBack(String topicName, TwitterAvroModel message, ListenableFuture<SendResult<Long, TwitterAvroModel>> kafkaResultFuture) {
+    private void addCallBack(String topicName, Long key, TwitterAvroModel message, ListenableFuture<SendResult<Long, TwitterAvroModel>> kafkaResultFuture, long startNanos) {
         kafkaResultFuture.addCallback(new ListenableFutureCallback<SendResult<Long, TwitterAvroModel>>() {
             @Override
             public void onFailure(Throwable throwable) {
-                LOG.error("Error while sending message {} to topic {}", message.toString(), topicName, throwable);
+                twitterKafkaProducerMetrics.failed(startNanos, throwable);
+                // the message is not recycled here, the producer listener of the kafka template logs the record after us
+                if (spillBuffer.append(topicName, key, message)) {
+                    FAILURE_LOG.warn("Error while sending message to topic {}, spilled it to replay later: {}", topicName, throwable.getMessage());
+                    return;
+                }
+                FAILURE_LOG.error("Error while sending message {} to topic {}", message, topicName, throwable);
             }
 
             @Override
             public void onSuccess(SendResult<Long, TwitterAvroModel> result) {
+                twitterKafkaProducerMetrics.acked(startNanos);
+                TwitterAvroRecord.recycle(message);
                 // onSuccess method we will get metadata from result
+                // check the level first, otherwise we would box the arguments into a varargs array for every ack
+                if (!LOG.isDebugEnabled()) {
+                    return;
+                }
                 RecordMetadata metadata = result.getRecordMetadata();
                 LOG.debug("Reeived new metadata. Topic: {}; Partition {}; Offset {}; Timestamp {}, at time {}",
                         metadata.topic(),
@@ -0,0 +1,21 @@
+package com.microservicesdemo.demo.kafka.producer.config.service.model;
+
+// one record of a batch, the topic is given once for the whole batch in KafkaProducer.sendBatch
+public class BatchRecord<K, V> {
+    private final K key;
+
+    private final V message;
+
+    public BatchRecord(K key, V message) {
+        this.key = key;
+        this.message = message;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public V getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,66 @@
+package com.microservicesdemo.demo.kafka.producer.config.service.model;
+
+import java.util.Collections;
+import java.util.List;
+
+// aggregated result of a batch send, completed once every record of the batch got an ack or an error
+public class BatchSendResult<K, V> {
+    private final String topicName;
+
+    private final int recordCount;
+
+    private final List<RecordFailure<K, V>> failures;
+
+    public BatchSendResult(String topicName, int recordCount, List<RecordFailure<K, V>> failures) {
+        this.topicName = topicName;
+        this.recordCount = recordCount;
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    public String getTopicName() {
+        return topicName;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public int getSuccessCount() {
+        return recordCount - failures.size();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public List<RecordFailure<K, V>> getFailures() {
+        return failures;
+    }
+
+    // a record that could not be sent, index is the position of the record in the list passed to sendBatch
+    public static class RecordFailure<K, V> {
+        private final int index;
+
+        private final BatchRecord<K, V> record;
+
+        private final Throwable exception;
+
+        public RecordFailure(int index, BatchRecord<K, V> record, Throwable exception) {
+            this.index = index;
+            this.record = record;
+            this.exception = exception;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public BatchRecord<K, V> getRecord() {
+            return record;
+        }
+
+        public Throwable getException() {
+            return exception;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.microservicesdemo.demo.kafka.producer.config.spill;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.kafka.producer.config.spill.model.SpillBatch;
+
+// local buffer for the records the kafka producer can not take, they are replayed in order by SpillReplayTask
+public interface SpillBuffer {
+    boolean isEnabled();
+
+    // true when a new record should be appended here instead of sent, because the producer is saturated
+    // or older records are still waiting for the replay and we dont want to overtake them
+    boolean shouldSpill(long inFlightRecords);
+
+    // returns false when the record could not be stored, eg. when the buffer is disabled
+    boolean append(String topicName, Long key, TwitterAvroModel message);
+
+    long getPendingRecords();
+
+    // the next records to replay, they stay in the buffer until the batch is committed
+    SpillBatch peek(int maxRecords);
+
+    void commit(SpillBatch spillBatch);
+}
@@ -0,0 +1,117 @@
+package com.microservicesdemo.demo.kafka.producer.config.spill;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.common.logging.SampledLogger;
+import com.microservicesdemo.demo.config.SpillConfigData;
+import com.microservicesdemo.demo.kafka.producer.config.pool.KafkaProducerPool;
+import com.microservicesdemo.demo.kafka.producer.config.spill.model.SpillBatch;
+import com.microservicesdemo.demo.kafka.producer.config.spill.model.SpilledRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// sends the spilled records to kafka in the order they were spilled, one batch at a time
+// a batch is committed only when kafka acked all of its records, if one fails the whole batch is sent again
+// on the next run, so a record can reach kafka twice but it is never lost.
+// while records are pending the producer spills new records too, so they can not overtake the replayed ones.
+// the records are replayed with the default partitioner, during a catch up the order of a key matters more than hot key spreading
+@Component
+public class SpillReplayTask {
+    private static final Logger LOG = LoggerFactory.getLogger(SpillReplayTask.class);
+
+    // while the brokers are down every run fails the same way
+    private static final SampledLogger REPLAY_ERROR_LOG = SampledLogger.perSecond(LOG, 1);
+
+    private final SpillConfigData spillConfigData;
+
+    private final SpillBuffer spillBuffer;
+
+    private final KafkaProducerPool<Long, TwitterAvroModel> kafkaProducerPool;
+
+    private ScheduledExecutorService scheduler;
+
+    public SpillReplayTask(SpillConfigData spillConfigData, SpillBuffer spillBuffer, KafkaProducerPool<Long, TwitterAvroModel> kafkaProducerPool) {
+        this.spillConfigData = spillConfigData;
+        this.spillBuffer = spillBuffer;
+        this.kafkaProducerPool = kafkaProducerPool;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!spillBuffer.isEnabled()) {
+            return;
+        }
+        long replayIntervalMs = spillConfigData.getReplayIntervalMs();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kafka-spill-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::replay, replayIntervalMs, replayIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // replays until the log is empty or a batch fails
+    void replay() {
+        try {
+            long replayed = 0;
+            while (spillBuffer.getPendingRecords() > 0 && !Thread.currentThread().isInterrupted()) {
+                SpillBatch spillBatch = spillBuffer.peek(spillConfigData.getReplayBatchSize());
+                if (spillBatch.getConsumedRecords() == 0) {
+                    break;
+                }
+                if (!send(spillBatch)) {
+                    return;
+                }
+                spillBuffer.commit(spillBatch);
+                replayed += spillBatch.getRecords().size();
+            }
+            if (replayed > 0) {
+                LOG.info("Replayed {} spilled records to kafka, {} still pending", replayed, spillBuffer.getPendingRecords());
+            }
+        } catch (RuntimeException e) {
+            // never let an exception cancel the scheduled task, we try again on the next run
+            REPLAY_ERROR_LOG.error("Error while replaying spilled records", e);
+        }
+    }
+
+    private boolean send(SpillBatch spillBatch) {
+        List<ListenableFuture<SendResult<Long, TwitterAvroModel>>> futures = new ArrayList<>(spillBatch.getRecords().size());
+        try {
+            for (SpilledRecord record : spillBatch.getRecords()) {
+                futures.add(kafkaProducerPool.kafkaTemplateFor(record.getTopicName(), record.getKey())
+                        .send(record.getTopicName(), record.getKey(), record.getMessage()));
+            }
+            long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(spillConfigData.getReplayAckTimeoutMs());
+            for (ListenableFuture<SendResult<Long, TwitterAvroModel>> future : futures) {
+                future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException | RuntimeException e) {
+            REPLAY_ERROR_LOG.warn("Could not replay {} spilled records, kafka is still not available: {}",
+                    spillBatch.getRecords().size(), e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.microservicesdemo.demo.kafka.producer.config.spill.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// one fixed size file of the spill log, mapped into memory
+// a record is [int payload length][int crc32 of the payload][payload], the length is written last,
+// so after a crash a record is either complete or its length is still 0 (the file is zero filled) or its crc doesnt match
+class MappedSegment {
+    static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    static final String FILE_SUFFIX = ".spill";
+
+    private final long index;
+
+    private final Path path;
+
+    private final FileChannel fileChannel;
+
+    private final MappedByteBuffer buffer;
+
+    private int writePosition;
+
+    private int recordCount;
+
+    private long lastAppendMillis;
+
+    private MappedSegment(long index, Path path, FileChannel fileChannel, MappedByteBuffer buffer, long lastAppendMillis) {
+        this.index = index;
+        this.path = path;
+        this.fileChannel = fileChannel;
+        this.buffer = buffer;
+        this.lastAppendMillis = lastAppendMillis;
+    }
+
+    static MappedSegment create(Path directory, long index, int sizeBytes) throws IOException {
+        Path path = directory.resolve(fileName(index));
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new MappedSegment(index, path, fileChannel, fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes),
+                System.currentTimeMillis());
+    }
+
+    // maps an existing segment and finds the end of its valid records
+    static MappedSegment open(Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+        long index = Long.parseLong(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()));
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedSegment segment = new MappedSegment(index, path, fileChannel,
+                fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileChannel.size()),
+                Files.getLastModifiedTime(path).toMillis());
+        int position = 0;
+        int length;
+        while ((length = segment.validRecordLength(position)) > 0) {
+            position += RECORD_HEADER_BYTES + length;
+            segment.recordCount++;
+        }
+        segment.writePosition = position;
+        return segment;
+    }
+
+    static String fileName(long index) {
+        return String.format("%020d%s", index, FILE_SUFFIX);
+    }
+
+    static boolean isSegmentFile(Path path) {
+        return path.getFileName().toString().endsWith(FILE_SUFFIX);
+    }
+
+    boolean hasRoomFor(int payloadLength) {
+        return writePosition + RECORD_HEADER_BYTES + payloadLength <= buffer.capacity();
+    }
+
+    // the caller checks hasRoomFor first
+    void append(ByteBuffer payload) {
+        int payloadLength = payload.remaining();
+        int payloadPosition = writePosition + RECORD_HEADER_BYTES;
+        ByteBuffer target = buffer.duplicate();
+        target.position(payloadPosition);
+        target.put(payload);
+        buffer.putInt(writePosition + Integer.BYTES, (int) crc(payloadPosition, payloadLength));
+        buffer.putInt(writePosition, payloadLength);
+        writePosition = payloadPosition + payloadLength;
+        recordCount++;
+        lastAppendMillis = System.currentTimeMillis();
+    }
+
+    // payload length of the record at position, 0 at the end of the written records or at a corrupt record
+    int validRecordLength(int position) {
+        if (position + RECORD_HEADER_BYTES > buffer.capacity()) {
+            return 0;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + RECORD_HEADER_BYTES + length > buffer.capacity()) {
+            return 0;
+        }
+        int storedCrc = buffer.getInt(position + Integer.BYTES);
+        return storedCrc == (int) crc(position + RECORD_HEADER_BYTES, length) ? length : 0;
+    }
+
+    // read only view of the payload of the record at position
+    ByteBuffer payload(int position, int length) {
+        ByteBuffer payload = buffer.asReadOnlyBuffer();
+        payload.position(position + RECORD_HEADER_BYTES);
+        payload.limit(position + RECORD_HEADER_BYTES + length);
+        return payload.slice();
+    }
+
+    private long crc(int position, int length) {
+        ByteBuffer data = buffer.duplicate();
+        data.position(position);
+        data.limit(position + length);
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        return crc32.getValue();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    // the mapping itself is released by the gc, java 11 has no public api to unmap a buffer
+    void close() throws IOException {
+        fileChannel.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    long getIndex() {
+        return index;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    long getLastAppendMillis() {
+        return lastAppendMillis;
+    }
+
+    int sizeBytes() {
+        return buffer.capacity();
+    }
+}
@@ -0,0 +1,390 @@
+package com.microservicesdemo.demo.kafka.producer.config.spill.impl;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.common.logging.SampledLogger;
+import com.microservicesdemo.demo.config.SpillConfigData;
+import com.microservicesdemo.demo.config.SpillConfigData.FsyncPolicy;
+import com.microservicesdemo.demo.kafka.producer.config.spill.SpillBuffer;
+import com.microservicesdemo.demo.kafka.producer.config.spill.model.SpillBatch;
+import com.microservicesdemo.demo.kafka.producer.config.spill.model.SpilledRecord;
+import com.microservicesdemo.demo.kafka.producer.exception.KafkaProducerException;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.ResolvingDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// append only log of memory mapped segment files in spill-config.directory
+// appends are a copy into the mapped file, so spilling costs about the same as handing the record to the kafka producer.
+// the replay position is kept in a checkpoint file next to the segments, after a restart we continue where we stopped,
+// segments are deleted once they are replayed or when they are over the retention
+// payload of a record: [byte has key][long key][short topic length][topic utf8][value as avro binary]
+// the value is written and read with the custom coders of the generated model, the SpecificDatumReader would look up
+// the model class by the schema name, which is not the class we send
+@Component
+public class MappedSegmentSpillBuffer implements SpillBuffer {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedSegmentSpillBuffer.class);
+
+    private static final SampledLogger APPEND_ERROR_LOG = SampledLogger.perSecond(LOG, 1);
+
+    private static final String CHECKPOINT_FILE = "replay.checkpoint";
+
+    private static final long RETENTION_CHECK_INTERVAL_MS = 60000;
+
+    private final SpillConfigData spillConfigData;
+
+    private final TreeMap<Long, MappedSegment> segments = new TreeMap<>();
+
+    private Path directory;
+
+    private MappedSegment activeSegment;
+
+    // replay position, the next record to replay is at readOffset of segment readSegmentIndex
+    private long readSegmentIndex;
+
+    private int readOffset;
+
+    // records of the read segment before readOffset
+    private int readRecordsInSegment;
+
+    private volatile long pendingRecords;
+
+    private ScheduledExecutorService scheduler;
+
+    public MappedSegmentSpillBuffer(SpillConfigData spillConfigData) {
+        this.spillConfigData = spillConfigData;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        directory = Paths.get(spillConfigData.getDirectory());
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new KafkaProducerException("Could not open spill log in " + directory.toAbsolutePath(), e);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kafka-spill-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (getFsyncPolicy() == FsyncPolicy.INTERVAL) {
+            long fsyncIntervalMs = spillConfigData.getFsyncIntervalMs();
+            scheduler.scheduleWithFixedDelay(this::forceActiveSegment, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(this::applyRetentionTime, RETENTION_CHECK_INTERVAL_MS, RETENTION_CHECK_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        LOG.info("Opened spill log in {} with {} segments and {} records to replay",
+                directory.toAbsolutePath(), segments.size(), pendingRecords);
+    }
+
+    @PreDestroy
+    public synchronized void shutDown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        for (MappedSegment segment : segments.values()) {
+            try {
+                if (getFsyncPolicy() != FsyncPolicy.OS) {
+                    segment.force();
+                }
+                segment.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close spill segment {}", segment.getIndex(), e);
+            }
+        }
+        LOG.info("Closed spill log with {} records to replay", pendingRecords);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(spillConfigData.getEnabled());
+    }
+
+    @Override
+    public boolean shouldSpill(long inFlightRecords) {
+        return isEnabled() && (pendingRecords > 0 || inFlightRecords >= spillConfigData.getMaxInFlightRecords());
+    }
+
+    @Override
+    public boolean append(String topicName, Long key, TwitterAvroModel message) {
+        if (!isEnabled()) {
+            return false;
+        }
+        ByteBuffer payload;
+        try {
+            payload = encode(topicName, key, message);
+        } catch (IOException e) {
+            APPEND_ERROR_LOG.error("Could not encode record for the spill log", e);
+            return false;
+        }
+        synchronized (this) {
+            try {
+                if (!activeSegment.hasRoomFor(payload.remaining())) {
+                    if (MappedSegment.RECORD_HEADER_BYTES + payload.remaining() > spillConfigData.getSegmentSizeBytes()) {
+                        APPEND_ERROR_LOG.error("Record of {} bytes doesnt fit in a spill segment of {} bytes",
+                                payload.remaining(), spillConfigData.getSegmentSizeBytes());
+                        return false;
+                    }
+                    rollSegment();
+                }
+                activeSegment.append(payload);
+                if (getFsyncPolicy() == FsyncPolicy.EVERY_RECORD) {
+                    activeSegment.force();
+                }
+                pendingRecords++;
+                return true;
+            } catch (IOException e) {
+                APPEND_ERROR_LOG.error("Could not append record to the spill log", e);
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public long getPendingRecords() {
+        return pendingRecords;
+    }
+
+    @Override
+    public synchronized SpillBatch peek(int maxRecords) {
+        List<SpilledRecord> records = new ArrayList<>(Math.min(maxRecords, (int) Math.min(pendingRecords, Integer.MAX_VALUE)));
+        int consumed = 0;
+        long segmentIndex = readSegmentIndex;
+        int offset = readOffset;
+        int recordsInSegment = readRecordsInSegment;
+        while (isEnabled() && consumed < maxRecords) {
+            MappedSegment segment = segments.get(segmentIndex);
+            int length = segment == null ? 0 : segment.validRecordLength(offset);
+            if (length == 0) {
+                // end of this segment, only move on when the writer moved on, otherwise there is nothing more yet
+                Long nextIndex = segments.higherKey(segmentIndex);
+                if (nextIndex == null) {
+                    break;
+                }
+                if (segment != null && recordsInSegment < segment.getRecordCount()) {
+                    // a corrupt record, the rest of the segment can not be read
+                    LOG.warn("Skipping {} corrupt records of spill segment {}", segment.getRecordCount() - recordsInSegment, segmentIndex);
+                    consumed += segment.getRecordCount() - recordsInSegment;
+                }
+                segmentIndex = nextIndex;
+                offset = 0;
+                recordsInSegment = 0;
+                continue;
+            }
+            try {
+                records.add(decode(segment.payload(offset, length)));
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Skipping spilled record that could not be decoded", e);
+            }
+            offset += MappedSegment.RECORD_HEADER_BYTES + length;
+            recordsInSegment++;
+            consumed++;
+        }
+        return new SpillBatch(records, consumed, segmentIndex, offset, recordsInSegment);
+    }
+
+    @Override
+    public synchronized void commit(SpillBatch spillBatch) {
+        if (spillBatch.getSegmentIndex() < readSegmentIndex
+                || (spillBatch.getSegmentIndex() == readSegmentIndex && spillBatch.getRecordsInSegment() < readRecordsInSegment)) {
+            // the segments of this batch were deleted by the retention while it was replayed
+            return;
+        }
+        // only the records from the read position to the end of the batch are still pending. this is not
+        // getConsumedRecords() when the retention dropped the segment the batch started in while it was replayed,
+        // the dropped records were already taken off pendingRecords then, and counting them again would let
+        // pendingRecords reach 0 while there is still a spilled record to replay, so new records would overtake it
+        long replayedRecords = recordsBetweenReadPositionAnd(spillBatch.getSegmentIndex(), spillBatch.getRecordsInSegment());
+        readSegmentIndex = spillBatch.getSegmentIndex();
+        readOffset = spillBatch.getOffset();
+        readRecordsInSegment = spillBatch.getRecordsInSegment();
+        pendingRecords = Math.max(0, pendingRecords - replayedRecords);
+        // everything before the read segment is replayed
+        while (!segments.isEmpty() && segments.firstKey() < readSegmentIndex) {
+            deleteSegment(segments.pollFirstEntry().getValue());
+        }
+        writeCheckpoint();
+    }
+
+    // records from the read position up to the given position, counted with the record counts of the segments,
+    // like peek counts the corrupt records it skips
+    private long recordsBetweenReadPositionAnd(long segmentIndex, int recordsInSegment) {
+        long records = recordsInSegment - readRecordsInSegment;
+        for (MappedSegment segment : segments.subMap(readSegmentIndex, true, segmentIndex, false).values()) {
+            records += segment.getRecordCount();
+        }
+        return records;
+    }
+
+    private void recover() throws IOException {
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentFiles = files.filter(MappedSegment::isSegmentFile).sorted().collect(Collectors.toList());
+        }
+        for (Path segmentFile : segmentFiles) {
+            MappedSegment segment = MappedSegment.open(segmentFile);
+            segments.put(segment.getIndex(), segment);
+        }
+        if (segments.isEmpty()) {
+            activeSegment = MappedSegment.create(directory, 0, spillConfigData.getSegmentSizeBytes());
+            segments.put(0L, activeSegment);
+        } else {
+            activeSegment = segments.lastEntry().getValue();
+        }
+        readCheckpoint();
+        long pending = 0;
+        for (MappedSegment segment : segments.tailMap(readSegmentIndex, true).values()) {
+            pending += segment.getRecordCount();
+        }
+        pendingRecords = Math.max(0, pending - readRecordsInSegment);
+    }
+
+    private void readCheckpoint() throws IOException {
+        readSegmentIndex = segments.firstKey();
+        readOffset = 0;
+        readRecordsInSegment = 0;
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return;
+        }
+        String[] values = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim().split(" ");
+        long checkpointSegmentIndex = Long.parseLong(values[0]);
+        // the checkpoint segment may be gone when the retention deleted it, then we start at the oldest segment we have
+        if (segments.containsKey(checkpointSegmentIndex)) {
+            readSegmentIndex = checkpointSegmentIndex;
+            readOffset = Integer.parseInt(values[1]);
+            readRecordsInSegment = Integer.parseInt(values[2]);
+        }
+    }
+
+    // write to a temp file and move it, so a crash never leaves a half written checkpoint
+    private void writeCheckpoint() {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        Path tempCheckpoint = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        String value = readSegmentIndex + " " + readOffset + " " + readRecordsInSegment;
+        try {
+            Files.write(tempCheckpoint, value.getBytes(StandardCharsets.UTF_8));
+            Files.move(tempCheckpoint, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // after a restart we would replay some records again, kafka gets them twice but nothing is lost
+            LOG.warn("Could not write spill log checkpoint", e);
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        if (getFsyncPolicy() != FsyncPolicy.OS) {
+            activeSegment.force();
+        }
+        long nextIndex = activeSegment.getIndex() + 1;
+        activeSegment = MappedSegment.create(directory, nextIndex, spillConfigData.getSegmentSizeBytes());
+        segments.put(nextIndex, activeSegment);
+        applyRetentionBytes();
+    }
+
+    private void applyRetentionBytes() {
+        long totalBytes = segments.values().stream().mapToLong(MappedSegment::sizeBytes).sum();
+        while (totalBytes > spillConfigData.getRetentionBytes() && segments.size() > 1) {
+            MappedSegment oldest = segments.firstEntry().getValue();
+            totalBytes -= oldest.sizeBytes();
+            dropUnreplayedSegment(oldest, "retention-bytes");
+        }
+    }
+
+    private synchronized void applyRetentionTime() {
+        long oldestAllowed = System.currentTimeMillis() - spillConfigData.getRetentionMs();
+        while (segments.size() > 1 && segments.firstEntry().getValue().getLastAppendMillis() < oldestAllowed) {
+            dropUnreplayedSegment(segments.firstEntry().getValue(), "retention-ms");
+        }
+    }
+
+    private void dropUnreplayedSegment(MappedSegment segment, String reason) {
+        int unreplayed = segment.getIndex() < readSegmentIndex ? 0 :
+                segment.getIndex() == readSegmentIndex ? segment.getRecordCount() - readRecordsInSegment : segment.getRecordCount();
+        if (unreplayed > 0) {
+            LOG.warn("Dropping spill segment {} with {} records that were not replayed, it is over the {}",
+                    segment.getIndex(), unreplayed, reason);
+        }
+        segments.remove(segment.getIndex());
+        deleteSegment(segment);
+        pendingRecords = Math.max(0, pendingRecords - unreplayed);
+        if (segment.getIndex() >= readSegmentIndex) {
+            readSegmentIndex = segments.firstKey();
+            readOffset = 0;
+            readRecordsInSegment = 0;
+            writeCheckpoint();
+        }
+    }
+
+    private void deleteSegment(MappedSegment segment) {
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            LOG.warn("Could not delete spill segment {}", segment.getIndex(), e);
+        }
+    }
+
+    private synchronized void forceActiveSegment() {
+        activeSegment.force();
+    }
+
+    private FsyncPolicy getFsyncPolicy() {
+        return spillConfigData.getFsyncPolicy() == null ? FsyncPolicy.OS : spillConfigData.getFsyncPolicy();
+    }
+
+    private static ByteBuffer encode(String topicName, Long key, TwitterAvroModel message) throws IOException {
+        byte[] topicBytes = topicName.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        out.write(key == null ? 0 : 1);
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeLong(key == null ? 0 : key);
+        dataOut.writeShort(topicBytes.length);
+        dataOut.write(topicBytes);
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        message.customEncode(encoder);
+        encoder.flush();
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private static SpilledRecord decode(ByteBuffer payload) throws IOException {
+        boolean hasKey = payload.get() == 1;
+        long key = payload.getLong();
+        byte[] topicBytes = new byte[payload.getShort()];
+        payload.get(topicBytes);
+        byte[] value = new byte[payload.remaining()];
+        payload.get(value);
+        ResolvingDecoder decoder = DecoderFactory.get().resolvingDecoder(TwitterAvroModel.getClassSchema(),
+                TwitterAvroModel.getClassSchema(), DecoderFactory.get().binaryDecoder(value, null));
+        TwitterAvroModel message = new TwitterAvroModel();
+        message.customDecode(decoder);
+        return new SpilledRecord(new String(topicBytes, StandardCharsets.UTF_8), hasKey ? key : null, message);
+    }
+}
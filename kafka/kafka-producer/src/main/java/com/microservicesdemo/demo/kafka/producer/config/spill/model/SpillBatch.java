@@ -0,0 +1,46 @@
+package com.microservicesdemo.demo.kafka.producer.config.spill.model;
+
+import java.util.Collections;
+import java.util.List;
+
+// records read from the spill log, with the log position after them so the batch can be committed once kafka acked it
+public class SpillBatch {
+    private final List<SpilledRecord> records;
+
+    // records read from the log, can be more than records.size() when corrupt records were skipped
+    private final int consumedRecords;
+
+    private final long segmentIndex;
+
+    private final int offset;
+
+    private final int recordsInSegment;
+
+    public SpillBatch(List<SpilledRecord> records, int consumedRecords, long segmentIndex, int offset, int recordsInSegment) {
+        this.records = Collections.unmodifiableList(records);
+        this.consumedRecords = consumedRecords;
+        this.segmentIndex = segmentIndex;
+        this.offset = offset;
+        this.recordsInSegment = recordsInSegment;
+    }
+
+    public List<SpilledRecord> getRecords() {
+        return records;
+    }
+
+    public int getConsumedRecords() {
+        return consumedRecords;
+    }
+
+    public long getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getRecordsInSegment() {
+        return recordsInSegment;
+    }
+}
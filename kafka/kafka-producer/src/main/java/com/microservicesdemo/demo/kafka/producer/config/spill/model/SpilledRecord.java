@@ -0,0 +1,29 @@
+package com.microservicesdemo.demo.kafka.producer.config.spill.model;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+
+public class SpilledRecord {
+    private final String topicName;
+
+    private final Long key;
+
+    private final TwitterAvroModel message;
+
+    public SpilledRecord(String topicName, Long key, TwitterAvroModel message) {
+        this.topicName = topicName;
+        this.key = key;
+        this.message = message;
+    }
+
+    public String getTopicName() {
+        return topicName;
+    }
+
+    public Long getKey() {
+        return key;
+    }
+
+    public TwitterAvroModel getMessage() {
+        return message;
+    }
+}
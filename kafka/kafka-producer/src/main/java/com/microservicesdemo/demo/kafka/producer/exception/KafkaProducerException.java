@@ -0,0 +1,14 @@
+package com.microservicesdemo.demo.kafka.producer.exception;
+
+public class KafkaProducerException extends RuntimeException {
+    public KafkaProducerException() {
+    }
+
+    public KafkaProducerException(String message) {
+        super(message);
+    }
+
+    public KafkaProducerException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
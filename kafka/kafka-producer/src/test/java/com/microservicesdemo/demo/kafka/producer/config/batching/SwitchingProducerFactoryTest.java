@@ -0,0 +1,121 @@
+package com.microservicesdemo.demo.kafka.producer.config.batching;
+
+import com.microservicesdemo.demo.kafka.test.broker.EmbeddedKRaftBroker;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.LongDeserializer;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// switches the producer while a thread keeps sending records of one key, the partition must have them in send order
+public class SwitchingProducerFactoryTest {
+    private static final String TOPIC_NAME = "switching-topic";
+
+    private static final String KEY = "hot-user";
+
+    private static final int SWITCHES = 5;
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(30);
+
+    private static EmbeddedKRaftBroker broker;
+
+    @BeforeAll
+    public static void start() throws Exception {
+        broker = new EmbeddedKRaftBroker().start();
+        try (AdminClient adminClient = AdminClient.create(
+                Collections.singletonMap(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBootstrapServers()))) {
+            adminClient.createTopics(Collections.singletonList(new NewTopic(TOPIC_NAME, 1, (short) 1)))
+                    .all().get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    @AfterAll
+    public static void shutDown() {
+        broker.close();
+    }
+
+    @Test
+    public void keepsThePartitionOrderAcrossSwitches() throws Exception {
+        Map<String, Object> producerConfig = new HashMap<>();
+        producerConfig.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBootstrapServers());
+        producerConfig.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerConfig.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, LongSerializer.class);
+        producerConfig.put(ProducerConfig.ACKS_CONFIG, "all");
+        // a long linger keeps records in the accumulator of the old producer when we switch
+        producerConfig.put(ProducerConfig.LINGER_MS_CONFIG, 50);
+        SwitchingProducerFactory<String, Long> producerFactory = new SwitchingProducerFactory<>(producerConfig);
+
+        AtomicReference<Throwable> sendError = new AtomicReference<>();
+        long[] sent = new long[1];
+        Thread sender = new Thread(() -> {
+            long value = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                producerFactory.createProducer().send(new ProducerRecord<>(TOPIC_NAME, KEY, value++), (metadata, error) -> {
+                    if (error != null) {
+                        sendError.compareAndSet(null, error);
+                    }
+                });
+            }
+            sent[0] = value;
+        }, "switching-sender");
+        sender.start();
+        for (int i = 0; i < SWITCHES; i++) {
+            Thread.sleep(100);
+            Map<String, Object> overrides = new HashMap<>();
+            overrides.put(ProducerConfig.LINGER_MS_CONFIG, i % 2 == 0 ? 0 : 50);
+            producerFactory.switchTo(overrides, Duration.ofMillis(20));
+        }
+        sender.interrupt();
+        sender.join();
+        producerFactory.createProducer().flush();
+        producerFactory.destroy();
+        assertNull(sendError.get());
+
+        List<Long> consumed = consume(sent[0]);
+        assertEquals(sent[0], consumed.size());
+        for (int i = 0; i < consumed.size(); i++) {
+            assertEquals(i, consumed.get(i), "record at offset " + i);
+        }
+    }
+
+    private static List<Long> consume(long count) {
+        Map<String, Object> consumerConfig = new HashMap<>();
+        consumerConfig.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBootstrapServers());
+        consumerConfig.put(ConsumerConfig.GROUP_ID_CONFIG, "switching-consumer");
+        consumerConfig.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumerConfig.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 10_000);
+        List<Long> consumed = new ArrayList<>();
+        try (KafkaConsumer<String, Long> consumer = new KafkaConsumer<>(consumerConfig, new StringDeserializer(), new LongDeserializer())) {
+            consumer.subscribe(Collections.singletonList(TOPIC_NAME));
+            long deadlineNanos = System.nanoTime() + POLL_TIMEOUT.toNanos();
+            while (consumed.size() < count && System.nanoTime() - deadlineNanos < 0) {
+                for (ConsumerRecord<String, Long> record : consumer.poll(Duration.ofMillis(500))) {
+                    consumed.add(record.value());
+                }
+            }
+        }
+        return consumed;
+    }
+}
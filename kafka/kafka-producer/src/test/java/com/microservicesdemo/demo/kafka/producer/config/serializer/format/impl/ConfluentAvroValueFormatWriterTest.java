@@ -0,0 +1,148 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer.format.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroRecord;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.SchemaIdRegistry;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueBuffer;
+import com.microservicesdemo.demo.kafka.test.registry.InMemorySchemaRegistry;
+import org.apache.avro.Schema;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// our values read back like a consumer with KafkaAvroDeserializer does, the writer schema comes from the in memory registry
+public class ConfluentAvroValueFormatWriterTest {
+    private static final String TOPIC_NAME = "twitter-topic";
+
+    // the stock deserializer, loaded by name as the only confluent class the tests use, a build that only has the
+    // confluent api on the classpath (like an offline mirror with an empty jar) skips the tests that need it
+    private static final String KAFKA_AVRO_DESERIALIZER = "io.confluent.kafka.serializers.KafkaAvroDeserializer";
+
+    // more schemas than fit in one byte are registered first, so a schema id in the wrong byte order is a different id
+    private static final int OTHER_SCHEMAS = 300;
+
+    private static final int MAGIC_BYTE_AND_SCHEMA_ID_BYTES = 1 + Integer.BYTES;
+
+    private final InMemorySchemaRegistry schemaRegistry = new InMemorySchemaRegistry();
+
+    private final SchemaIdRegistry schemaIdRegistry = new SchemaIdRegistry();
+
+    private int schemaId;
+
+    @BeforeEach
+    public void start() {
+        schemaRegistry.start();
+        for (int i = 0; i < OTHER_SCHEMAS; i++) {
+            schemaRegistry.register("other-topic-value", "{\"type\":\"record\",\"name\":\"Other" + i + "\",\"fields\":[]}");
+        }
+        schemaId = schemaRegistry.register(SchemaIdRegistry.valueSubject(TOPIC_NAME), TwitterAvroModel.getClassSchema().toString());
+        schemaIdRegistry.register(TOPIC_NAME, schemaId);
+    }
+
+    @AfterEach
+    public void stop() {
+        schemaRegistry.close();
+    }
+
+    @Test
+    public void writesMagicByteAndBigEndianSchemaId() throws IOException {
+        byte[] value = write(model(1L, 2L, "text", 3L));
+
+        assertEquals(0, value[0]);
+        assertEquals(schemaId, ByteBuffer.wrap(value, 1, Integer.BYTES).getInt());
+    }
+
+    @Test
+    public void isReadBackByKafkaAvroDeserializer() throws IOException {
+        TwitterAvroModel message = model(42L, 1_234_567_890_123L, "a tweet with ünicode 😀", 1_600_000_000_000L);
+        byte[] value = write(message);
+
+        try (Deserializer<Object> kafkaAvroDeserializer = kafkaAvroDeserializer()) {
+            assertEquals(message, kafkaAvroDeserializer.deserialize(TOPIC_NAME, value));
+            assertEquals(model(7L, 8L, "pooled", 1_600_000_000_000L), kafkaAvroDeserializer.deserialize(TOPIC_NAME,
+                    write(new TwitterAvroRecord().set(7L, 8L, "pooled", 1_600_000_000_000L))));
+        }
+    }
+
+    // what KafkaAvroDeserializer does: the schema id picks the writer schema from the registry, the rest is avro binary
+    @Test
+    public void isDecodedWithTheRegisteredWriterSchema() throws IOException {
+        TwitterAvroModel message = model(42L, 1_234_567_890_123L, "a tweet with ünicode 😀", 1_600_000_000_000L);
+
+        assertEquals(message, readWithRegistrySchema(write(message)));
+    }
+
+    @Test
+    public void writesTheNullUnionBranches() throws IOException {
+        TwitterAvroModel read = readWithRegistrySchema(write(model(-1L, 0L, null, null)));
+
+        assertEquals(-1L, read.getUserId());
+        assertNull(read.getText());
+        assertNull(read.getCreatedAt());
+    }
+
+    @Test
+    public void writesAPooledRecord() throws IOException {
+        TwitterAvroRecord pooled = new TwitterAvroRecord().set(7L, 8L, "pooled", 1_600_000_000_000L);
+
+        assertEquals(model(7L, 8L, "pooled", 1_600_000_000_000L), readWithRegistrySchema(write(pooled)));
+    }
+
+    private byte[] write(TwitterAvroModel message) throws IOException {
+        ValueBuffer valueBuffer = new ValueBuffer();
+        new ConfluentAvroValueFormatWriter(schemaIdRegistry).write(TOPIC_NAME, message, valueBuffer);
+        return valueBuffer.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Deserializer<Object> kafkaAvroDeserializer() {
+        Deserializer<Object> deserializer;
+        try {
+            deserializer = (Deserializer<Object>) Class.forName(KAFKA_AVRO_DESERIALIZER).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            assumeTrue(false, KAFKA_AVRO_DESERIALIZER + " is not on the test classpath");
+            throw new IllegalStateException(e);
+        }
+        Map<String, Object> configs = new HashMap<>();
+        configs.put("schema.registry.url", schemaRegistry.getUrl());
+        configs.put("specific.avro.reader", true);
+        deserializer.configure(configs, false);
+        return deserializer;
+    }
+
+    private TwitterAvroModel readWithRegistrySchema(byte[] value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        assertEquals(0, buffer.get());
+        Schema writerSchema;
+        try (InputStream in = new URL(schemaRegistry.getUrl() + "/schemas/ids/" + buffer.getInt()).openStream()) {
+            writerSchema = new Schema.Parser().parse(new ObjectMapper().readTree(in).get("schema").asText());
+        }
+        SpecificDatumReader<TwitterAvroModel> reader = new SpecificDatumReader<>(writerSchema, TwitterAvroModel.getClassSchema());
+        return reader.read(null, DecoderFactory.get().binaryDecoder(value, MAGIC_BYTE_AND_SCHEMA_ID_BYTES,
+                value.length - MAGIC_BYTE_AND_SCHEMA_ID_BYTES, null));
+    }
+
+    static TwitterAvroModel model(long userId, long id, String text, Long createdAt) {
+        return TwitterAvroModel.newBuilder()
+                .setUserId(userId)
+                .setId(id)
+                .setText(text)
+                .setCreatedAt(createdAt)
+                .build();
+    }
+}
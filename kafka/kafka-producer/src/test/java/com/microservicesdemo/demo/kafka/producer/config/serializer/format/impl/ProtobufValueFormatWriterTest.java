@@ -0,0 +1,85 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer.format.impl;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.proto.model.TwitterProtoModel;
+import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroRecord;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueBuffer;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.jupiter.api.Test;
+
+import static com.microservicesdemo.demo.kafka.producer.config.serializer.format.impl.ConfluentAvroValueFormatWriterTest.model;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// our values parsed by the class protoc generates from twitter.proto, what a protobuf consumer uses
+public class ProtobufValueFormatWriterTest {
+    private static final String TOPIC_NAME = "twitter-topic";
+
+    @Test
+    public void isParsedByTheGeneratedClass() throws InvalidProtocolBufferException {
+        TwitterProtoModel parsed = TwitterProtoModel.parseFrom(
+                write(model(42L, 1_234_567_890_123L, "a tweet with ünicode 😀", 1_600_000_000_000L)));
+
+        assertEquals(42L, parsed.getUserId());
+        assertEquals(1_234_567_890_123L, parsed.getId());
+        assertTrue(parsed.hasText());
+        assertEquals("a tweet with ünicode 😀", parsed.getText());
+        assertTrue(parsed.hasCreatedAt());
+        assertEquals(1_600_000_000_000L, parsed.getCreatedAt());
+    }
+
+    // the same bytes as the generated message, with the optional fields left out when they are not set
+    @Test
+    public void writesTheSameBytesAsTheGeneratedClass() {
+        TwitterProtoModel expected = TwitterProtoModel.newBuilder()
+                .setUserId(5L)
+                .setId(6L)
+                .setText("same bytes")
+                .setCreatedAt(1_600_000_000_000L)
+                .build();
+
+        assertArrayEquals(expected.toByteArray(), write(model(5L, 6L, "same bytes", 1_600_000_000_000L)));
+        assertArrayEquals(TwitterProtoModel.newBuilder().setId(6L).build().toByteArray(), write(model(0L, 6L, null, null)));
+    }
+
+    @Test
+    public void leavesOutUnsetOptionalFields() throws InvalidProtocolBufferException {
+        TwitterProtoModel parsed = TwitterProtoModel.parseFrom(write(model(0L, 0L, null, null)));
+
+        assertEquals(TwitterProtoModel.getDefaultInstance(), parsed);
+        assertFalse(parsed.hasText());
+        assertFalse(parsed.hasCreatedAt());
+    }
+
+    // int64 takes 10 bytes for a negative value
+    @Test
+    public void writesNegativeValues() throws InvalidProtocolBufferException {
+        TwitterProtoModel parsed = TwitterProtoModel.parseFrom(write(model(-1L, Long.MIN_VALUE, "", -5L)));
+
+        assertEquals(-1L, parsed.getUserId());
+        assertEquals(Long.MIN_VALUE, parsed.getId());
+        assertTrue(parsed.hasText());
+        assertEquals("", parsed.getText());
+        assertEquals(-5L, parsed.getCreatedAt());
+    }
+
+    @Test
+    public void writesAPooledRecord() throws InvalidProtocolBufferException {
+        TwitterAvroRecord pooled = new TwitterAvroRecord().set(7L, 8L, "pooled", 1_600_000_000_000L);
+
+        TwitterProtoModel parsed = TwitterProtoModel.parseFrom(write(pooled));
+
+        assertEquals(7L, parsed.getUserId());
+        assertEquals(8L, parsed.getId());
+        assertEquals("pooled", parsed.getText());
+        assertEquals(1_600_000_000_000L, parsed.getCreatedAt());
+    }
+
+    private static byte[] write(TwitterAvroModel message) {
+        ValueBuffer valueBuffer = new ValueBuffer();
+        new ProtobufValueFormatWriter().write(TOPIC_NAME, message, valueBuffer);
+        return valueBuffer.toByteArray();
+    }
+}
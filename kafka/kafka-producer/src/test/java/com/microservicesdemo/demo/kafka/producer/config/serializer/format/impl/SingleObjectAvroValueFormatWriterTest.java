@@ -0,0 +1,70 @@
+package com.microservicesdemo.demo.kafka.producer.config.serializer.format.impl;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroRecord;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.format.ValueBuffer;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.specific.SpecificData;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.microservicesdemo.demo.kafka.producer.config.serializer.format.impl.ConfluentAvroValueFormatWriterTest.model;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// our values decoded the way a consumer without the registry does it, by the fingerprint of the schema
+public class SingleObjectAvroValueFormatWriterTest {
+    private static final String TOPIC_NAME = "twitter-topic";
+
+    private final BinaryMessageDecoder<TwitterAvroModel> decoder =
+            new BinaryMessageDecoder<>(SpecificData.get(), TwitterAvroModel.getClassSchema());
+
+    @Test
+    public void writesHeaderAndLittleEndianFingerprint() throws IOException {
+        ByteBuffer value = ByteBuffer.wrap(write(model(1L, 2L, "text", 3L))).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals((byte) 0xC3, value.get());
+        assertEquals((byte) 0x01, value.get());
+        assertEquals(SchemaNormalization.parsingFingerprint64(TwitterAvroModel.getClassSchema()), value.getLong());
+    }
+
+    @Test
+    public void isDecodedBySchemaFingerprint() throws IOException {
+        TwitterAvroModel message = model(42L, 1_234_567_890_123L, "a tweet with ünicode 😀", 1_600_000_000_000L);
+
+        assertEquals(message, decoder.decode(write(message)));
+    }
+
+    @Test
+    public void writesTheNullUnionBranches() throws IOException {
+        TwitterAvroModel message = model(-1L, 0L, null, null);
+
+        assertEquals(message, decoder.decode(write(message)));
+    }
+
+    // the same bytes as the generated encoder, the reference implementation of the format
+    @Test
+    public void writesTheSameBytesAsTheGeneratedEncoder() throws IOException {
+        TwitterAvroModel message = model(5L, 6L, "same bytes", 1_600_000_000_000L);
+
+        ByteBuffer expected = TwitterAvroModel.getEncoder().encode(message);
+
+        assertEquals(expected, ByteBuffer.wrap(write(message)));
+    }
+
+    @Test
+    public void writesAPooledRecord() throws IOException {
+        TwitterAvroRecord pooled = new TwitterAvroRecord().set(7L, 8L, "pooled", 1_600_000_000_000L);
+
+        assertEquals(model(7L, 8L, "pooled", 1_600_000_000_000L), decoder.decode(write(pooled)));
+    }
+
+    private static byte[] write(TwitterAvroModel message) throws IOException {
+        ValueBuffer valueBuffer = new ValueBuffer();
+        new SingleObjectAvroValueFormatWriter().write(TOPIC_NAME, message, valueBuffer);
+        return valueBuffer.toByteArray();
+    }
+}
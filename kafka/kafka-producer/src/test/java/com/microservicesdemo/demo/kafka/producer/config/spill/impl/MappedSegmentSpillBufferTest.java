@@ -0,0 +1,229 @@
+package com.microservicesdemo.demo.kafka.producer.config.spill.impl;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.config.SpillConfigData;
+import com.microservicesdemo.demo.config.SpillConfigData.FsyncPolicy;
+import com.microservicesdemo.demo.kafka.producer.config.spill.model.SpillBatch;
+import com.microservicesdemo.demo.kafka.producer.config.spill.model.SpilledRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the spill log against real segment files in a temp directory, no kafka needed
+// the segments are small, so a few records roll them and the retention kicks in
+public class MappedSegmentSpillBufferTest {
+    private static final String TOPIC_NAME = "twitter-topic";
+
+    private static final int SEGMENT_SIZE_BYTES = 1024;
+
+    // the ids have the same varint length, so every record has the same size
+    private static final long FIRST_ID = 1_000_000;
+
+    @TempDir
+    Path directory;
+
+    private final List<MappedSegmentSpillBuffer> spillBuffers = new ArrayList<>();
+
+    private long nextId = FIRST_ID;
+
+    @AfterEach
+    public void shutDown() {
+        spillBuffers.forEach(MappedSegmentSpillBuffer::shutDown);
+    }
+
+    @Test
+    public void replaysRecordsInOrder() {
+        MappedSegmentSpillBuffer spillBuffer = open(Long.MAX_VALUE);
+        appendUntilSegment(spillBuffer, 2);
+        long appended = nextId - FIRST_ID;
+        assertEquals(appended, spillBuffer.getPendingRecords());
+
+        List<Long> replayedIds = new ArrayList<>();
+        SpillBatch spillBatch;
+        while ((spillBatch = spillBuffer.peek(4)).getConsumedRecords() > 0) {
+            spillBatch.getRecords().forEach(record -> replayedIds.add(record.getMessage().getId()));
+            spillBuffer.commit(spillBatch);
+        }
+
+        assertEquals(ids(FIRST_ID, nextId), replayedIds);
+        assertEquals(0, spillBuffer.getPendingRecords());
+        assertFalse(spillBuffer.shouldSpill(0));
+    }
+
+    // the replay peeks a batch from segment 0 into segment 1, then an append rolls a segment and the retention drops
+    // segment 0 before the batch is committed. the commit must only take the records of segment 1 off the pending count
+    @Test
+    public void commitAfterRetentionDroppedTheReadSegmentKeepsTheRestPending() {
+        MappedSegmentSpillBuffer spillBuffer = open(2L * SEGMENT_SIZE_BYTES);
+        appendUntilSegment(spillBuffer, 1);
+        long firstIdOfSegment1 = nextId - 1;
+        long recordsInSegment0 = firstIdOfSegment1 - FIRST_ID;
+        append(spillBuffer);
+        append(spillBuffer);
+
+        SpillBatch spillBatch = spillBuffer.peek((int) recordsInSegment0 + 2);
+        assertEquals(recordsInSegment0 + 2, spillBatch.getRecords().size());
+
+        // the third segment puts the log over retention-bytes, segment 0 is dropped with its unreplayed records
+        appendUntilSegment(spillBuffer, 2);
+        long recordsAfterRetention = nextId - firstIdOfSegment1;
+        assertEquals(recordsAfterRetention, spillBuffer.getPendingRecords());
+
+        spillBuffer.commit(spillBatch);
+
+        assertEquals(recordsAfterRetention - 2, spillBuffer.getPendingRecords());
+        assertTrue(spillBuffer.shouldSpill(0));
+        SpillBatch rest = spillBuffer.peek(Integer.MAX_VALUE);
+        assertEquals(ids(firstIdOfSegment1 + 2, nextId), ids(rest));
+    }
+
+    @Test
+    public void recoversTheReplayPositionFromTheCheckpoint() {
+        MappedSegmentSpillBuffer spillBuffer = open(Long.MAX_VALUE);
+        for (int i = 0; i < 10; i++) {
+            append(spillBuffer);
+        }
+        spillBuffer.commit(spillBuffer.peek(4));
+        // replayed but not committed when the process dies, these are replayed again after the restart
+        spillBuffer.peek(3);
+
+        // no shutDown, a crashed jvm leaves the mapped pages and the checkpoint as they are
+        MappedSegmentSpillBuffer recovered = open(Long.MAX_VALUE);
+
+        assertEquals(6, recovered.getPendingRecords());
+        assertTrue(recovered.shouldSpill(0));
+        assertEquals(ids(FIRST_ID + 4, FIRST_ID + 10), ids(recovered.peek(Integer.MAX_VALUE)));
+    }
+
+    @Test
+    public void recoversSegmentsThatWereNotReplayedYet() {
+        MappedSegmentSpillBuffer spillBuffer = open(Long.MAX_VALUE);
+        appendUntilSegment(spillBuffer, 1);
+        append(spillBuffer);
+
+        MappedSegmentSpillBuffer recovered = open(Long.MAX_VALUE);
+
+        assertEquals(nextId - FIRST_ID, recovered.getPendingRecords());
+        assertEquals(ids(FIRST_ID, nextId), ids(recovered.peek(Integer.MAX_VALUE)));
+        // the recovered log appends to its last segment
+        append(recovered);
+        assertEquals(nextId - FIRST_ID, recovered.getPendingRecords());
+    }
+
+    // a record with a broken crc ends its segment, the length of the records after it can not be trusted
+    @Test
+    public void skipsTheRestOfASegmentAfterACorruptRecord() throws IOException {
+        MappedSegmentSpillBuffer spillBuffer = open(Long.MAX_VALUE);
+        appendUntilSegment(spillBuffer, 1);
+        long firstIdOfSegment1 = nextId - 1;
+        append(spillBuffer);
+        corruptRecord(0, 2);
+
+        SpillBatch spillBatch = spillBuffer.peek(Integer.MAX_VALUE);
+
+        List<Long> expectedIds = ids(FIRST_ID, FIRST_ID + 2);
+        expectedIds.addAll(ids(firstIdOfSegment1, nextId));
+        assertEquals(expectedIds, ids(spillBatch));
+        assertEquals(nextId - FIRST_ID, spillBatch.getConsumedRecords());
+        spillBuffer.commit(spillBatch);
+        assertEquals(0, spillBuffer.getPendingRecords());
+        assertFalse(spillBuffer.shouldSpill(0));
+    }
+
+    // after a restart the segment ends at the corrupt record, the records before it are still replayed
+    @Test
+    public void recoversTheRecordsBeforeACorruptRecord() throws IOException {
+        MappedSegmentSpillBuffer spillBuffer = open(Long.MAX_VALUE);
+        for (int i = 0; i < 5; i++) {
+            append(spillBuffer);
+        }
+        corruptRecord(0, 3);
+
+        MappedSegmentSpillBuffer recovered = open(Long.MAX_VALUE);
+
+        assertEquals(3, recovered.getPendingRecords());
+        assertEquals(ids(FIRST_ID, FIRST_ID + 3), ids(recovered.peek(Integer.MAX_VALUE)));
+    }
+
+    private MappedSegmentSpillBuffer open(long retentionBytes) {
+        SpillConfigData spillConfigData = new SpillConfigData();
+        spillConfigData.setEnabled(true);
+        spillConfigData.setDirectory(directory.toString());
+        spillConfigData.setSegmentSizeBytes(SEGMENT_SIZE_BYTES);
+        spillConfigData.setFsyncPolicy(FsyncPolicy.OS);
+        spillConfigData.setRetentionMs(Long.MAX_VALUE);
+        spillConfigData.setRetentionBytes(retentionBytes);
+        spillConfigData.setMaxInFlightRecords(1000L);
+        MappedSegmentSpillBuffer spillBuffer = new MappedSegmentSpillBuffer(spillConfigData);
+        spillBuffer.start();
+        spillBuffers.add(spillBuffer);
+        return spillBuffer;
+    }
+
+    private void append(MappedSegmentSpillBuffer spillBuffer) {
+        long id = nextId++;
+        TwitterAvroModel message = TwitterAvroModel.newBuilder()
+                .setId(id)
+                .setUserId(id % 100)
+                .setText("spilled tweet number " + id)
+                .setCreatedAt(1_600_000_000_000L + id)
+                .build();
+        assertTrue(spillBuffer.append(TOPIC_NAME, id, message));
+    }
+
+    // appends until the record that rolled the log to the segment, that record is the first of the segment
+    private void appendUntilSegment(MappedSegmentSpillBuffer spillBuffer, long segmentIndex) {
+        while (!Files.exists(directory.resolve(MappedSegment.fileName(segmentIndex)))) {
+            append(spillBuffer);
+        }
+    }
+
+    // flips a payload byte of a record through the file, the mapping of the spill buffer sees the same page
+    private void corruptRecord(long segmentIndex, int recordIndex) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(directory.resolve(MappedSegment.fileName(segmentIndex)),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(MappedSegment.RECORD_HEADER_BYTES);
+            long position = 0;
+            for (int i = 0; i < recordIndex; i++) {
+                header.clear();
+                fileChannel.read(header, position);
+                position += MappedSegment.RECORD_HEADER_BYTES + header.getInt(0);
+            }
+            ByteBuffer payloadByte = ByteBuffer.allocate(1);
+            long payloadPosition = position + MappedSegment.RECORD_HEADER_BYTES;
+            fileChannel.read(payloadByte, payloadPosition);
+            payloadByte.put(0, (byte) ~payloadByte.get(0));
+            payloadByte.rewind();
+            fileChannel.write(payloadByte, payloadPosition);
+        }
+    }
+
+    private static List<Long> ids(long fromInclusive, long toExclusive) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = fromInclusive; id < toExclusive; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static List<Long> ids(SpillBatch spillBatch) {
+        return spillBatch.getRecords().stream()
+                .map(SpilledRecord::getMessage)
+                .map(TwitterAvroModel::getId)
+                .collect(Collectors.toList());
+    }
+}
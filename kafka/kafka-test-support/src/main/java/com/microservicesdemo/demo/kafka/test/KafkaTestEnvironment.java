@@ -0,0 +1,58 @@
+package com.microservicesdemo.demo.kafka.test;
+
+import com.microservicesdemo.demo.kafka.test.broker.EmbeddedKRaftBroker;
+import com.microservicesdemo.demo.kafka.test.registry.InMemorySchemaRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// the embedded broker and the schema registry stand in together, what docker-compose/kafka_cluster.yml gives us
+// but in this jvm, so integration and load tests of the whole pipeline run offline on one machine, eg.
+//   try (KafkaTestEnvironment environment = new KafkaTestEnvironment().start()) {
+//       new SpringApplicationBuilder(TwitterToKafkaServiceApplication.class).properties(environment.springProperties()).run();
+//   }
+// or with @DynamicPropertySource in a spring boot test
+public class KafkaTestEnvironment implements AutoCloseable {
+    private final EmbeddedKRaftBroker broker;
+
+    private final InMemorySchemaRegistry schemaRegistry;
+
+    public KafkaTestEnvironment() {
+        this(new EmbeddedKRaftBroker(), new InMemorySchemaRegistry());
+    }
+
+    public KafkaTestEnvironment(EmbeddedKRaftBroker broker, InMemorySchemaRegistry schemaRegistry) {
+        this.broker = broker;
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    public KafkaTestEnvironment start() {
+        schemaRegistry.start();
+        broker.start();
+        return this;
+    }
+
+    public EmbeddedKRaftBroker getBroker() {
+        return broker;
+    }
+
+    public InMemorySchemaRegistry getSchemaRegistry() {
+        return schemaRegistry;
+    }
+
+    // the kafka-config properties pointing the services to this environment, on top of the config server ones
+    // there is only one broker, so the topics are created with one replica
+    public Map<String, Object> springProperties() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("kafka-config.bootstrap-servers", broker.getBootstrapServers());
+        properties.put("kafka-config.schema-registry-url", schemaRegistry.getUrl());
+        properties.put("kafka-config.replication-factor", 1);
+        return properties;
+    }
+
+    @Override
+    public void close() {
+        broker.close();
+        schemaRegistry.close();
+    }
+}
@@ -0,0 +1,196 @@
+package com.microservicesdemo.demo.kafka.test.broker;
+
+import com.microservicesdemo.demo.kafka.test.exception.KafkaTestSupportException;
+import kafka.server.KafkaConfig;
+import kafka.server.KafkaRaftServer;
+import kafka.server.MetaProperties;
+import kafka.utils.ShutdownableThread;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.common.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.Option;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// a single kafka node running in this jvm, it is broker and controller at once, so there is no zookeeper
+// the metadata quorum is this one node and all internal topics have one replica, so topics for it
+// need replication-factor 1 (see KafkaTestEnvironment.springProperties)
+// idempotent and transactional producers work, the transaction state log is created with one replica as well
+// every start gets a new temp log dir and new ports, close deletes the log dir again
+public class EmbeddedKRaftBroker implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddedKRaftBroker.class);
+
+    private static final int NODE_ID = 1;
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final String RAFT_EXPIRATION_REAPER = "raft-expiration-reaper";
+
+    // applied last, eg. num.partitions or log.retention.ms for a load run
+    private final Map<String, Object> configOverrides;
+
+    private KafkaRaftServer server;
+
+    private Path logDir;
+
+    private String bootstrapServers;
+
+    // kafka 3.0 doesnt stop the expiration reaper thread of the raft client on shutdown, and it is no daemon thread,
+    // so it would keep the jvm of a load run alive. we stop the one our server started ourselves
+    private final List<ShutdownableThread> raftExpirationReapers = new ArrayList<>();
+
+    public EmbeddedKRaftBroker() {
+        this(Collections.emptyMap());
+    }
+
+    public EmbeddedKRaftBroker(Map<String, Object> configOverrides) {
+        this.configOverrides = new HashMap<>(configOverrides);
+    }
+
+    // formats the log dir, starts the node and waits until clients can talk to it
+    public synchronized EmbeddedKRaftBroker start() {
+        if (server != null) {
+            return this;
+        }
+        try {
+            logDir = Files.createTempDirectory("embedded-kraft-");
+            // the ports are free when we look at them, a test running next to us could still take one before the broker binds it
+            int brokerPort = freePort();
+            int controllerPort = freePort();
+            KafkaConfig kafkaConfig = new KafkaConfig(brokerConfig(brokerPort, controllerPort), false);
+            // what kafka-storage.sh format does, a kraft node refuses to start on a log dir without meta.properties
+            writeMetaProperties(new MetaProperties(Uuid.randomUuid().toString(), NODE_ID));
+            List<ShutdownableThread> reapersBefore = raftExpirationReapers();
+            server = new KafkaRaftServer(kafkaConfig, Time.SYSTEM, Option.apply("embedded-kraft"));
+            server.startup();
+            raftExpirationReapers.addAll(raftExpirationReapers());
+            raftExpirationReapers.removeAll(reapersBefore);
+            bootstrapServers = "localhost:" + brokerPort;
+            awaitBrokerReady();
+            LOG.info("Embedded kafka broker started on {} with log dir {}", bootstrapServers, logDir);
+            return this;
+        } catch (IOException e) {
+            close();
+            throw new KafkaTestSupportException("Could not start the embedded kafka broker", e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public String getBootstrapServers() {
+        if (bootstrapServers == null) {
+            throw new KafkaTestSupportException("Embedded kafka broker is not started");
+        }
+        return bootstrapServers;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.shutdown();
+            server.awaitShutdown();
+            server = null;
+            LOG.info("Embedded kafka broker on {} stopped", bootstrapServers);
+        }
+        raftExpirationReapers.forEach(ShutdownableThread::shutdown);
+        raftExpirationReapers.clear();
+        bootstrapServers = null;
+        if (logDir != null) {
+            try {
+                Utils.delete(logDir.toFile());
+            } catch (IOException e) {
+                LOG.warn("Could not delete the log dir {} of the embedded kafka broker", logDir, e);
+            }
+            logDir = null;
+        }
+    }
+
+    private Properties brokerConfig(int brokerPort, int controllerPort) {
+        Properties props = new Properties();
+        props.put("process.roles", "broker,controller");
+        props.put("node.id", String.valueOf(NODE_ID));
+        props.put("controller.quorum.voters", NODE_ID + "@localhost:" + controllerPort);
+        props.put("listeners", "PLAINTEXT://localhost:" + brokerPort + ",CONTROLLER://localhost:" + controllerPort);
+        props.put("advertised.listeners", "PLAINTEXT://localhost:" + brokerPort);
+        props.put("listener.security.protocol.map", "PLAINTEXT:PLAINTEXT,CONTROLLER:PLAINTEXT");
+        props.put("controller.listener.names", "CONTROLLER");
+        props.put("inter.broker.listener.name", "PLAINTEXT");
+        props.put("log.dirs", logDir.toAbsolutePath().toString());
+        // one node, so every internal topic gets one replica, and fewer partitions make the first group or transaction faster
+        props.put("offsets.topic.replication.factor", "1");
+        props.put("offsets.topic.num.partitions", "1");
+        props.put("transaction.state.log.replication.factor", "1");
+        props.put("transaction.state.log.min.isr", "1");
+        props.put("transaction.state.log.num.partitions", "1");
+        props.put("group.initial.rebalance.delay.ms", "0");
+        configOverrides.forEach((key, value) -> props.put(key, String.valueOf(value)));
+        return props;
+    }
+
+    private void writeMetaProperties(MetaProperties metaProperties) throws IOException {
+        try (OutputStream out = Files.newOutputStream(logDir.resolve("meta.properties"))) {
+            metaProperties.toProperties().store(out, null);
+        }
+    }
+
+    // startup returns once the node runs, we wait until the broker registered with the controller and serves metadata
+    private void awaitBrokerReady() {
+        Map<String, Object> adminConfig = Collections.singletonMap(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        long deadlineNanos = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        try (AdminClient adminClient = AdminClient.create(adminConfig)) {
+            while (true) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                if (remainingMs <= 0) {
+                    throw new KafkaTestSupportException("Embedded kafka broker did not get ready in " + STARTUP_TIMEOUT);
+                }
+                try {
+                    if (!adminClient.describeCluster().nodes().get(remainingMs, TimeUnit.MILLISECONDS).isEmpty()) {
+                        return;
+                    }
+                } catch (ExecutionException | TimeoutException e) {
+                    LOG.debug("Embedded kafka broker is not ready yet: {}", e.getMessage());
+                }
+                // after a failure as well, a refused connection fails right away and we would spin on it until the deadline
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaTestSupportException("Interrupted while waiting for the embedded kafka broker", e);
+        }
+    }
+
+    private static List<ShutdownableThread> raftExpirationReapers() {
+        List<ShutdownableThread> reapers = new ArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread instanceof ShutdownableThread && RAFT_EXPIRATION_REAPER.equals(thread.getName())) {
+                reapers.add((ShutdownableThread) thread);
+            }
+        }
+        return reapers;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.microservicesdemo.demo.kafka.test.exception;
+
+public class KafkaTestSupportException extends RuntimeException {
+    public KafkaTestSupportException() {
+    }
+
+    public KafkaTestSupportException(String message) {
+        super(message);
+    }
+
+    public KafkaTestSupportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,286 @@
+package com.microservicesdemo.demo.kafka.test.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservicesdemo.demo.kafka.test.exception.KafkaTestSupportException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// stand in for the confluent schema registry, the schemas only live in this object
+// it answers the calls our services and the confluent avro serializers make:
+//   GET  /                                      probe of KafkaAdminClient.checkSchemaRegistry
+//   POST /subjects/{subject}/versions           register (KafkaAdminClient.registerSchema, KafkaAvroSerializer auto.register.schemas)
+//   POST /subjects/{subject}                    look up the id of a schema (KafkaAvroSerializer with auto.register.schemas false)
+//   GET  /subjects, /subjects/{subject}/versions, /subjects/{subject}/versions/{version|latest}
+//   GET  /schemas/ids/{id}                      what KafkaAvroDeserializer reads for an unknown id
+// like the real registry the same schema gets the same id in every subject and registering it again is a no op,
+// but there is no compatibility check, every new schema becomes the next version of its subject
+public class InMemorySchemaRegistry implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(InMemorySchemaRegistry.class);
+
+    private static final String CONTENT_TYPE = "application/vnd.schemaregistry.v1+json";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // schemas are compared as parsed json, so whitespace and formatting dont give a schema a new id
+    private final Map<JsonNode, Integer> idsBySchema = new HashMap<>();
+
+    private final Map<Integer, String> schemasById = new HashMap<>();
+
+    // ids of the versions of a subject, version n is at index n - 1
+    private final Map<String, List<Integer>> versionsBySubject = new LinkedHashMap<>();
+
+    private HttpServer httpServer;
+
+    // binds a free port on localhost and starts answering
+    public synchronized InMemorySchemaRegistry start() {
+        if (httpServer != null) {
+            return this;
+        }
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new KafkaTestSupportException("Could not start the in memory schema registry", e);
+        }
+        httpServer.createContext("/", this::handle);
+        httpServer.start();
+        LOG.info("In memory schema registry started on {}", getUrl());
+        return this;
+    }
+
+    public synchronized String getUrl() {
+        if (httpServer == null) {
+            throw new KafkaTestSupportException("In memory schema registry is not started");
+        }
+        return "http://localhost:" + httpServer.getAddress().getPort();
+    }
+
+    // for assertions, the id the latest version of the subject got, or null for an unknown subject
+    public synchronized Integer getLatestId(String subject) {
+        List<Integer> versions = versionsBySubject.get(subject);
+        return versions == null ? null : versions.get(versions.size() - 1);
+    }
+
+    public synchronized List<String> getSubjects() {
+        return new ArrayList<>(versionsBySubject.keySet());
+    }
+
+    // registers the schema under the subject and returns its id, the same as a POST /subjects/{subject}/versions
+    public synchronized int register(String subject, String schema) {
+        JsonNode parsedSchema = parseSchema(schema);
+        List<Integer> versions = versionsBySubject.computeIfAbsent(subject, s -> new ArrayList<>());
+        Integer id = idsBySchema.get(parsedSchema);
+        if (id == null) {
+            id = schemasById.size() + 1;
+            idsBySchema.put(parsedSchema, id);
+            schemasById.put(id, schema);
+        }
+        if (!versions.contains(id)) {
+            versions.add(id);
+        }
+        return id;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        // HttpExchange is only AutoCloseable from java 14 on
+        try {
+            String[] path = pathSegments(exchange);
+            String method = exchange.getRequestMethod();
+            try {
+                if (path.length == 0) {
+                    respond(exchange, 200, Collections.emptyMap());
+                } else if ("subjects".equals(path[0])) {
+                    handleSubjects(exchange, method, path);
+                } else if ("schemas".equals(path[0]) && path.length == 3 && "ids".equals(path[1]) && "GET".equals(method)) {
+                    handleSchemaById(exchange, path[2]);
+                } else {
+                    respondError(exchange, 404, 404, "Not found: " + method + " " + exchange.getRequestURI().getPath());
+                }
+            } catch (KafkaTestSupportException e) {
+                // the body was no json or no schema
+                respondError(exchange, 422, 42201, e.getMessage());
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleSubjects(HttpExchange exchange, String method, String[] path) throws IOException {
+        if (path.length == 1 && "GET".equals(method)) {
+            respond(exchange, 200, getSubjects());
+            return;
+        }
+        String subject = path[1];
+        if (path.length == 2 && "POST".equals(method)) {
+            lookUpSchema(exchange, subject);
+            return;
+        }
+        if (path.length == 3 && "versions".equals(path[2]) && "POST".equals(method)) {
+            int id = register(subject, readSchema(exchange));
+            LOG.debug("Registered schema id {} for subject {}", id, subject);
+            respond(exchange, 200, Collections.singletonMap("id", id));
+            return;
+        }
+        if (path.length >= 3 && "versions".equals(path[2]) && "GET".equals(method)) {
+            List<Integer> versions;
+            synchronized (this) {
+                versions = versionsBySubject.get(subject);
+                versions = versions == null ? null : new ArrayList<>(versions);
+            }
+            if (versions == null) {
+                respondError(exchange, 404, 40401, "Subject '" + subject + "' not found.");
+            } else if (path.length == 3) {
+                List<Integer> versionNumbers = new ArrayList<>();
+                for (int i = 1; i <= versions.size(); i++) {
+                    versionNumbers.add(i);
+                }
+                respond(exchange, 200, versionNumbers);
+            } else {
+                respondVersion(exchange, subject, versions, path[3]);
+            }
+            return;
+        }
+        respondError(exchange, 405, 405, "Method not allowed: " + method + " " + exchange.getRequestURI().getPath());
+    }
+
+    private void respondVersion(HttpExchange exchange, String subject, List<Integer> versions, String versionParam) throws IOException {
+        int version;
+        if ("latest".equals(versionParam)) {
+            version = versions.size();
+        } else {
+            try {
+                version = Integer.parseInt(versionParam);
+            } catch (NumberFormatException e) {
+                respondError(exchange, 422, 42202, "Invalid version " + versionParam);
+                return;
+            }
+        }
+        if (version < 1 || version > versions.size()) {
+            respondError(exchange, 404, 40402, "Version " + versionParam + " not found.");
+            return;
+        }
+        respond(exchange, 200, subjectVersion(subject, version, versions.get(version - 1)));
+    }
+
+    private void lookUpSchema(HttpExchange exchange, String subject) throws IOException {
+        JsonNode parsedSchema = parseSchema(readSchema(exchange));
+        Map<String, Object> response = null;
+        synchronized (this) {
+            List<Integer> versions = versionsBySubject.get(subject);
+            Integer id = idsBySchema.get(parsedSchema);
+            if (versions == null) {
+                respondError(exchange, 404, 40401, "Subject '" + subject + "' not found.");
+                return;
+            }
+            if (id != null && versions.contains(id)) {
+                response = subjectVersion(subject, versions.indexOf(id) + 1, id);
+            }
+        }
+        if (response == null) {
+            respondError(exchange, 404, 40403, "Schema not found");
+            return;
+        }
+        respond(exchange, 200, response);
+    }
+
+    private void handleSchemaById(HttpExchange exchange, String idParam) throws IOException {
+        String schema;
+        try {
+            synchronized (this) {
+                schema = schemasById.get(Integer.parseInt(idParam));
+            }
+        } catch (NumberFormatException e) {
+            schema = null;
+        }
+        if (schema == null) {
+            respondError(exchange, 404, 40403, "Schema " + idParam + " not found");
+            return;
+        }
+        respond(exchange, 200, Collections.singletonMap("schema", schema));
+    }
+
+    private synchronized Map<String, Object> subjectVersion(String subject, int version, int id) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("subject", subject);
+        response.put("version", version);
+        response.put("id", id);
+        response.put("schema", schemasById.get(id));
+        return response;
+    }
+
+    // the body is {"schema": "<avsc json as a string>"}, newer clients add schemaType and references which we ignore
+    private static String readSchema(HttpExchange exchange) throws IOException {
+        JsonNode body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = OBJECT_MAPPER.readTree(in);
+        } catch (IOException e) {
+            throw new KafkaTestSupportException("Request body is not json: " + e.getMessage());
+        }
+        if (body == null || !body.hasNonNull("schema")) {
+            throw new KafkaTestSupportException("Request body has no schema");
+        }
+        return body.get("schema").asText();
+    }
+
+    private static JsonNode parseSchema(String schema) {
+        try {
+            return OBJECT_MAPPER.readTree(schema);
+        } catch (IOException e) {
+            throw new KafkaTestSupportException("Invalid schema: " + e.getMessage());
+        }
+    }
+
+    // the path without the leading slash, split and url decoded, subjects like twitter-topic-value need no decoding
+    // but a subject may contain any character
+    private static String[] pathSegments(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getRawPath();
+        String[] segments = path.replaceAll("^/+|/+$", "").split("/");
+        if (segments.length == 1 && segments[0].isEmpty()) {
+            return new String[0];
+        }
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = URLDecoder.decode(segments[i], StandardCharsets.UTF_8);
+        }
+        return segments;
+    }
+
+    private static void respondError(HttpExchange exchange, int status, int errorCode, String message) throws IOException {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error_code", errorCode);
+        error.put("message", message);
+        respond(exchange, status, error);
+    }
+
+    private static void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.microservicesdemo.demo.kafka.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// starts the broker and the registry once for all tests, a kraft node takes a few seconds to come up
+public class KafkaTestEnvironmentTest {
+    private static final String TOPIC_NAME = "round-trip-topic";
+
+    private static final int RECORD_COUNT = 100;
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static KafkaTestEnvironment environment;
+
+    @BeforeAll
+    public static void start() {
+        environment = new KafkaTestEnvironment().start();
+    }
+
+    @AfterAll
+    public static void shutDown() {
+        environment.close();
+    }
+
+    // acks all and the idempotent producer, what the services use, need the internal topics with one replica
+    @Test
+    public void consumesWhatWasProduced() throws Exception {
+        String bootstrapServers = environment.getBroker().getBootstrapServers();
+        try (AdminClient adminClient = AdminClient.create(
+                Collections.singletonMap(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers))) {
+            adminClient.createTopics(Collections.singletonList(new NewTopic(TOPIC_NAME, 3, (short) 1)))
+                    .all().get(30, TimeUnit.SECONDS);
+        }
+
+        Map<String, Object> producerConfig = new HashMap<>();
+        producerConfig.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        producerConfig.put(ProducerConfig.ACKS_CONFIG, "all");
+        producerConfig.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(producerConfig, new StringSerializer(), new StringSerializer())) {
+            for (int i = 0; i < RECORD_COUNT; i++) {
+                RecordMetadata metadata = producer.send(new ProducerRecord<>(TOPIC_NAME, "key-" + i, "tweet " + i))
+                        .get(30, TimeUnit.SECONDS);
+                assertEquals(TOPIC_NAME, metadata.topic());
+            }
+        }
+
+        Map<String, Object> consumerConfig = new HashMap<>();
+        consumerConfig.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        consumerConfig.put(ConsumerConfig.GROUP_ID_CONFIG, "round-trip-consumer");
+        consumerConfig.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        Map<String, String> consumed = new HashMap<>();
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerConfig, new StringDeserializer(), new StringDeserializer())) {
+            consumer.subscribe(Collections.singletonList(TOPIC_NAME));
+            long deadlineNanos = System.nanoTime() + POLL_TIMEOUT.toNanos();
+            while (consumed.size() < RECORD_COUNT && System.nanoTime() - deadlineNanos < 0) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(500))) {
+                    consumed.put(record.key(), record.value());
+                }
+            }
+        }
+
+        assertEquals(RECORD_COUNT, consumed.size());
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            assertEquals("tweet " + i, consumed.get("key-" + i));
+        }
+    }
+
+    // the registry is reached the same way the services reach it, over http at the url of springProperties
+    @Test
+    public void servesRegisteredSchemasOverHttp() throws Exception {
+        String schema = "{\"type\":\"record\",\"name\":\"RoundTrip\",\"fields\":[{\"name\":\"id\",\"type\":\"long\"}]}";
+        String url = (String) environment.springProperties().get("kafka-config.schema-registry-url");
+        HttpClient httpClient = HttpClient.newHttpClient();
+
+        JsonNode registered = send(httpClient, HttpRequest.newBuilder(URI.create(url + "/subjects/round-trip-value/versions"))
+                .header("Content-Type", "application/vnd.schemaregistry.v1+json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        OBJECT_MAPPER.writeValueAsString(Collections.singletonMap("schema", schema))))
+                .build());
+        int id = registered.get("id").asInt();
+        assertEquals(id, environment.getSchemaRegistry().getLatestId("round-trip-value"));
+
+        JsonNode fetched = send(httpClient, HttpRequest.newBuilder(URI.create(url + "/schemas/ids/" + id)).GET().build());
+        assertEquals(OBJECT_MAPPER.readTree(schema), OBJECT_MAPPER.readTree(fetched.get("schema").asText()));
+
+        List<String> subjects = new ArrayList<>();
+        send(httpClient, HttpRequest.newBuilder(URI.create(url + "/subjects")).GET().build())
+                .forEach(subject -> subjects.add(subject.asText()));
+        assertEquals(environment.getSchemaRegistry().getSubjects(), subjects);
+    }
+
+    private static JsonNode send(HttpClient httpClient, HttpRequest request) throws Exception {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return OBJECT_MAPPER.readTree(response.body());
+    }
+}
@@ -63,7 +63,13 @@ public class TwitterToKafkaServiceApplication implements CommandLineRunner {
         this.streamInitializer = streamInitializer;
     }
 
+    // avro 1.10 generates customEncode/customDecode for TwitterAvroModel but the SpecificDatumWriter and reader
+    // only use them when this flag is set, otherwise they walk the schema and call get/put for every field
+    // it is read when the SpecificData of the model is created, so it has to be set before the first avro class is loaded
+    private static final String AVRO_CUSTOM_CODERS_PROPERTY = "org.apache.avro.specific.use_custom_coders";
+
     public static void main(String[] args) {
+       System.setProperty(AVRO_CUSTOM_CODERS_PROPERTY, "true");
        SpringApplication.run(TwitterToKafkaServiceApplication.class, args);
 //       for (String beanName: applicationContext.getBeanDefinitionNames()) {
 //           System.out.println(beanName);
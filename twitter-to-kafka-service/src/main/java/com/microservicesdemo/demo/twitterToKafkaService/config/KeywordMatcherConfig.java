@@ -0,0 +1,34 @@
+package com.microservicesdemo.demo.twitterToKafkaService.config;
+
+import com.microservicesdemo.demo.config.TwitterToKafkaServiceConfigData;
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.KeywordMatcher;
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.impl.AhoCorasickKeywordMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+import java.util.List;
+
+@Configuration
+public class KeywordMatcherConfig {
+    private static final Logger LOG = LoggerFactory.getLogger(KeywordMatcherConfig.class);
+
+    private final TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData;
+
+    public KeywordMatcherConfig(TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData) {
+        this.twitterToKafkaServiceConfigData = twitterToKafkaServiceConfigData;
+    }
+
+    // built once from twitter-keywords, the automaton is immutable so the listener threads share it
+    @Bean
+    public KeywordMatcher keywordMatcher() {
+        List<String> keywords = twitterToKafkaServiceConfigData.getTwitterKeywords() != null
+                ? twitterToKafkaServiceConfigData.getTwitterKeywords() : Collections.emptyList();
+        boolean wholeWords = !Boolean.FALSE.equals(twitterToKafkaServiceConfigData.getKeywordWholeWords());
+        AhoCorasickKeywordMatcher keywordMatcher = new AhoCorasickKeywordMatcher(keywords, wholeWords);
+        LOG.info("Built keyword matcher for {} keywords with {} states", keywordMatcher.getKeywordCount(), keywordMatcher.getStateCount());
+        return keywordMatcher;
+    }
+}
@@ -0,0 +1,9 @@
+package com.microservicesdemo.demo.twitterToKafkaService.dedup;
+
+// remembers the ids of the tweets we already sent to kafka, so a redelivered status is not sent twice
+public interface TweetDeduplicator {
+    boolean isEnabled();
+
+    // checks and records the id in one step, returns true when the id was (probably) seen before
+    boolean isDuplicate(long tweetId);
+}
@@ -0,0 +1,234 @@
+package com.microservicesdemo.demo.twitterToKafkaService.dedup.impl;
+
+import com.microservicesdemo.demo.config.DedupConfigData;
+import com.microservicesdemo.demo.twitterToKafkaService.dedup.TweetDeduplicator;
+import com.microservicesdemo.demo.twitterToKafkaService.exception.TwitterToKafkaServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// time windowed de-dup on tweet ids, built from a ring of bloom filters (generations)
+// an id is looked up in every generation but only added to the current one, and every window-ms / generations
+// the oldest generation is cleared and becomes the current one, so an id is remembered for at least
+// window-ms - window-ms / generations and at most window-ms
+// the bit sets are direct byte buffers allocated once at startup, so the memory is fixed and the gc never scans them
+// bits are set with an atomic or through a VarHandle, so the listener and producer threads dont need a lock
+// Note: a bloom filter has no false negatives but it has false positives, a new tweet that collides with
+// the bits of older ids is dropped as a duplicate, the estimated probability of that is exposed as a gauge.
+// every lookup checks all generations, so with full generations a new tweet is dropped with about
+// generations * false-positive-probability, not false-positive-probability
+@Component
+public class RotatingBloomFilterDeduplicator implements TweetDeduplicator {
+    private static final Logger LOG = LoggerFactory.getLogger(RotatingBloomFilterDeduplicator.class);
+
+    private static final String PREFIX = "twitter.dedup";
+
+    // 64 bit words over the direct buffers, native order since the bytes never leave this process
+    private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final double LN2 = Math.log(2);
+
+    private final DedupConfigData dedupConfigData;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter checkedCounter;
+
+    private final Counter duplicateCounter;
+
+    private ByteBuffer[] generations;
+
+    // ids added to every generation since it was last cleared, used for the false positive estimate
+    private LongAdder[] insertions;
+
+    private long numBits;
+
+    private int numHashes;
+
+    private volatile int current;
+
+    private ScheduledExecutorService scheduler;
+
+    public RotatingBloomFilterDeduplicator(DedupConfigData dedupConfigData, MeterRegistry meterRegistry) {
+        this.dedupConfigData = dedupConfigData;
+        this.meterRegistry = meterRegistry;
+        this.checkedCounter = Counter.builder(PREFIX + ".checked")
+                .description("Tweet ids checked by the de-dup filter")
+                .register(meterRegistry);
+        this.duplicateCounter = Counter.builder(PREFIX + ".duplicates")
+                .description("Tweets dropped because their id was already seen, includes false positives")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            LOG.info("Tweet de-duplication is disabled");
+            return;
+        }
+        int generationCount = dedupConfigData.getGenerations();
+        long expectedTweets = dedupConfigData.getExpectedTweetsPerGeneration();
+        double falsePositiveProbability = dedupConfigData.getFalsePositiveProbability();
+        if (generationCount < 2 || expectedTweets <= 0 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new TwitterToKafkaServiceException("Invalid dedup-config, generations must be at least 2, " +
+                    "expected-tweets-per-generation greater than 0 and false-positive-probability between 0 and 1");
+        }
+        // optimal bloom filter size and hash count for n entries at false positive probability p
+        // m = -n ln(p) / ln(2)^2 and k = m / n ln(2), m is rounded up to whole 64 bit words
+        long bits = (long) Math.ceil(-expectedTweets * Math.log(falsePositiveProbability) / (LN2 * LN2));
+        numBits = (bits + 63) / 64 * 64;
+        if (numBits / 8 > Integer.MAX_VALUE) {
+            throw new TwitterToKafkaServiceException("dedup-config needs " + numBits / 8 +
+                    " bytes per generation, which is more than a direct buffer can hold");
+        }
+        numHashes = Math.max(1, (int) Math.round((double) numBits / expectedTweets * LN2));
+        generations = new ByteBuffer[generationCount];
+        insertions = new LongAdder[generationCount];
+        for (int i = 0; i < generationCount; i++) {
+            generations[i] = ByteBuffer.allocateDirect((int) (numBits / 8));
+            insertions[i] = new LongAdder();
+        }
+        registerGauges();
+
+        long rotateIntervalMs = Math.max(1, dedupConfigData.getWindowMs() / generationCount);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "twitter-dedup-rotation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::rotate, rotateIntervalMs, rotateIntervalMs, TimeUnit.MILLISECONDS);
+        LOG.info("Started tweet de-duplication with {} generations of {} bits and {} hashes ({} bytes off heap), " +
+                "rotating every {} ms", generationCount, numBits, numHashes, getMemoryBytes(), rotateIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutDown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(dedupConfigData.getEnabled());
+    }
+
+    @Override
+    public boolean isDuplicate(long tweetId) {
+        checkedCounter.increment();
+        // double hashing (Kirsch-Mitzenmacher), the k bit positions are h1 + i * h2, so we only mix the id twice
+        long h1 = mix(tweetId);
+        long h2 = mix(h1) | 1;
+        int currentIndex = current;
+        for (int i = 0; i < generations.length; i++) {
+            if (i != currentIndex && contains(generations[i], h1, h2)) {
+                duplicateCounter.increment();
+                return true;
+            }
+        }
+        // set the bits in the current generation, if all of them were already set the id was seen before
+        // checking and setting in one pass means two threads racing on the same id can not both miss it
+        ByteBuffer generation = generations[currentIndex];
+        boolean allSet = true;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = bitIndex(h1, h2, i);
+            long mask = 1L << bit;
+            long previous = (long) WORDS.getAndBitwiseOr(generation, (int) (bit >>> 6) << 3, mask);
+            allSet &= (previous & mask) != 0;
+        }
+        if (allSet) {
+            duplicateCounter.increment();
+            return true;
+        }
+        insertions[currentIndex].increment();
+        return false;
+    }
+
+    private boolean contains(ByteBuffer generation, long h1, long h2) {
+        for (int i = 0; i < numHashes; i++) {
+            long bit = bitIndex(h1, h2, i);
+            long word = (long) WORDS.getOpaque(generation, (int) (bit >>> 6) << 3);
+            if ((word & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long bitIndex(long h1, long h2, int i) {
+        return Long.remainderUnsigned(h1 + i * h2, numBits);
+    }
+
+    // clears the oldest generation and makes it the current one, the ids in it are forgotten from now on
+    // the clear runs before the switch, so the listener never adds an id to a generation that is being cleared
+    // package private so the tests can rotate without waiting for the scheduler
+    void rotate() {
+        try {
+            int next = (current + 1) % generations.length;
+            ByteBuffer generation = generations[next];
+            for (int offset = 0; offset < generation.capacity(); offset += Long.BYTES) {
+                WORDS.setOpaque(generation, offset, 0L);
+            }
+            insertions[next].reset();
+            long filled = insertions[current].sum();
+            if (filled > dedupConfigData.getExpectedTweetsPerGeneration()) {
+                LOG.warn("De-dup generation took {} tweets, more than the {} it was sized for, " +
+                                "the false positive probability is above the configured one",
+                        filled, dedupConfigData.getExpectedTweetsPerGeneration());
+            }
+            current = next;
+        } catch (RuntimeException e) {
+            // never let an exception cancel the scheduled task, we try again on the next rotation
+            LOG.warn("Rotating the de-dup filter failed", e);
+        }
+    }
+
+    // probability that a new id is reported as a duplicate, from the number of ids in every generation
+    // a generation with n ids answers yes for a new id with (1 - e^(-k n / m))^k, and the id is checked against all of them
+    private double estimateFalsePositiveProbability() {
+        double probabilityOfNoFalsePositive = 1;
+        for (LongAdder inserted : insertions) {
+            double fillRatio = 1 - Math.exp(-(double) numHashes * inserted.sum() / numBits);
+            probabilityOfNoFalsePositive *= 1 - Math.pow(fillRatio, numHashes);
+        }
+        return 1 - probabilityOfNoFalsePositive;
+    }
+
+    private long getMemoryBytes() {
+        return numBits / 8 * generations.length;
+    }
+
+    private void registerGauges() {
+        Gauge.builder(PREFIX + ".false.positive.probability", this, RotatingBloomFilterDeduplicator::estimateFalsePositiveProbability)
+                .description("Estimated probability that a new tweet is dropped as a duplicate")
+                .register(meterRegistry);
+        Gauge.builder(PREFIX + ".memory.bytes", this, deduplicator -> deduplicator.getMemoryBytes())
+                .description("Off heap memory used by the de-dup bloom filters")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // murmur3 fmix64 finalizer, spreads sequential tweet ids over all 64 bits
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93fe53a87e5L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,30 @@
+package com.microservicesdemo.demo.twitterToKafkaService.handoff;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+
+// one queued kafka record, immutable so it can be safely passed from the stream thread to a worker thread
+public class HandOffRecord {
+    private final String topicName;
+
+    private final Long key;
+
+    private final TwitterAvroModel message;
+
+    public HandOffRecord(String topicName, Long key, TwitterAvroModel message) {
+        this.topicName = topicName;
+        this.key = key;
+        this.message = message;
+    }
+
+    public String getTopicName() {
+        return topicName;
+    }
+
+    public Long getKey() {
+        return key;
+    }
+
+    public TwitterAvroModel getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,11 @@
+package com.microservicesdemo.demo.twitterToKafkaService.handoff;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+
+// decouples the twitter stream thread from the kafka producer
+// submit returns as soon as the record is queued, and the actual kafka send runs on producer worker threads
+public interface ProducerHandOff {
+    boolean isEnabled();
+
+    void submit(String topicName, Long key, TwitterAvroModel message);
+}
@@ -0,0 +1,304 @@
+package com.microservicesdemo.demo.twitterToKafkaService.handoff.impl;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.common.concurrent.ThreadFactories;
+import com.microservicesdemo.demo.common.logging.SampledLogger;
+import com.microservicesdemo.demo.config.HandOffConfigData;
+import com.microservicesdemo.demo.config.HandOffConfigData.OverflowPolicy;
+import com.microservicesdemo.demo.config.ThreadingConfigData;
+import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroRecord;
+import com.microservicesdemo.demo.kafka.producer.config.service.KafkaProducer;
+import com.microservicesdemo.demo.kafka.producer.config.service.model.BatchRecord;
+import com.microservicesdemo.demo.twitterToKafkaService.exception.TwitterToKafkaServiceException;
+import com.microservicesdemo.demo.twitterToKafkaService.handoff.HandOffRecord;
+import com.microservicesdemo.demo.twitterToKafkaService.handoff.ProducerHandOff;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// bounded ring buffer between TwitterKafkaStatusListener and a pool of producer worker threads
+// ArrayBlockingQueue is a preallocated array used as a ring, so queueing a record doesnt allocate a node like linked queues do
+// when the queue is full the configured overflow policy decides if we block, drop or keep the record in the overflow queue
+@Component
+public class BoundedProducerHandOff implements ProducerHandOff {
+    private static final Logger LOG = LoggerFactory.getLogger(BoundedProducerHandOff.class);
+
+    // how long a worker waits for a record before checking if it should stop
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    // how long we wait for the queued records to be sent on shutdown
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    private static final SampledLogger DROPPED_LOG = SampledLogger.perSecond(LOG, 1);
+
+    private static final SampledLogger SEND_ERROR_LOG = SampledLogger.perSecond(LOG, 10);
+
+    private final HandOffConfigData handOffConfigData;
+
+    private final ThreadingConfigData threadingConfigData;
+
+    private final KafkaProducer<Long, TwitterAvroModel> kafkaProducer;
+
+    private BlockingQueue<HandOffRecord> queue;
+
+    // records that didnt fit into the queue with the overflow-queue policy, bounded by overflow-queue-capacity
+    // they are only sent when the main queue is empty, so they overtake nothing and newer records overtake them
+    private final Queue<HandOffRecord> overflowQueue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger overflowQueueSize = new AtomicInteger();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private ExecutorService workers;
+
+    private volatile boolean running;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter droppedCounter;
+
+    public BoundedProducerHandOff(HandOffConfigData handOffConfigData, ThreadingConfigData threadingConfigData, KafkaProducer<Long, TwitterAvroModel> kafkaProducer, MeterRegistry meterRegistry) {
+        this.handOffConfigData = handOffConfigData;
+        this.threadingConfigData = threadingConfigData;
+        this.kafkaProducer = kafkaProducer;
+        this.meterRegistry = meterRegistry;
+        this.droppedCounter = Counter.builder("twitter.handoff.dropped")
+                .description("Records dropped because the producer hand off queue was full or the hand off was stopped")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        int workerCount = handOffConfigData.getWorkerCount();
+        LOG.info("Starting producer hand off with capacity {}, {} {} workers and overflow policy {}",
+                handOffConfigData.getCapacity(), workerCount, ThreadFactories.effectiveMode(threadingConfigData.getModeOrDefault()),
+                getOverflowPolicy());
+        queue = new ArrayBlockingQueue<>(handOffConfigData.getCapacity());
+        Gauge.builder("twitter.handoff.queued", this, handOff -> handOff.queue.size() + handOff.overflowQueueSize.get())
+                .description("Records waiting in the producer hand off queue and overflow queue")
+                .register(meterRegistry);
+        running = true;
+        // a worker blocks in KafkaProducer.send while the producer buffer is full, on a virtual thread that only parks the worker
+        workers = ThreadFactories.newExecutor(threadingConfigData.getModeOrDefault(), "producer-hand-off", workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::sendQueuedRecords);
+        }
+    }
+
+    // stop the workers after they sent what is still queued, this runs before the kafka producer bean is closed
+    @PreDestroy
+    public void shutDown() {
+        if (workers == null) {
+            return;
+        }
+        LOG.info("Stopping producer hand off, {} records still queued", queue.size() + overflowQueueSize.get());
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                LOG.warn("Producer hand off workers did not finish in {} ms, {} records lost",
+                        SHUTDOWN_TIMEOUT_MS, queue.size() + overflowQueueSize.get());
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(handOffConfigData.getEnabled());
+    }
+
+    // a stream thread can still submit while the application shuts down, once the workers drained the queue and exited
+    // nobody reads it anymore, so a record submitted after shutDown is counted as dropped instead of lost silently
+    @Override
+    public void submit(String topicName, Long key, TwitterAvroModel message) {
+        HandOffRecord record = new HandOffRecord(topicName, key, message);
+        if (!running) {
+            recordDroppedAfterShutdown(record);
+            return;
+        }
+        enqueue(record);
+        // shutDown may have run between the check above and the enqueue, take the record back if a worker didnt get it
+        if (!running && removeQueued(record)) {
+            recordDroppedAfterShutdown(record);
+        }
+    }
+
+    private void enqueue(HandOffRecord record) {
+        if (queue.offer(record)) {
+            return;
+        }
+        switch (getOverflowPolicy()) {
+            case BLOCK:
+                put(record);
+                break;
+            case DROP_OLDEST:
+                // another thread can fill the free slot before us, so keep evicting until our record fits
+                while (!queue.offer(record)) {
+                    HandOffRecord oldest = queue.poll();
+                    if (oldest != null) {
+                        recordDropped(oldest);
+                    }
+                }
+                break;
+            case DROP_NEWEST:
+                recordDropped(record);
+                break;
+            case OVERFLOW_QUEUE:
+                overflow(record);
+                break;
+        }
+    }
+
+    private boolean removeQueued(HandOffRecord record) {
+        if (queue.remove(record)) {
+            return true;
+        }
+        if (overflowQueue.remove(record)) {
+            overflowQueueSize.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private void put(HandOffRecord record) {
+        try {
+            queue.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TwitterToKafkaServiceException("Interrupted while waiting for space in the producer hand off queue", e);
+        }
+    }
+
+    private void overflow(HandOffRecord record) {
+        if (overflowQueueSize.incrementAndGet() > handOffConfigData.getOverflowQueueCapacity()) {
+            overflowQueueSize.decrementAndGet();
+            recordDropped(record);
+            return;
+        }
+        overflowQueue.offer(record);
+    }
+
+    // a dropped record will never reach the kafka producer, so give a pooled message back here
+    private void recordDropped(HandOffRecord record) {
+        TwitterAvroRecord.recycle(record.getMessage());
+        long dropped = droppedCount.incrementAndGet();
+        droppedCounter.increment();
+        DROPPED_LOG.warn("Producer hand off queue is full, dropped {} records so far with policy {}", dropped, getOverflowPolicy());
+    }
+
+    private void recordDroppedAfterShutdown(HandOffRecord record) {
+        TwitterAvroRecord.recycle(record.getMessage());
+        long dropped = droppedCount.incrementAndGet();
+        droppedCounter.increment();
+        DROPPED_LOG.warn("Producer hand off is stopped, dropped a record for topic {} submitted after shutdown, {} records dropped so far",
+                record.getTopicName(), dropped);
+    }
+
+    // worker loop, keeps sending until shutdown and the queue and overflow queue are both empty
+    // every loop takes whatever is queued (up to batch-size records) and sends it as one micro batch
+    private void sendQueuedRecords() {
+        int batchSize = Math.max(1, getOrDefault(handOffConfigData.getBatchSize(), 1));
+        List<HandOffRecord> batch = new ArrayList<>(batchSize);
+        while (true) {
+            HandOffRecord record = nextRecord();
+            if (record == null) {
+                if (!running || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(record);
+            queue.drainTo(batch, batchSize - 1);
+            sendBatch(batch);
+            batch.clear();
+        }
+    }
+
+    // records for the same topic are sent together, the batch is split where the topic changes
+    private void sendBatch(List<HandOffRecord> batch) {
+        int start = 0;
+        for (int i = 1; i <= batch.size(); i++) {
+            if (i == batch.size() || !batch.get(i).getTopicName().equals(batch.get(start).getTopicName())) {
+                send(batch.subList(start, i));
+                start = i;
+            }
+        }
+    }
+
+    private void send(List<HandOffRecord> records) {
+        String topicName = records.get(0).getTopicName();
+        try {
+            // with exactly-once even a single record goes in a transaction, this worker blocks until it is committed
+            boolean transactional = kafkaProducer.isTransactional();
+            if (records.size() == 1 && !transactional) {
+                HandOffRecord record = records.get(0);
+                kafkaProducer.send(topicName, record.getKey(), record.getMessage());
+                return;
+            }
+            List<BatchRecord<Long, TwitterAvroModel>> batchRecords = new ArrayList<>(records.size());
+            for (HandOffRecord record : records) {
+                batchRecords.add(new BatchRecord<>(record.getKey(), record.getMessage()));
+            }
+            if (transactional) {
+                kafkaProducer.sendBatchInTransaction(topicName, batchRecords);
+                return;
+            }
+            // we dont wait for the acks here, failures are logged by the producer
+            kafkaProducer.sendBatch(topicName, batchRecords);
+        } catch (Exception e) {
+            // a failing send must not kill the worker thread
+            SEND_ERROR_LOG.error("Error while sending {} messages to topic {}", records.size(), topicName, e);
+        }
+    }
+
+    private HandOffRecord nextRecord() {
+        HandOffRecord record = queue.poll();
+        if (record != null) {
+            return record;
+        }
+        // the queue has been drained, now it is time to send the records we kept aside
+        HandOffRecord overflowed = overflowQueue.poll();
+        if (overflowed != null) {
+            overflowQueueSize.decrementAndGet();
+            return overflowed;
+        }
+        try {
+            return queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static <T> T getOrDefault(T value, T defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    private OverflowPolicy getOverflowPolicy() {
+        OverflowPolicy overflowPolicy = handOffConfigData.getOverflowPolicy();
+        return overflowPolicy != null ? overflowPolicy : OverflowPolicy.BLOCK;
+    }
+}
@@ -1,12 +1,27 @@
 package com.microservicesdemo.demo.twitterToKafkaService.init.impl;
 
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.config.HandOffConfigData;
 import com.microservicesdemo.demo.config.KafkaConfigData;
+import com.microservicesdemo.demo.config.KafkaConfigData.ValueFormat;
+import com.microservicesdemo.demo.config.KafkaProducerConfigData;
+import com.microservicesdemo.demo.config.KafkaProducerConfigData.DeliveryGuarantee;
+import com.microservicesdemo.demo.config.KafkaProducerConfigData.ValueCodecType;
+import com.microservicesdemo.demo.config.TopicRoutingConfigData;
 import com.microservicesdemo.demo.kafka.admin.client.KafkaAdminClient;
+import com.microservicesdemo.demo.kafka.producer.config.serializer.SchemaIdRegistry;
+import com.microservicesdemo.demo.twitterToKafkaService.exception.TwitterToKafkaServiceException;
 import com.microservicesdemo.demo.twitterToKafkaService.init.StreamInitializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 @Component
 public class KafkaStreamInitializer implements StreamInitializer {
     private static final Logger LOG = LoggerFactory.getLogger(KafkaStreamInitializer.class);
@@ -16,19 +31,81 @@ public class KafkaStreamInitializer implements StreamInitializer {
 
     private final KafkaAdminClient kafkaAdminClient;
 
-    public KafkaStreamInitializer(KafkaConfigData kafkaConfigData, KafkaAdminClient kafkaAdminClient) {
+    private final SchemaIdRegistry schemaIdRegistry;
+
+    private final TopicRoutingConfigData topicRoutingConfigData;
+
+    private final KafkaProducerConfigData kafkaProducerConfigData;
+
+    private final HandOffConfigData handOffConfigData;
+
+    public KafkaStreamInitializer(KafkaConfigData kafkaConfigData, KafkaAdminClient kafkaAdminClient, SchemaIdRegistry schemaIdRegistry, TopicRoutingConfigData topicRoutingConfigData, KafkaProducerConfigData kafkaProducerConfigData, HandOffConfigData handOffConfigData) {
         this.kafkaConfigData = kafkaConfigData;
+        this.topicRoutingConfigData = topicRoutingConfigData;
+        this.kafkaProducerConfigData = kafkaProducerConfigData;
+        this.handOffConfigData = handOffConfigData;
         this.kafkaAdminClient = kafkaAdminClient;
+        this.schemaIdRegistry = schemaIdRegistry;
     }
 
     @Override
     public void init() {
+        // only the hand off workers send in transactions, without them every tweet goes through a single send outside
+        // of any transaction, so exactly-once would be at most idempotent while the config still says exactly-once
+        if (kafkaProducerConfigData.getDeliveryGuaranteeOrDefault() == DeliveryGuarantee.EXACTLY_ONCE
+                && !Boolean.TRUE.equals(handOffConfigData.getEnabled())) {
+            throw new TwitterToKafkaServiceException("kafka-producer-config.delivery-guarantee exactly-once needs "
+                    + "hand-off-config.enabled true, only the hand off sends its batches in transactions. "
+                    + "Enable the hand off or use delivery-guarantee idempotent");
+        }
         // gotta check if kafka topics are created and if schema registry is up and running, before streaming data from twitter
         // cuz we wanna send data from twitter to kafka server
-        // create kafka topics
-        kafkaAdminClient.createTopics();
+        // the schema registry is only needed for the topics that use the confluent avro format
+        List<String> confluentTopicNames = new ArrayList<>();
+        for (String topicName : getSendTopicNames()) {
+            ValueFormat valueFormat = kafkaConfigData.getValueFormat(topicName);
+            if (valueFormat == ValueFormat.CONFLUENT_AVRO) {
+                confluentTopicNames.add(topicName);
+            } else {
+                LOG.info("Topic {} uses the {} value format, skipping the schema registry", topicName, valueFormat);
+            }
+        }
+        // the value codec compresses the whole value with the magic byte and the schema id, a KafkaAvroDeserializer
+        // can not read that, so the dictionary only goes with the formats our own consumers read
+        if (kafkaProducerConfigData.getValueCodec() == ValueCodecType.ZSTD_DICTIONARY && !confluentTopicNames.isEmpty()) {
+            throw new TwitterToKafkaServiceException("kafka-producer-config.value-codec zstd-dictionary can not be used with "
+                    + "the confluent-avro value format of topics " + confluentTopicNames
+                    + ", KafkaAvroDeserializer consumers could not read them. Set kafka-config.topic-value-formats of these "
+                    + "topics to avro-single-object or protobuf, or use value-codec none");
+        }
+        // creating the topics and waiting for the schema registry dont depend on each other, so they run at the same time
+        // as futures, nothing blocks until the final await and all of them stop at the same deadline
+        long deadlineNanos = kafkaAdminClient.startupDeadlineNanos();
+        // create kafka topics, the future completes once the controller created all of them
+        CompletableFuture<Void> topicsCreated = kafkaAdminClient.createTopicsAsync(deadlineNanos);
         // check to see if schema registry is up and running prior to startung our service
-        kafkaAdminClient.checkSchemaRegistry();
+        // then register the TwitterAvroModel schema once per topic, so TwitterAvroModelSerializer doesnt need the registry for every record
+        CompletableFuture<Void> schemasRegistered = confluentTopicNames.isEmpty()
+                ? CompletableFuture.completedFuture(null)
+                : kafkaAdminClient.checkSchemaRegistryAsync(deadlineNanos).thenCompose(ignored -> CompletableFuture.allOf(
+                        confluentTopicNames.stream().map(topicName -> registerSchema(topicName, deadlineNanos)).toArray(CompletableFuture[]::new)));
+        kafkaAdminClient.await(CompletableFuture.allOf(topicsCreated, schemasRegistered), deadlineNanos);
         LOG.info("Topics with name {} is ready for operations!", kafkaConfigData.getTopicNamesToCreate().toArray());
     }
+
+    // the default topic and, with topic routing, the topic of every route
+    private Set<String> getSendTopicNames() {
+        Set<String> topicNames = new LinkedHashSet<>();
+        topicNames.add(kafkaConfigData.getTopicName());
+        topicRoutingConfigData.getRoutesToCreate().forEach(route -> topicNames.add(route.getTopic().trim()));
+        return topicNames;
+    }
+
+    private CompletableFuture<Void> registerSchema(String topicName, long deadlineNanos) {
+        return kafkaAdminClient.registerSchemaAsync(SchemaIdRegistry.valueSubject(topicName),
+                TwitterAvroModel.getClassSchema().toString(), deadlineNanos).thenAccept(schemaId -> {
+            schemaIdRegistry.register(topicName, schemaId);
+            LOG.info("Registered schema of topic {} with id {}", topicName, schemaId);
+        });
+    }
 }
@@ -0,0 +1,18 @@
+package com.microservicesdemo.demo.twitterToKafkaService.keyword;
+
+// finds which of the configured twitter-keywords occur in a tweet text
+// keywords are addressed by their index in the keyword list, so a router can keep per keyword data in plain arrays
+public interface KeywordMatcher {
+    int getKeywordCount();
+
+    String getKeyword(int keywordIndex);
+
+    // index of the keyword, compared case insensitive, or -1 if it is not one of the keywords
+    int indexOf(String keyword);
+
+    // a matches object sized for this matcher, keep one per thread and pass it to every match call
+    KeywordMatches newMatches();
+
+    // clears the matches and fills them with the keywords found in the text, returns the number of distinct keywords
+    int match(CharSequence text, KeywordMatches matches);
+}
@@ -0,0 +1,56 @@
+package com.microservicesdemo.demo.twitterToKafkaService.keyword;
+
+import java.util.Arrays;
+
+// the distinct keywords found in one tweet, as indexes into the keyword list of the KeywordMatcher
+// it is reused for every tweet on a thread, so clear doesnt wipe the arrays, it only moves to a new stamp
+// and a keyword counts as matched when its stamp is the current one
+// Note: not thread safe, every thread that matches tweets needs its own instance
+public final class KeywordMatches {
+    private final int[] matched;
+
+    private final int[] stamps;
+
+    private int stamp = 1;
+
+    private int size;
+
+    public KeywordMatches(int keywordCount) {
+        this.matched = new int[keywordCount];
+        this.stamps = new int[keywordCount];
+    }
+
+    public void clear() {
+        size = 0;
+        if (++stamp == 0) {
+            // the stamp wrapped after 4 billion tweets, start over so an old stamp can not come back
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    // adds the keyword once, later matches of the same keyword in the same text are ignored
+    public void add(int keywordIndex) {
+        if (stamps[keywordIndex] != stamp) {
+            stamps[keywordIndex] = stamp;
+            matched[size++] = keywordIndex;
+        }
+    }
+
+    public boolean contains(int keywordIndex) {
+        return keywordIndex >= 0 && stamps[keywordIndex] == stamp;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // keyword index of the i-th match, in the order the keywords ended in the text
+    public int get(int i) {
+        return matched[i];
+    }
+}
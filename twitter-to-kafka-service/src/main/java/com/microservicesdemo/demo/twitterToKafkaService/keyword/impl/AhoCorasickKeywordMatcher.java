@@ -0,0 +1,216 @@
+package com.microservicesdemo.demo.twitterToKafkaService.keyword.impl;
+
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.KeywordMatcher;
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.KeywordMatches;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+// Aho-Corasick automaton over all keywords, built once, so a tweet is matched in one pass over its text
+// no matter how many keywords there are, checking the keywords one by one with contains costs text length * keyword count
+// the automaton is compiled into a full transition table (a DFA), so every char costs one table lookup
+// and there is no failure link walking while matching
+// to keep the table small the chars are mapped to classes first, every char that appears in a keyword gets its own class
+// and all other chars share class 0, the table is states * classes ints, eg. 5000 keywords of 10 chars and
+// 40 distinct chars are 50000 states and about 8 MB
+// matching is case insensitive, and with wholeWords a keyword only matches when it is not part of a longer word,
+// so Java does not match JavaScript, the twitter stream matches keywords the same way
+// Note: the matcher is immutable once built and can be shared by all threads, only KeywordMatches is per thread
+public class AhoCorasickKeywordMatcher implements KeywordMatcher {
+    private static final int ROOT = 0;
+
+    private static final int NONE = -1;
+
+    private final String[] keywords;
+
+    private final Map<String, Integer> keywordIndexes;
+
+    private final boolean wholeWords;
+
+    // char -> char class, case folded, 128 KB covering the whole char range so there is no bounds check
+    private final char[] charClasses = new char[Character.MAX_VALUE + 1];
+
+    private final int classCount;
+
+    // transitions[state * classCount + class] is the next state
+    private final int[] transitions;
+
+    // keyword that ends in the state, or NONE
+    private final int[] stateKeywords;
+
+    private final int[] keywordLengths;
+
+    // first state on the failure chain (the state itself included) that ends a keyword, or NONE
+    // and from there the next one, so we only visit states with an output
+    private final int[] firstOutputs;
+
+    private final int[] nextOutputs;
+
+    public AhoCorasickKeywordMatcher(List<String> keywords, boolean wholeWords) {
+        this.wholeWords = wholeWords;
+        this.keywordIndexes = new HashMap<>();
+        List<String> distinctKeywords = new ArrayList<>();
+        for (String keyword : keywords) {
+            String normalized = keyword == null ? "" : fold(keyword.trim());
+            if (!normalized.isEmpty() && !keywordIndexes.containsKey(normalized)) {
+                keywordIndexes.put(normalized, distinctKeywords.size());
+                distinctKeywords.add(keyword.trim());
+            }
+        }
+        this.keywords = distinctKeywords.toArray(new String[0]);
+        this.keywordLengths = new int[this.keywords.length];
+
+        this.classCount = buildCharClasses();
+        int maxStates = 1;
+        for (String keyword : this.keywords) {
+            maxStates += keyword.length();
+        }
+        int[] table = new int[maxStates * classCount];
+        Arrays.fill(table, NONE);
+        int[] keywordOfState = new int[maxStates];
+        Arrays.fill(keywordOfState, NONE);
+
+        // 1. the trie, state 0 is the root
+        int stateCount = 1;
+        for (int keywordIndex = 0; keywordIndex < this.keywords.length; keywordIndex++) {
+            String keyword = this.keywords[keywordIndex];
+            keywordLengths[keywordIndex] = keyword.length();
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                int slot = state * classCount + charClasses[keyword.charAt(i)];
+                if (table[slot] == NONE) {
+                    table[slot] = stateCount++;
+                }
+                state = table[slot];
+            }
+            keywordOfState[state] = keywordIndex;
+        }
+
+        // 2. failure links breadth first, and missing transitions are filled from the failure state,
+        // which turns the trie into the DFA
+        int[] failures = new int[stateCount];
+        int[] outputs = new int[stateCount];
+        int[] next = new int[stateCount];
+        Arrays.fill(next, NONE);
+        outputs[ROOT] = NONE;
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int charClass = 0; charClass < classCount; charClass++) {
+            int child = table[charClass];
+            if (child == NONE) {
+                table[charClass] = ROOT;
+            } else {
+                failures[child] = ROOT;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            int failure = failures[state];
+            next[state] = outputs[failure];
+            outputs[state] = keywordOfState[state] != NONE ? state : outputs[failure];
+            for (int charClass = 0; charClass < classCount; charClass++) {
+                int slot = state * classCount + charClass;
+                int child = table[slot];
+                if (child == NONE) {
+                    table[slot] = table[failure * classCount + charClass];
+                } else {
+                    failures[child] = table[failure * classCount + charClass];
+                    queue.add(child);
+                }
+            }
+        }
+        this.transitions = Arrays.copyOf(table, stateCount * classCount);
+        this.stateKeywords = Arrays.copyOf(keywordOfState, stateCount);
+        this.firstOutputs = outputs;
+        this.nextOutputs = next;
+    }
+
+    @Override
+    public int getKeywordCount() {
+        return keywords.length;
+    }
+
+    @Override
+    public String getKeyword(int keywordIndex) {
+        return keywords[keywordIndex];
+    }
+
+    @Override
+    public int indexOf(String keyword) {
+        return keyword == null ? NONE : keywordIndexes.getOrDefault(fold(keyword.trim()), NONE);
+    }
+
+    @Override
+    public KeywordMatches newMatches() {
+        return new KeywordMatches(keywords.length);
+    }
+
+    @Override
+    public int match(CharSequence text, KeywordMatches matches) {
+        matches.clear();
+        if (text == null) {
+            return 0;
+        }
+        int state = ROOT;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            state = transitions[state * classCount + charClasses[text.charAt(i)]];
+            for (int output = firstOutputs[state]; output != NONE; output = nextOutputs[output]) {
+                int keywordIndex = stateKeywords[output];
+                if (!wholeWords || isWholeWord(text, i - keywordLengths[keywordIndex] + 1, i)) {
+                    matches.add(keywordIndex);
+                }
+            }
+        }
+        return matches.size();
+    }
+
+    public int getStateCount() {
+        return stateKeywords.length;
+    }
+
+    private static boolean isWholeWord(CharSequence text, int start, int end) {
+        return (start == 0 || !isWordChar(text.charAt(start - 1)))
+                && (end == text.length() - 1 || !isWordChar(text.charAt(end + 1)));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    // gives every distinct folded keyword char a class starting at 1, then maps every char to the class of its folded form
+    private int buildCharClasses() {
+        char[] classOfFolded = new char[Character.MAX_VALUE + 1];
+        int count = 1;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char folded = fold(keyword.charAt(i));
+                if (classOfFolded[folded] == 0) {
+                    classOfFolded[folded] = (char) count++;
+                }
+            }
+        }
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            charClasses[c] = classOfFolded[fold((char) c)];
+        }
+        return count;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    // char by char, so the folded keyword always has the length of the text it matches
+    private static String fold(String keyword) {
+        char[] chars = keyword.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+}
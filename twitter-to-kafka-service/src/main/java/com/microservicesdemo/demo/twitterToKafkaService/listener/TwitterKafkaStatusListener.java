@@ -1,8 +1,16 @@
 package com.microservicesdemo.demo.twitterToKafkaService.listener;
 
-import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.common.logging.SampledLogger;
 import com.microservicesdemo.demo.config.KafkaConfigData;
+import com.microservicesdemo.demo.config.TwitterToKafkaServiceConfigData;
 import com.microservicesdemo.demo.kafka.producer.config.service.KafkaProducer;
+import com.microservicesdemo.demo.twitterToKafkaService.dedup.TweetDeduplicator;
+import com.microservicesdemo.demo.twitterToKafkaService.handoff.ProducerHandOff;
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.KeywordMatcher;
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.KeywordMatches;
+import com.microservicesdemo.demo.twitterToKafkaService.metrics.StatusListenerMetrics;
+import com.microservicesdemo.demo.twitterToKafkaService.routing.TopicRouter;
 import com.microservicesdemo.demo.twitterToKafkaService.transformer.TwitterStatusToAvroTransformer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,10 +18,15 @@ import org.springframework.stereotype.Component;
 import twitter4j.Status;
 import twitter4j.StatusAdapter;
 
+import java.util.List;
+
 @Component // spring managed bean -- will be scanned by spring at runtime
 public class TwitterKafkaStatusListener extends StatusAdapter {
     private static final Logger LOG = LoggerFactory.getLogger(TwitterKafkaStatusListener.class);
 
+    // onStatus runs for every tweet, so we only log a sample of them
+    private static final SampledLogger STATUS_LOG = SampledLogger.perSecond(LOG, 1);
+
     // inject depencies/consturcior injection
     private final KafkaConfigData kafkaConfigData;
 
@@ -21,22 +34,80 @@ public class TwitterKafkaStatusListener extends StatusAdapter {
 
     private final TwitterStatusToAvroTransformer twitterStatusToAvroTransformer;
 
-    public TwitterKafkaStatusListener(KafkaConfigData kafkaConfigData, KafkaProducer<Long, TwitterAvroModel> kafkaProducer, TwitterStatusToAvroTransformer twitterStatusToAvroTransformer) {
+    private final ProducerHandOff producerHandOff;
+
+    private final StatusListenerMetrics statusListenerMetrics;
+
+    private final TweetDeduplicator tweetDeduplicator;
+
+    private final KeywordMatcher keywordMatcher;
+
+    // the mock runner calls onStatus from several threads, so every thread matches into its own KeywordMatches
+    private final ThreadLocal<KeywordMatches> keywordMatches;
+
+    private final boolean dropUnmatchedTweets;
+
+    private final TopicRouter topicRouter;
+
+    public TwitterKafkaStatusListener(KafkaConfigData kafkaConfigData, TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData, KafkaProducer<Long, TwitterAvroModel> kafkaProducer, TwitterStatusToAvroTransformer twitterStatusToAvroTransformer, ProducerHandOff producerHandOff, StatusListenerMetrics statusListenerMetrics, TweetDeduplicator tweetDeduplicator, KeywordMatcher keywordMatcher, TopicRouter topicRouter) {
         this.kafkaConfigData = kafkaConfigData;
         this.kafkaProducer = kafkaProducer;
         this.twitterStatusToAvroTransformer = twitterStatusToAvroTransformer;
+        this.producerHandOff = producerHandOff;
+        this.statusListenerMetrics = statusListenerMetrics;
+        this.tweetDeduplicator = tweetDeduplicator;
+        this.keywordMatcher = keywordMatcher;
+        this.keywordMatches = ThreadLocal.withInitial(keywordMatcher::newMatches);
+        this.dropUnmatchedTweets = Boolean.TRUE.equals(twitterToKafkaServiceConfigData.getDropUnmatchedTweets());
+        this.topicRouter = topicRouter;
     }
 
     // here Status class is from twitter4j and represents twitter object
     @Override
     public void onStatus(Status status) {
-        LOG.info("Received status text {} sending to kafka topic {}", status.getText(), kafkaConfigData.getTopicName());
+        STATUS_LOG.info("Received status text {} sending to kafka topic {}", status.getText(), kafkaConfigData.getTopicName());
+        statusListenerMetrics.received();
+        // one pass over the text for all keywords, the router reads the matches again for its keyword conditions
+        // tweets without any keyword never reach the dedup filter or the serializer
+        KeywordMatches matches = keywordMatches.get();
+        if (dropUnmatchedTweets || topicRouter.isEnabled()) {
+            int matchedKeywords = keywordMatcher.match(status.getText(), matches);
+            if (matchedKeywords == 0 && dropUnmatchedTweets) {
+                statusListenerMetrics.unmatched();
+                return;
+            }
+        }
+        // the stream redelivers statuses after a reconnect, drop the ones we already sent before building a record for them
+        if (tweetDeduplicator.isEnabled() && tweetDeduplicator.isDuplicate(status.getId())) {
+            return;
+        }
+        if (!topicRouter.isEnabled()) {
+            send(kafkaConfigData.getTopicName(), status);
+            return;
+        }
+        // every topic gets its own record, a pooled record goes back to the pool once kafka acked it
+        // so one record can not be in flight to two topics at the same time
+        List<String> topics = topicRouter.route(status, matches);
+        for (int i = 0; i < topics.size(); i++) {
+            send(topics.get(i), status);
+        }
+    }
+
+    private void send(String topicName, Status status) {
         // convert status object to twitterAvroModel, cuz we need to send it to kafka
-        TwitterAvroModel twitterAvroModel = twitterStatusToAvroTransformer.getTwitterAvroModelFromStatus(status);
+        // the model comes from a pool of reusable records, the kafka producer hands it back once the record is acked
+        long transformStartNanos = System.nanoTime();
+        TwitterAvroModel twitterAvroModel = twitterStatusToAvroTransformer.getTwitterAvroRecordFromStatus(status);
+        statusListenerMetrics.transformed(transformStartNanos);
         // for
         // message we just send the twitterAvroModel object
         // we use getUserId as key, cuz we want to partition the data using a userId field of TwitterAvroModel object
-        kafkaProducer.send(kafkaConfigData.getTopicName(), twitterAvroModel.getUserId(), twitterAvroModel);
-
+        // with the hand off enabled the send runs on a producer worker thread, so a blocked producer doesnt stall the stream thread
+        // Note: the transform above must stay on this thread, the status object can be reused once onStatus returns
+        if (producerHandOff.isEnabled()) {
+            producerHandOff.submit(topicName, twitterAvroModel.getUserId(), twitterAvroModel);
+            return;
+        }
+        kafkaProducer.send(topicName, twitterAvroModel.getUserId(), twitterAvroModel);
     }
 }
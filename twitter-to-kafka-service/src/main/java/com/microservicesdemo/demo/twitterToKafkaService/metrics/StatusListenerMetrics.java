@@ -0,0 +1,44 @@
+package com.microservicesdemo.demo.twitterToKafkaService.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// micrometer meters for the ingest side of the pipeline, the kafka side is in TwitterKafkaProducerMetrics
+@Component
+public class StatusListenerMetrics {
+    private static final String PREFIX = "twitter.status";
+
+    private final Counter receivedCounter;
+
+    private final Counter unmatchedCounter;
+
+    private final Timer transformTimer;
+
+    public StatusListenerMetrics(MeterRegistry meterRegistry) {
+        this.receivedCounter = Counter.builder(PREFIX + ".received")
+                .description("Tweets received in onStatus")
+                .register(meterRegistry);
+        this.unmatchedCounter = Counter.builder(PREFIX + ".unmatched")
+                .description("Tweets dropped because their text contains none of the twitter keywords")
+                .register(meterRegistry);
+        this.transformTimer = Timer.builder(PREFIX + ".transform")
+                .description("Time to transform a twitter status to the avro model")
+                .register(meterRegistry);
+    }
+
+    public void received() {
+        receivedCounter.increment();
+    }
+
+    public void unmatched() {
+        unmatchedCounter.increment();
+    }
+
+    public void transformed(long startNanos) {
+        transformTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,232 @@
+package com.microservicesdemo.demo.twitterToKafkaService.mock;
+
+import twitter4j.GeoLocation;
+import twitter4j.HashtagEntity;
+import twitter4j.MediaEntity;
+import twitter4j.Place;
+import twitter4j.RateLimitStatus;
+import twitter4j.Scopes;
+import twitter4j.Status;
+import twitter4j.SymbolEntity;
+import twitter4j.URLEntity;
+import twitter4j.User;
+import twitter4j.UserMentionEntity;
+
+import java.util.Date;
+
+// minimal mutable twitter4j Status for the mock tweets
+// instead of formatting a json string and parsing it back with TwitterObjectFactory, the mock generator
+// sets the 4 fields we actually use (id, text, createdAt and user id) on a reused instance
+// Note: an instance is reused for the next tweet as soon as onStatus returns,
+// so listeners must copy what they need (like the avro transformer does) and never keep a reference to it
+public class MockStatus implements Status {
+    private static final long[] NO_CONTRIBUTORS = new long[0];
+    private static final String[] NO_COUNTRIES = new String[0];
+    private static final UserMentionEntity[] NO_USER_MENTIONS = new UserMentionEntity[0];
+    private static final URLEntity[] NO_URLS = new URLEntity[0];
+    private static final HashtagEntity[] NO_HASHTAGS = new HashtagEntity[0];
+    private static final MediaEntity[] NO_MEDIA = new MediaEntity[0];
+    private static final SymbolEntity[] NO_SYMBOLS = new SymbolEntity[0];
+
+    private final MockUser user = new MockUser();
+
+    // Date is mutable, so we keep one instance and only update its time
+    private final Date createdAt = new Date();
+
+    private long id;
+
+    private String text;
+
+    public MockStatus set(long id, long userId, String text, long createdAtMs) {
+        this.id = id;
+        this.text = text;
+        this.createdAt.setTime(createdAtMs);
+        this.user.setId(userId);
+        return this;
+    }
+
+    @Override
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public User getUser() {
+        return user;
+    }
+
+    @Override
+    public int compareTo(Status that) {
+        return Long.compare(id, that.getId());
+    }
+
+    @Override
+    public int getDisplayTextRangeStart() {
+        return 0;
+    }
+
+    @Override
+    public int getDisplayTextRangeEnd() {
+        return text != null ? text.length() : 0;
+    }
+
+    @Override
+    public String getSource() {
+        return null;
+    }
+
+    @Override
+    public boolean isTruncated() {
+        return false;
+    }
+
+    @Override
+    public long getInReplyToStatusId() {
+        return -1L;
+    }
+
+    @Override
+    public long getInReplyToUserId() {
+        return -1L;
+    }
+
+    @Override
+    public String getInReplyToScreenName() {
+        return null;
+    }
+
+    @Override
+    public GeoLocation getGeoLocation() {
+        return null;
+    }
+
+    @Override
+    public Place getPlace() {
+        return null;
+    }
+
+    @Override
+    public boolean isFavorited() {
+        return false;
+    }
+
+    @Override
+    public boolean isRetweeted() {
+        return false;
+    }
+
+    @Override
+    public int getFavoriteCount() {
+        return 0;
+    }
+
+    @Override
+    public boolean isRetweet() {
+        return false;
+    }
+
+    @Override
+    public Status getRetweetedStatus() {
+        return null;
+    }
+
+    @Override
+    public long[] getContributors() {
+        return NO_CONTRIBUTORS;
+    }
+
+    @Override
+    public int getRetweetCount() {
+        return 0;
+    }
+
+    @Override
+    public boolean isRetweetedByMe() {
+        return false;
+    }
+
+    @Override
+    public long getCurrentUserRetweetId() {
+        return -1L;
+    }
+
+    @Override
+    public boolean isPossiblySensitive() {
+        return false;
+    }
+
+    @Override
+    public String getLang() {
+        return null;
+    }
+
+    @Override
+    public Scopes getScopes() {
+        return null;
+    }
+
+    @Override
+    public String[] getWithheldInCountries() {
+        return NO_COUNTRIES;
+    }
+
+    @Override
+    public long getQuotedStatusId() {
+        return -1L;
+    }
+
+    @Override
+    public Status getQuotedStatus() {
+        return null;
+    }
+
+    @Override
+    public URLEntity getQuotedStatusPermalink() {
+        return null;
+    }
+
+    @Override
+    public UserMentionEntity[] getUserMentionEntities() {
+        return NO_USER_MENTIONS;
+    }
+
+    @Override
+    public URLEntity[] getURLEntities() {
+        return NO_URLS;
+    }
+
+    @Override
+    public HashtagEntity[] getHashtagEntities() {
+        return NO_HASHTAGS;
+    }
+
+    @Override
+    public MediaEntity[] getMediaEntities() {
+        return NO_MEDIA;
+    }
+
+    @Override
+    public SymbolEntity[] getSymbolEntities() {
+        return NO_SYMBOLS;
+    }
+
+    @Override
+    public RateLimitStatus getRateLimitStatus() {
+        return null;
+    }
+
+    @Override
+    public int getAccessLevel() {
+        return NONE;
+    }
+}
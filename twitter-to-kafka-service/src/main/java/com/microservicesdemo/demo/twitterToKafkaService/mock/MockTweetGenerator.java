@@ -0,0 +1,146 @@
+package com.microservicesdemo.demo.twitterToKafkaService.mock;
+
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+// generates the random Lorem ipsum tweets used by the mock stream runner
+// there are two ways to create a Status:
+// 1. nextStatusFromJson - the original way, format a tweet json and parse it with TwitterObjectFactory
+// 2. nextStatus - fill a reused MockStatus directly, the tweet texts come from a pool that is built once in the constructor
+//    so creating a tweet allocates nothing, which keeps the generator much cheaper than the producer path it is testing
+// Note: not thread safe, every generator thread should create its own instance
+public class MockTweetGenerator {
+    private static final String[] WORDS = new String[]{
+            "Lorem",
+            "ipsum",
+            "dolor",
+            "sit",
+            "amet",
+            "consectetuer",
+            "adipiscing",
+            "elit",
+            "Maecenas",
+            "porttitor",
+            "congue",
+            "massa",
+            "Fusce",
+            "posuere",
+            "magna",
+            "sed",
+            "pulvinar",
+            "ultricies",
+            "purus",
+            "lectus",
+            "malesuada",
+            "libero"
+    };
+
+    private static final String tweetAsRawJson = "{" +
+            "\"created_at\":\"{0}\"," +
+            "\"id\":\"{1}\"," +
+            "\"text\":\"{2}\"," +
+            "\"user\":{\"id\":\"{3}\"}" +
+            "}";
+
+    private static final String TWITTER_STATUS_DATE_FORMAT = "EEE MMM dd HH:mm:ss zzz yyyy";
+
+    // DateTimeFormatter is immutable and thread safe, so we build it once instead of calling ofPattern for every tweet
+    // final note it would be better to use English Locale for this date fromatter method
+    // cuz the format of the tweet is in english locale and you will get a Date parse error if your computer is in timezone if your computer doesnt use english locale
+    private static final DateTimeFormatter TWITTER_STATUS_DATE_FORMATTER =
+            DateTimeFormatter.ofPattern(TWITTER_STATUS_DATE_FORMAT, Locale.ENGLISH);
+
+    public static final int DEFAULT_TWEET_POOL_SIZE = 1024;
+
+    private final String[] keywords;
+
+    private final int minTweetLength;
+
+    private final int maxTweetLength;
+
+    private final String[] tweetPool;
+
+    private final MockStatus mockStatus = new MockStatus();
+
+    public MockTweetGenerator(String[] keywords, int minTweetLength, int maxTweetLength) {
+        this(keywords, minTweetLength, maxTweetLength, DEFAULT_TWEET_POOL_SIZE);
+    }
+
+    public MockTweetGenerator(String[] keywords, int minTweetLength, int maxTweetLength, int tweetPoolSize) {
+        this.keywords = keywords;
+        this.minTweetLength = minTweetLength;
+        this.maxTweetLength = maxTweetLength;
+        this.tweetPool = new String[tweetPoolSize];
+        for (int i = 0; i < tweetPoolSize; i++) {
+            tweetPool[i] = nextTweetText();
+        }
+    }
+
+    // returns the same MockStatus instance on every call, filled with a new random tweet
+    public Status nextStatus() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return mockStatus.set(
+                random.nextLong(Long.MAX_VALUE),
+                random.nextLong(Long.MAX_VALUE),
+                tweetPool[random.nextInt(tweetPool.length)],
+                System.currentTimeMillis());
+    }
+
+    public Status nextStatusFromJson() throws TwitterException {
+        return TwitterObjectFactory.createStatus(getFormattedTweet());
+    }
+
+    // First item in string array params to get currendt data, using zonedate now and formatting date
+    // second item we will use ThreadLocalRandom to get a random long number, to set the id fiekld of the tweet
+    // there is no nextLong with an upper bound in standard Random class
+    // so we use this thread safe ThreadLocalRandom class to create a random Long number
+    public String getFormattedTweet() {
+        String[] params = new String[] {
+                ZonedDateTime.now().format(TWITTER_STATUS_DATE_FORMATTER),
+                String.valueOf(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE)),
+                nextTweetText(),
+                String.valueOf(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE))
+        };
+
+        return formatTweetAsJsonWithParams(params);
+    }
+
+    private String formatTweetAsJsonWithParams(String[] params) {
+        String tweet = tweetAsRawJson;
+        for (int i = 0; i < params.length; i++) {
+            // String.replace does not change the string content but returns the result of the replacement.
+            // Strings are immutable which means you cant change them, but you can reassign lile str = str.replace...
+            // but you cant do str.replace -- you have to reassign
+            tweet = tweet.replace("{" + i + "}", params[i]);
+        }
+        return tweet;
+    }
+
+    public String nextTweetText() {
+        StringBuilder tweet = new StringBuilder();
+        // i wanna get a random twet length between minimum and maximum tweet length
+        // random integer between min and max tweetlength
+        // we do +1 cuz the last value is exclusve with nextInt
+        // ThreadLocalRandom instead of a shared Random, so generator threads dont contend on the same seed
+        int tweetLength = ThreadLocalRandom.current().nextInt(maxTweetLength - minTweetLength + 1) + minTweetLength;
+        return constructRandomTweet(tweet, tweetLength);
+    }
+
+    private String constructRandomTweet(StringBuilder tweet, int tweetLength) {
+        for (int i = 0; i < tweetLength; i++) {
+            // this is just an imainiation, you can use any
+            tweet.append(WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)]).append(" ");
+            if (i == tweetLength / 2) {
+                tweet.append(keywords[ThreadLocalRandom.current().nextInt(keywords.length)]).append(" ");
+            }
+        }
+        // cast stringbuilder to string cuz the return type is String
+        return tweet.toString().trim();
+    }
+}
@@ -0,0 +1,57 @@
+package com.microservicesdemo.demo.twitterToKafkaService.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// token bucket used to pace the mock tweet generators at a target rate
+// tokens are refilled lazily from System.nanoTime, so there is no timer thread and no Thread.sleep per tweet
+// when the bucket is empty we park only for the time needed to earn the next token,
+// and if the park overshoots the bucket just holds the extra tokens (up to maxTokens) so we catch up on the next calls
+// Note: this class is not thread safe on purpose, every generator thread owns its own bucket
+// so we never contend on a shared lock when running hundreds of thousands of tweets per second
+public class TokenBucket {
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double tokensPerNano;
+
+    private final double maxTokens;
+
+    private double availableTokens;
+
+    private long lastRefillNanos;
+
+    public TokenBucket(double tokensPerSecond, double maxTokens) {
+        if (tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Token bucket rate must be greater than 0, got " + tokensPerSecond);
+        }
+        this.tokensPerNano = tokensPerSecond / NANOS_PER_SECOND;
+        // we need at least one token in the bucket, otherwise acquire would never succeed
+        this.maxTokens = Math.max(1, maxTokens);
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    // allow bursts of 10ms worth of tokens, which is enough to absorb the parkNanos overshoot at high rates
+    public static TokenBucket withRate(double tokensPerSecond) {
+        return new TokenBucket(tokensPerSecond, tokensPerSecond / 100);
+    }
+
+    // blocks until a token is available, returns false if the calling thread was interrupted while waiting
+    public boolean acquire() {
+        while (!Thread.currentThread().isInterrupted()) {
+            refill();
+            if (availableTokens >= 1) {
+                availableTokens -= 1;
+                return true;
+            }
+            long waitNanos = (long) Math.ceil((1 - availableTokens) / tokensPerNano);
+            LockSupport.parkNanos(waitNanos);
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        availableTokens = Math.min(maxTokens, availableTokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,95 @@
+package com.microservicesdemo.demo.twitterToKafkaService.replay;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// reads a file through memory mapped windows instead of read calls, the pages come straight from the page cache
+// into our buffers and the os reads ahead on its own, so a replay costs no system call per chunk
+// a window is at most WINDOW_SIZE bytes, so files larger than the 2 GB a single mapping can hold work as well
+// the windows are unmapped by the gc, a replay only keeps the current one reachable
+public class MappedFileInputStream extends InputStream {
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel fileChannel;
+
+    private final long windowSize;
+
+    private final long size;
+
+    // file position of the start of the current window
+    private long windowPosition;
+
+    private MappedByteBuffer window;
+
+    public MappedFileInputStream(Path path) throws IOException {
+        this(path, WINDOW_SIZE);
+    }
+
+    // small windows let the tests roll over without a 64 MB file
+    MappedFileInputStream(Path path, long windowSize) throws IOException {
+        this.fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = fileChannel.size();
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!hasRemaining()) {
+            return -1;
+        }
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(length, window.remaining());
+        window.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count && hasRemaining()) {
+            int step = (int) Math.min(count - skipped, window.remaining());
+            window.position(window.position() + step);
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return window != null ? window.remaining() : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        fileChannel.close();
+    }
+
+    // maps the next window once the current one is read, false at the end of the file
+    private boolean hasRemaining() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        long nextPosition = window != null ? windowPosition + window.capacity() : 0;
+        if (nextPosition >= size) {
+            return false;
+        }
+        windowPosition = nextPosition;
+        window = fileChannel.map(FileChannel.MapMode.READ_ONLY, windowPosition, Math.min(windowSize, size - windowPosition));
+        return true;
+    }
+}
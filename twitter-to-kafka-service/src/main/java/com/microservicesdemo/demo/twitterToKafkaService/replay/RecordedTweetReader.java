@@ -0,0 +1,20 @@
+package com.microservicesdemo.demo.twitterToKafkaService.replay;
+
+import twitter4j.Status;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// reads the tweets of one recorded file in file order, see RecordedTweetReaders.open
+// Note: not thread safe, a file is read by one replay reader thread
+public interface RecordedTweetReader extends Closeable {
+    // the next tweet of the file or null at its end
+    // the Status can be reused for the next tweet, like the mock statuses, so listeners must not keep it
+    Status next() throws IOException;
+
+    // when the tweet next returned last was created, epoch millis, used to pace the replay
+    long getTimestampMs();
+
+    // records of the file that are no tweet or could not be read
+    long getSkippedCount();
+}
@@ -0,0 +1,93 @@
+package com.microservicesdemo.demo.twitterToKafkaService.replay;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.microservicesdemo.demo.config.ReplayConfigData.Format;
+import com.microservicesdemo.demo.twitterToKafkaService.exception.TwitterToKafkaServiceException;
+import com.microservicesdemo.demo.twitterToKafkaService.replay.impl.AvroContainerRecordedTweetReader;
+import com.microservicesdemo.demo.twitterToKafkaService.replay.impl.JsonLinesRecordedTweetReader;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+// opens the recorded tweet files of the replay, every file is mapped into memory (MappedFileInputStream)
+// and decompressed on the fly when its name ends in .gz or .zst
+public final class RecordedTweetReaders {
+    // the inflater and zstd read the mapped pages in chunks of this size
+    private static final int DECOMPRESSION_BUFFER_SIZE = 256 * 1024;
+
+    private RecordedTweetReaders() {
+    }
+
+    // the files to replay, the given files as they are and the files of the given directories in name order
+    public static List<Path> listFiles(List<String> paths) {
+        if (paths == null || paths.isEmpty()) {
+            throw new TwitterToKafkaServiceException("No replay-config.paths to replay tweets from");
+        }
+        List<Path> files = new ArrayList<>();
+        for (String path : paths) {
+            Path file = Paths.get(path);
+            if (Files.isDirectory(file)) {
+                try (Stream<Path> directoryFiles = Files.list(file)) {
+                    files.addAll(directoryFiles.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+                } catch (IOException e) {
+                    throw new TwitterToKafkaServiceException("Could not list the replay directory " + file, e);
+                }
+            } else if (Files.isRegularFile(file)) {
+                files.add(file);
+            } else {
+                throw new TwitterToKafkaServiceException("Replay file " + file + " does not exist");
+            }
+        }
+        return files;
+    }
+
+    public static RecordedTweetReader open(Path file, Format format) throws IOException {
+        InputStream inputStream = decompressed(file, new MappedFileInputStream(file));
+        try {
+            if (format == Format.AVRO || (format == Format.AUTO && baseName(file).endsWith(".avro"))) {
+                return new AvroContainerRecordedTweetReader(inputStream);
+            }
+            return new JsonLinesRecordedTweetReader(inputStream, file.getFileName().toString());
+        } catch (IOException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    private static InputStream decompressed(Path file, InputStream mapped) throws IOException {
+        String fileName = file.getFileName().toString();
+        try {
+            if (fileName.endsWith(".gz")) {
+                return new GZIPInputStream(mapped, DECOMPRESSION_BUFFER_SIZE);
+            }
+            if (fileName.endsWith(".zst")) {
+                return new BufferedInputStream(new ZstdInputStream(mapped), DECOMPRESSION_BUFFER_SIZE);
+            }
+            return mapped;
+        } catch (IOException e) {
+            mapped.close();
+            throw e;
+        }
+    }
+
+    // the file name without the compression suffix, tweets.avro.gz is an avro file
+    private static String baseName(Path file) {
+        String fileName = file.getFileName().toString();
+        if (fileName.endsWith(".gz")) {
+            return fileName.substring(0, fileName.length() - ".gz".length());
+        }
+        if (fileName.endsWith(".zst")) {
+            return fileName.substring(0, fileName.length() - ".zst".length());
+        }
+        return fileName;
+    }
+}
@@ -0,0 +1,61 @@
+package com.microservicesdemo.demo.twitterToKafkaService.replay;
+
+import com.microservicesdemo.demo.config.ReplayConfigData.Pacing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// holds every tweet of a file back until as much time passed since the first tweet of the file as passed between
+// their timestamps, divided by the speed multiplier. a reader that falls behind (a slow producer, a blocked hand off)
+// sends the late tweets right away to catch up, and tweets with an older timestamp than the one before are not held
+// every file starts on its own timeline when its reader picks it up, so parallel readers never wait for each other
+// Note: not thread safe, a reader creates one per file
+public class ReplayPacer {
+    private static final double NANOS_PER_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final boolean paced;
+
+    private final double nanosPerTimestampMs;
+
+    private boolean started;
+
+    private long firstTimestampMs;
+
+    private long startNanos;
+
+    public ReplayPacer(Pacing pacing, double speedMultiplier) {
+        validate(pacing, speedMultiplier);
+        this.paced = pacing == Pacing.ORIGINAL_TIMESTAMPS;
+        this.nanosPerTimestampMs = NANOS_PER_MS / speedMultiplier;
+    }
+
+    // the speed multiplier only matters with original timestamps, there it divides the gaps between the tweets
+    public static void validate(Pacing pacing, double speedMultiplier) {
+        if (pacing == Pacing.ORIGINAL_TIMESTAMPS && speedMultiplier <= 0) {
+            throw new IllegalArgumentException("Replay speed multiplier must be greater than 0, got " + speedMultiplier);
+        }
+    }
+
+    // blocks until the tweet with this timestamp is due, returns false if the calling thread was interrupted
+    public boolean awaitTurn(long timestampMs) {
+        if (!paced) {
+            return !Thread.currentThread().isInterrupted();
+        }
+        long nowNanos = System.nanoTime();
+        if (!started) {
+            started = true;
+            firstTimestampMs = timestampMs;
+            startNanos = nowNanos;
+            return !Thread.currentThread().isInterrupted();
+        }
+        long dueNanos = startNanos + (long) ((timestampMs - firstTimestampMs) * nanosPerTimestampMs);
+        while (nowNanos - dueNanos < 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(dueNanos - nowNanos);
+            nowNanos = System.nanoTime();
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+}
@@ -0,0 +1,58 @@
+package com.microservicesdemo.demo.twitterToKafkaService.replay.impl;
+
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.twitterToKafkaService.mock.MockStatus;
+import com.microservicesdemo.demo.twitterToKafkaService.replay.RecordedTweetReader;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.specific.SpecificDatumReader;
+import twitter4j.Status;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// avro container file of TwitterAvroModel records, eg. the twitter topic dumped with the avro console consumer
+// and written with avro-tools fromjson, the blocks are decompressed with the codec named in the file header
+// (null, deflate, snappy, zstd), and a file written with an older or newer TwitterAvroModel schema is resolved
+// against ours. the record and the status are reused for every tweet, like in the mock direct mode
+public class AvroContainerRecordedTweetReader implements RecordedTweetReader {
+    private final DataFileStream<TwitterAvroModel> dataFileStream;
+
+    private final MockStatus status = new MockStatus();
+
+    private TwitterAvroModel record;
+
+    private long timestampMs;
+
+    public AvroContainerRecordedTweetReader(InputStream inputStream) throws IOException {
+        this.dataFileStream = new DataFileStream<>(inputStream, new SpecificDatumReader<>(TwitterAvroModel.class));
+    }
+
+    @Override
+    public Status next() throws IOException {
+        if (!dataFileStream.hasNext()) {
+            return null;
+        }
+        record = dataFileStream.next(record);
+        // a tweet without createdAt keeps the timestamp of the one before, so it is sent right after it
+        if (record.getCreatedAt() != null) {
+            timestampMs = record.getCreatedAt();
+        }
+        return status.set(record.getId(), record.getUserId(), record.getText(), timestampMs);
+    }
+
+    @Override
+    public long getTimestampMs() {
+        return timestampMs;
+    }
+
+    // the container file has a schema, every record in it is a tweet
+    @Override
+    public long getSkippedCount() {
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        dataFileStream.close();
+    }
+}
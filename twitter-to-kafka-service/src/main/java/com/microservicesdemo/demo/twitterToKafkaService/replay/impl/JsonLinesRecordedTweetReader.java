@@ -0,0 +1,163 @@
+package com.microservicesdemo.demo.twitterToKafkaService.replay.impl;
+
+import com.microservicesdemo.demo.common.logging.SampledLogger;
+import com.microservicesdemo.demo.twitterToKafkaService.replay.RecordedTweetReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// one tweet json per line, what the twitter streaming api sends and what most capture tools write
+// the lines are split on the raw bytes and every line is decoded into a string once, a newline byte can not be
+// part of a multi byte utf-8 character, so this is safe without decoding first
+// the stream also sends delete, limit and warning notices, those have no created_at and are skipped
+public class JsonLinesRecordedTweetReader implements RecordedTweetReader {
+    private static final Logger LOG = LoggerFactory.getLogger(JsonLinesRecordedTweetReader.class);
+
+    private static final SampledLogger SKIPPED_LOG = SampledLogger.perSecond(LOG, 1);
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private static final String CREATED_AT_FIELD = "\"created_at\"";
+
+    // milliseconds since epoch as a string, the stream api adds it to every tweet, created_at only has seconds
+    private static final String TIMESTAMP_MS_FIELD = "\"timestamp_ms\":\"";
+
+    private final InputStream inputStream;
+
+    private final String fileName;
+
+    // bytes read from the stream, the next line starts at lineStart and the read bytes end at bufferEnd
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    private int lineStart;
+
+    private int bufferEnd;
+
+    private boolean endOfStream;
+
+    private long lineNumber;
+
+    private long timestampMs;
+
+    private long skippedCount;
+
+    public JsonLinesRecordedTweetReader(InputStream inputStream, String fileName) {
+        this.inputStream = inputStream;
+        this.fileName = fileName;
+    }
+
+    @Override
+    public Status next() throws IOException {
+        String line;
+        while ((line = nextLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (!line.contains(CREATED_AT_FIELD)) {
+                skippedCount++;
+                continue;
+            }
+            try {
+                Status status = TwitterObjectFactory.createStatus(line);
+                timestampMs = timestampMs(line, status);
+                return status;
+            } catch (TwitterException e) {
+                skippedCount++;
+                SKIPPED_LOG.warn("Skipping line {} of {}, it is no tweet json", lineNumber, fileName);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long getTimestampMs() {
+        return timestampMs;
+    }
+
+    @Override
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    // the next line without its line break, null at the end of the stream
+    private String nextLine() throws IOException {
+        int searchFrom = lineStart;
+        while (true) {
+            for (int i = searchFrom; i < bufferEnd; i++) {
+                if (buffer[i] == '\n') {
+                    String line = decode(lineStart, i);
+                    lineStart = i + 1;
+                    return line;
+                }
+            }
+            if (endOfStream) {
+                // the last line of a file does not need a line break
+                if (lineStart < bufferEnd) {
+                    String line = decode(lineStart, bufferEnd);
+                    lineStart = bufferEnd;
+                    return line;
+                }
+                return null;
+            }
+            searchFrom = bufferEnd - lineStart;
+            fill();
+        }
+    }
+
+    // moves the started line to the front of the buffer, grows it for lines longer than the buffer, then reads more
+    private void fill() throws IOException {
+        int lineLength = bufferEnd - lineStart;
+        if (lineStart > 0) {
+            System.arraycopy(buffer, lineStart, buffer, 0, lineLength);
+            lineStart = 0;
+            bufferEnd = lineLength;
+        }
+        if (bufferEnd == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = inputStream.read(buffer, bufferEnd, buffer.length - bufferEnd);
+        if (read < 0) {
+            endOfStream = true;
+        } else {
+            bufferEnd += read;
+        }
+    }
+
+    private String decode(int start, int end) {
+        lineNumber++;
+        // files written on windows end their lines with \r\n
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    // a tweet without any timestamp keeps the one of the tweet before, so it is sent right after it
+    private long timestampMs(String line, Status status) {
+        int index = line.indexOf(TIMESTAMP_MS_FIELD);
+        if (index >= 0) {
+            int start = index + TIMESTAMP_MS_FIELD.length();
+            int end = line.indexOf('"', start);
+            if (end > start) {
+                try {
+                    return Long.parseLong(line.substring(start, end));
+                } catch (NumberFormatException e) {
+                    // fall back to created_at
+                }
+            }
+        }
+        return status.getCreatedAt() != null ? status.getCreatedAt().getTime() : timestampMs;
+    }
+}
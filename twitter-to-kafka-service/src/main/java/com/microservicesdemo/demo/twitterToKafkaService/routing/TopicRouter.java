@@ -0,0 +1,15 @@
+package com.microservicesdemo.demo.twitterToKafkaService.routing;
+
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.KeywordMatches;
+import twitter4j.Status;
+
+import java.util.List;
+
+// picks the kafka topics of a tweet from the routes in topic-routing-config
+public interface TopicRouter {
+    boolean isEnabled();
+
+    // topics the tweet goes to, empty when it should be dropped
+    // the keyword matches must come from the KeywordMatcher bean, the returned list is reused by the next call on the same thread
+    List<String> route(Status status, KeywordMatches keywordMatches);
+}
@@ -0,0 +1,181 @@
+package com.microservicesdemo.demo.twitterToKafkaService.routing.impl;
+
+import com.microservicesdemo.demo.config.KafkaConfigData;
+import com.microservicesdemo.demo.config.TopicRoutingConfigData;
+import com.microservicesdemo.demo.config.TopicRoutingConfigData.Route;
+import com.microservicesdemo.demo.twitterToKafkaService.exception.TwitterToKafkaServiceException;
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.KeywordMatcher;
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.KeywordMatches;
+import com.microservicesdemo.demo.twitterToKafkaService.routing.TopicRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import twitter4j.Status;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// evaluates the routes of topic-routing-config for every tweet, in the order they are configured
+// the routes are compiled once at startup, keywords become indexes into the KeywordMatcher so a keyword condition
+// is an array lookup in the KeywordMatches of the tweet, and the text is never scanned again per route
+@Component
+public class ContentBasedTopicRouter implements TopicRouter {
+    private static final Logger LOG = LoggerFactory.getLogger(ContentBasedTopicRouter.class);
+
+    private static final String PREFIX = "twitter.route";
+
+    private final boolean enabled;
+
+    private final boolean fanOut;
+
+    private final String defaultTopic;
+
+    private final CompiledRoute[] routes;
+
+    private final Counter unroutedCounter;
+
+    private final Counter defaultTopicCounter;
+
+    private final ThreadLocal<List<String>> topics = ThreadLocal.withInitial(ArrayList::new);
+
+    public ContentBasedTopicRouter(TopicRoutingConfigData topicRoutingConfigData, KafkaConfigData kafkaConfigData,
+                                   KeywordMatcher keywordMatcher, MeterRegistry meterRegistry) {
+        this.enabled = topicRoutingConfigData.isRoutingEnabled();
+        this.fanOut = !Boolean.FALSE.equals(topicRoutingConfigData.getFanOut());
+        this.defaultTopic = Boolean.FALSE.equals(topicRoutingConfigData.getSendUnroutedToDefaultTopic())
+                ? null : kafkaConfigData.getTopicName();
+        List<Route> configuredRoutes = topicRoutingConfigData.getRoutesToCreate();
+        this.routes = new CompiledRoute[configuredRoutes.size()];
+        for (int i = 0; i < routes.length; i++) {
+            routes[i] = new CompiledRoute(configuredRoutes.get(i), keywordMatcher, meterRegistry);
+        }
+        this.unroutedCounter = Counter.builder(PREFIX + ".unrouted")
+                .description("Tweets dropped because they matched no route")
+                .register(meterRegistry);
+        // its own meter, a route can target the default topic too and would share a routed counter with it
+        this.defaultTopicCounter = Counter.builder(PREFIX + ".default")
+                .description("Tweets sent to the default topic because they matched no route")
+                .tag("topic", String.valueOf(kafkaConfigData.getTopicName()))
+                .register(meterRegistry);
+        if (enabled) {
+            LOG.info("Routing tweets over {} routes, fan out {}, unrouted tweets to {}", routes.length, fanOut,
+                    defaultTopic != null ? defaultTopic : "nowhere");
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public List<String> route(Status status, KeywordMatches keywordMatches) {
+        List<String> routedTopics = topics.get();
+        routedTopics.clear();
+        for (CompiledRoute route : routes) {
+            if (route.matches(status, keywordMatches)) {
+                route.routedCounter.increment();
+                routedTopics.add(route.topic);
+                if (!fanOut) {
+                    break;
+                }
+            }
+        }
+        if (routedTopics.isEmpty()) {
+            if (defaultTopic != null) {
+                defaultTopicCounter.increment();
+                routedTopics.add(defaultTopic);
+            } else {
+                unroutedCounter.increment();
+            }
+        }
+        return routedTopics;
+    }
+
+    private static final class CompiledRoute {
+        private final String topic;
+
+        // indexes of the route keywords in the KeywordMatcher, null when the route has no keyword condition
+        private final int[] keywordIndexes;
+
+        // lower case iso codes, null when the route has no language condition
+        private final Set<String> languages;
+
+        private final long minUserId;
+
+        private final long maxUserId;
+
+        private final Counter routedCounter;
+
+        private CompiledRoute(Route route, KeywordMatcher keywordMatcher, MeterRegistry meterRegistry) {
+            if (route.getTopic() == null || route.getTopic().trim().isEmpty()) {
+                throw new TwitterToKafkaServiceException("Every route in topic-routing-config needs a topic");
+            }
+            this.topic = route.getTopic().trim();
+            this.keywordIndexes = compileKeywords(route, keywordMatcher);
+            this.languages = compileLanguages(route);
+            this.minUserId = route.getMinUserId() != null ? route.getMinUserId() : Long.MIN_VALUE;
+            this.maxUserId = route.getMaxUserId() != null ? route.getMaxUserId() : Long.MAX_VALUE;
+            this.routedCounter = Counter.builder(PREFIX + ".routed")
+                    .description("Tweets sent to the topic of a route")
+                    .tag("topic", topic)
+                    .register(meterRegistry);
+        }
+
+        private boolean matches(Status status, KeywordMatches keywordMatches) {
+            if (keywordIndexes != null && !containsAny(keywordMatches)) {
+                return false;
+            }
+            if (languages != null && (status.getLang() == null || !languages.contains(status.getLang().toLowerCase(Locale.ROOT)))) {
+                return false;
+            }
+            if (minUserId != Long.MIN_VALUE || maxUserId != Long.MAX_VALUE) {
+                long userId = status.getUser().getId();
+                return userId >= minUserId && userId <= maxUserId;
+            }
+            return true;
+        }
+
+        private boolean containsAny(KeywordMatches keywordMatches) {
+            for (int keywordIndex : keywordIndexes) {
+                if (keywordMatches.contains(keywordIndex)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // route keywords must be twitter-keywords, the stream only delivers tweets for those and they are all we match
+        private static int[] compileKeywords(Route route, KeywordMatcher keywordMatcher) {
+            if (route.getKeywords() == null || route.getKeywords().isEmpty()) {
+                return null;
+            }
+            int[] indexes = new int[route.getKeywords().size()];
+            for (int i = 0; i < indexes.length; i++) {
+                String keyword = route.getKeywords().get(i);
+                indexes[i] = keywordMatcher.indexOf(keyword);
+                if (indexes[i] < 0) {
+                    throw new TwitterToKafkaServiceException("Keyword " + keyword + " of the route to topic " + route.getTopic() +
+                            " is not one of the twitter-keywords");
+                }
+            }
+            return indexes;
+        }
+
+        private static Set<String> compileLanguages(Route route) {
+            if (route.getLanguages() == null || route.getLanguages().isEmpty()) {
+                return null;
+            }
+            Set<String> languages = new HashSet<>();
+            for (String language : route.getLanguages()) {
+                languages.add(language.trim().toLowerCase(Locale.ROOT));
+            }
+            return languages;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.microservicesdemo.demo.twitterToKafkaService.runner.impl;
+
+import com.microservicesdemo.demo.common.concurrent.ThreadFactories;
+import com.microservicesdemo.demo.config.ReplayConfigData;
+import com.microservicesdemo.demo.config.ThreadingConfigData;
+import com.microservicesdemo.demo.twitterToKafkaService.listener.TwitterKafkaStatusListener;
+import com.microservicesdemo.demo.twitterToKafkaService.replay.RecordedTweetReader;
+import com.microservicesdemo.demo.twitterToKafkaService.replay.RecordedTweetReaders;
+import com.microservicesdemo.demo.twitterToKafkaService.replay.ReplayPacer;
+import com.microservicesdemo.demo.twitterToKafkaService.runner.StreamRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import twitter4j.Status;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+// the third implementation of the stream runner, it replays recorded tweets from files through the same listener
+// so benchmarks see real tweet texts, users and bursts instead of lorem ipsum, and a backfill sends the tweets
+// of an outage again. it wins over the mock and the twitter stream when replay-config.enabled is true
+@ConditionalOnProperty(name = "replay-config.enabled", havingValue = "true")
+public class ReplayKafkaStreamRunner implements StreamRunner {
+    private static final Logger LOG = LoggerFactory.getLogger(ReplayKafkaStreamRunner.class);
+
+    private final ReplayConfigData replayConfigData;
+    private final TwitterKafkaStatusListener twitterKafkaStatusListener;
+    private final ThreadingConfigData threadingConfigData;
+
+    // keep a reference to the executor so we can stop the readers before the application shuts down
+    private ExecutorService executorService;
+
+    private final AtomicLong replayedCount = new AtomicLong();
+
+    private final AtomicLong skippedCount = new AtomicLong();
+
+    public ReplayKafkaStreamRunner(ReplayConfigData replayConfigData, TwitterKafkaStatusListener twitterKafkaStatusListener, ThreadingConfigData threadingConfigData) {
+        this.replayConfigData = replayConfigData;
+        this.twitterKafkaStatusListener = twitterKafkaStatusListener;
+        this.threadingConfigData = threadingConfigData;
+    }
+
+    @Override
+    public void start() {
+        List<Path> files = RecordedTweetReaders.listFiles(replayConfigData.getPaths());
+        // fails here on a bad speed multiplier, and not in every reader thread
+        ReplayPacer.validate(replayConfigData.getPacingOrDefault(), replayConfigData.getSpeedMultiplierOrDefault());
+        // the readers take the next file from the queue when they are done with one, so a large file doesnt hold up the rest
+        Queue<Path> pendingFiles = new ConcurrentLinkedQueue<>(files);
+        int readerCount = Math.max(1, Math.min(replayConfigData.getReaderThreadsOrDefault(), files.size()));
+        LOG.info("Replaying {} files with {} readers, pacing {} with speed multiplier {}", files.size(), readerCount,
+                replayConfigData.getPacingOrDefault(), replayConfigData.getSpeedMultiplierOrDefault());
+        AtomicInteger runningReaders = new AtomicInteger(readerCount);
+        long startNanos = System.nanoTime();
+        executorService = ThreadFactories.newExecutor(threadingConfigData.getModeOrDefault(), "tweet-replay-reader", readerCount);
+        for (int i = 0; i < readerCount; i++) {
+            executorService.submit(() -> {
+                Path file;
+                while (!Thread.currentThread().isInterrupted() && (file = pendingFiles.poll()) != null) {
+                    replay(file);
+                }
+                if (runningReaders.decrementAndGet() == 0 && !Thread.currentThread().isInterrupted()) {
+                    LOG.info("Replay finished, {} tweets in {} ms, {} records skipped", replayedCount.get(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), skippedCount.get());
+                }
+            });
+        }
+    }
+
+    // stop the readers before the kafka producer bean is destroyed
+    @PreDestroy
+    public void shutDown() {
+        if (executorService != null) {
+            LOG.info("Stopping tweet replay!");
+            executorService.shutdownNow();
+        }
+    }
+
+    // a file that can not be read is logged and skipped, the other files are still replayed
+    private void replay(Path file) {
+        ReplayPacer replayPacer = new ReplayPacer(replayConfigData.getPacingOrDefault(), replayConfigData.getSpeedMultiplierOrDefault());
+        long count = 0;
+        try (RecordedTweetReader reader = RecordedTweetReaders.open(file, replayConfigData.getFormatOrDefault())) {
+            Status status;
+            while ((status = reader.next()) != null) {
+                // false when shutDown interrupted us
+                if (!replayPacer.awaitTurn(reader.getTimestampMs())) {
+                    break;
+                }
+                twitterKafkaStatusListener.onStatus(status);
+                count++;
+            }
+            skippedCount.addAndGet(reader.getSkippedCount());
+            LOG.info("Replayed {} tweets from {}, skipped {} records", count, file, reader.getSkippedCount());
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Could not replay {} after {} tweets", file, count, e);
+        } finally {
+            replayedCount.addAndGet(count);
+        }
+    }
+}
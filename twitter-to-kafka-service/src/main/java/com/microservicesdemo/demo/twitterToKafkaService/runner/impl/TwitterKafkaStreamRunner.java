@@ -5,7 +5,7 @@ import com.microservicesdemo.demo.twitterToKafkaService.runner.StreamRunner;
 import com.microservicesdemo.demo.twitterToKafkaService.listener.TwitterKafkaStatusListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import twitter4j.FilterQuery;
 import twitter4j.TwitterException;
@@ -13,15 +13,17 @@ import twitter4j.TwitterStream;
 import twitter4j.TwitterStreamFactory;
 
 import javax.annotation.PreDestroy;
+import java.util.Arrays;
 
 @Component
 // since we program to interface instead of concrete class, we can easily swich two implmentations
-// and set havingValue to false for this mock implemetation of Stream Runner
-// matchIfMissing to true for twitter implmentation, the original tweet implemation will be loaded and used so incase this enable-mock-tweets cannot be found in configuration
+// and require enable-mock-tweets to be false for the twitter implmentation
+// the :false default makes the original tweet implemation be loaded and used incase this enable-mock-tweets cannot be found in configuration
 // now if we set the configuration value, enable-mock-tweets in application.yml as true, the mock implementation will be loaded at runtime, while twitter implemantation will be ignored
 // and vice versa
 // this way we decide the implentation class at compile time by just setting a configuration variable and Spring will load the correct bean at runtime
-@ConditionalOnProperty(name = "twitter-to-kafka-service.enable-mock-tweets", havingValue = "false", matchIfMissing = true)
+// unless the replay of recorded tweets is enabled, it wins over both (see ReplayKafkaStreamRunner)
+@ConditionalOnExpression("!${twitter-to-kafka-service.enable-mock-tweets:false} and !${replay-config.enabled:false}")
 public class TwitterKafkaStreamRunner implements StreamRunner {
 
     private static final Logger LOG = LoggerFactory.getLogger(TwitterKafkaStreamRunner.class);
@@ -42,10 +44,7 @@ public class TwitterKafkaStreamRunner implements StreamRunner {
         // creating a twitter stream
         twitterStream = new TwitterStreamFactory().getInstance();
         twitterStream.addListener(twitterKafkaStatusListener);
-        long[] bla = {1,2,3};
-        FilterQuery filterQuery = new FilterQuery(1,bla);
-        twitterStream.filter(filterQuery);
-        LOG.info("Started filtering twitter stream for keywords {}");
+        addFilter();
     }
 
     // this method will be called before the bean is destoryed, means before the application is shut down
@@ -58,10 +57,12 @@ public class TwitterKafkaStreamRunner implements StreamRunner {
         }
     }
 
+    // the stream only delivers tweets with one of the twitter-keywords, the listener matches them again locally
+    // to drop the tweets twitter matched on something other than the text
     private void addFilter() {
-//        String[] keywords = twitterToKafkaServiceConfigData.getTwitterKeywords().toArray(new String[]{});
-//        FilterQuery filterQuery = new FilterQuery(keywords);
-//        twitterStream.filter(filterQuery);
-        LOG.info("Started filtering twitter stream for keywords {}");
+        String[] keywords = twitterToKafkaServiceConfigData.getTwitterKeywords().toArray(new String[0]);
+        FilterQuery filterQuery = new FilterQuery(keywords);
+        twitterStream.filter(filterQuery);
+        LOG.info("Started filtering twitter stream for keywords {}", Arrays.toString(keywords));
     }
 }
@@ -1,11 +1,22 @@
 package com.microservicesdemo.demo.twitterToKafkaService.transformer;
 
-import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservices.demo.kafka.avro.model.TwitterAvroModel;
+import com.microservicesdemo.demo.config.TwitterToKafkaServiceConfigData;
+import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroRecord;
+import com.microservicesdemo.demo.kafka.avro.model.TwitterAvroRecordPool;
 import org.springframework.stereotype.Component;
 import twitter4j.Status;
 
 @Component
 public class TwitterStatusToAvroTransformer {
+    // null when record-pool-size is 0, then getTwitterAvroRecordFromStatus falls back to the builder
+    private final TwitterAvroRecordPool twitterAvroRecordPool;
+
+    public TwitterStatusToAvroTransformer(TwitterToKafkaServiceConfigData twitterToKafkaServiceConfigData) {
+        Integer recordPoolSize = twitterToKafkaServiceConfigData.getRecordPoolSize();
+        this.twitterAvroRecordPool = recordPoolSize != null && recordPoolSize > 0 ? new TwitterAvroRecordPool(recordPoolSize) : null;
+    }
+
     public TwitterAvroModel getTwitterAvroModelFromStatus(Status status) {
         return TwitterAvroModel
                 .newBuilder()
@@ -15,4 +26,14 @@ public class TwitterStatusToAvroTransformer {
                 .setCreatedAt(status.getCreatedAt().getTime())
                 .build();
     }
+
+    // hot path of onStatus, fills a pooled record in place instead of going through the builder
+    // the kafka producer recycles the record once the broker acked it
+    public TwitterAvroModel getTwitterAvroRecordFromStatus(Status status) {
+        if (twitterAvroRecordPool == null) {
+            return getTwitterAvroModelFromStatus(status);
+        }
+        TwitterAvroRecord twitterAvroRecord = twitterAvroRecordPool.acquire();
+        return twitterAvroRecord.set(status.getUser().getId(), status.getId(), status.getText(), status.getCreatedAt().getTime());
+    }
 }
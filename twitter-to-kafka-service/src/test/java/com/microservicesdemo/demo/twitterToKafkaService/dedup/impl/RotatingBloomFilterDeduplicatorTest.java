@@ -0,0 +1,120 @@
+package com.microservicesdemo.demo.twitterToKafkaService.dedup.impl;
+
+import com.microservicesdemo.demo.config.DedupConfigData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the window of a day never rotates on its own during a test, the tests call rotate instead
+public class RotatingBloomFilterDeduplicatorTest {
+    private static final int GENERATIONS = 4;
+
+    private static final long EXPECTED_TWEETS_PER_GENERATION = 100_000;
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    // the ids of the new tweets start far away from the ids that were added
+    private static final long ADDED_IDS = 1_000_000_000_000L;
+
+    private static final long NEW_IDS = 2_000_000_000_000L;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RotatingBloomFilterDeduplicator deduplicator = start();
+
+    @AfterEach
+    public void shutDown() {
+        deduplicator.shutDown();
+    }
+
+    @Test
+    public void reportsAnIdSeenInTheCurrentGeneration() {
+        assertFalse(deduplicator.isDuplicate(42L));
+        assertTrue(deduplicator.isDuplicate(42L));
+        assertFalse(deduplicator.isDuplicate(43L));
+    }
+
+    // an id stays in its generation until that generation is cleared, that is when it comes round as the current one
+    @Test
+    public void forgetsAnIdWhenItsGenerationIsCleared() {
+        assertFalse(deduplicator.isDuplicate(42L));
+        for (int i = 1; i < GENERATIONS; i++) {
+            deduplicator.rotate();
+            assertTrue(deduplicator.isDuplicate(42L), "forgotten after " + i + " rotations");
+        }
+
+        deduplicator.rotate();
+
+        assertFalse(deduplicator.isDuplicate(42L));
+        assertTrue(deduplicator.isDuplicate(42L));
+    }
+
+    // a duplicate found in an older generation is not added to the current one, so it still expires with its generation
+    @Test
+    public void doesNotRenewAnIdThatWasSeenAgain() {
+        assertFalse(deduplicator.isDuplicate(42L));
+        deduplicator.rotate();
+        assertTrue(deduplicator.isDuplicate(42L));
+        for (int i = 1; i < GENERATIONS; i++) {
+            deduplicator.rotate();
+        }
+
+        assertFalse(deduplicator.isDuplicate(42L));
+    }
+
+    @Test
+    public void hasNoFalseNegativesWithinTheWindow() {
+        for (long id = ADDED_IDS; id < ADDED_IDS + EXPECTED_TWEETS_PER_GENERATION; id++) {
+            deduplicator.isDuplicate(id);
+        }
+        deduplicator.rotate();
+
+        for (long id = ADDED_IDS; id < ADDED_IDS + EXPECTED_TWEETS_PER_GENERATION; id++) {
+            assertTrue(deduplicator.isDuplicate(id));
+        }
+    }
+
+    // the older generations are full and the current one is empty, so a new id is checked against
+    // GENERATIONS - 1 full filters and the estimate is 1 - (1 - p) ^ (GENERATIONS - 1), not p
+    @Test
+    public void dropsNewTweetsAtTheEstimatedFalsePositiveRate() {
+        long id = ADDED_IDS;
+        for (int generation = 0; generation < GENERATIONS; generation++) {
+            for (int i = 0; i < EXPECTED_TWEETS_PER_GENERATION; i++) {
+                deduplicator.isDuplicate(id++);
+            }
+            deduplicator.rotate();
+        }
+        double estimate = meterRegistry.get("twitter.dedup.false.positive.probability").gauge().value();
+        assertEquals(1 - Math.pow(1 - FALSE_POSITIVE_PROBABILITY, GENERATIONS - 1), estimate, 0.005);
+
+        // few enough new ids that the current generation they go into stays almost empty
+        int newTweets = 20_000;
+        int dropped = 0;
+        for (long newId = NEW_IDS; newId < NEW_IDS + newTweets; newId++) {
+            if (deduplicator.isDuplicate(newId)) {
+                dropped++;
+            }
+        }
+
+        double measured = (double) dropped / newTweets;
+        assertEquals(estimate, measured, estimate * 0.25, "measured false positive rate " + measured);
+    }
+
+    private RotatingBloomFilterDeduplicator start() {
+        DedupConfigData dedupConfigData = new DedupConfigData();
+        dedupConfigData.setEnabled(true);
+        dedupConfigData.setWindowMs(24 * 60 * 60 * 1000L);
+        dedupConfigData.setGenerations(GENERATIONS);
+        dedupConfigData.setExpectedTweetsPerGeneration(EXPECTED_TWEETS_PER_GENERATION);
+        dedupConfigData.setFalsePositiveProbability(FALSE_POSITIVE_PROBABILITY);
+        RotatingBloomFilterDeduplicator rotatingBloomFilterDeduplicator = new RotatingBloomFilterDeduplicator(dedupConfigData, meterRegistry);
+        rotatingBloomFilterDeduplicator.start();
+        return rotatingBloomFilterDeduplicator;
+    }
+}
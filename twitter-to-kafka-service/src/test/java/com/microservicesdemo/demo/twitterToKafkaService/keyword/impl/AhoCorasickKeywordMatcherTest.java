@@ -0,0 +1,129 @@
+package com.microservicesdemo.demo.twitterToKafkaService.keyword.impl;
+
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.KeywordMatcher;
+import com.microservicesdemo.demo.twitterToKafkaService.keyword.KeywordMatches;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AhoCorasickKeywordMatcherTest {
+
+    // the classic he, she, his, hers example, in ushers the keywords end inside each other and share the failure chain
+    @Test
+    public void findsOverlappingKeywords() {
+        KeywordMatcher keywordMatcher = new AhoCorasickKeywordMatcher(Arrays.asList("he", "she", "his", "hers"), false);
+
+        assertEquals(Arrays.asList("she", "he", "hers"), match(keywordMatcher, "ushers"));
+        assertEquals(Arrays.asList("his", "she", "he"), match(keywordMatcher, "hishe"));
+        assertEquals(Collections.emptyList(), match(keywordMatcher, "hi s"));
+    }
+
+    // a keyword that is a part of a longer keyword still matches on its own, with whole words as well
+    @Test
+    public void findsAKeywordInsideALongerKeyword() {
+        KeywordMatcher keywordMatcher = new AhoCorasickKeywordMatcher(Arrays.asList("new york", "york"), true);
+
+        assertEquals(Arrays.asList("new york", "york"), match(keywordMatcher, "flights to new york today"));
+        assertEquals(Collections.singletonList("york"), match(keywordMatcher, "york minster"));
+        assertEquals(Collections.emptyList(), match(keywordMatcher, "newyork yorkshire"));
+    }
+
+    @Test
+    public void matchesWholeWordsOnly() {
+        KeywordMatcher keywordMatcher = new AhoCorasickKeywordMatcher(Arrays.asList("Java", "Kafka"), true);
+
+        assertEquals(Collections.singletonList("Java"), match(keywordMatcher, "Java"));
+        assertEquals(Collections.singletonList("Java"), match(keywordMatcher, "i like java, and you?"));
+        assertEquals(Collections.singletonList("Java"), match(keywordMatcher, "#java"));
+        assertEquals(Collections.singletonList("Kafka"), match(keywordMatcher, "JavaScript and kafka"));
+        assertEquals(Collections.emptyList(), match(keywordMatcher, "JavaScript"));
+        assertEquals(Collections.emptyList(), match(keywordMatcher, "java8"));
+        assertEquals(Collections.emptyList(), match(keywordMatcher, "java_17"));
+        assertEquals(Collections.emptyList(), match(keywordMatcher, "kafkaesque"));
+    }
+
+    @Test
+    public void matchesPartsOfWordsWithoutWholeWords() {
+        KeywordMatcher keywordMatcher = new AhoCorasickKeywordMatcher(Arrays.asList("Java", "Kafka"), false);
+
+        assertEquals(Collections.singletonList("Java"), match(keywordMatcher, "JavaScript"));
+        assertEquals(Collections.singletonList("Kafka"), match(keywordMatcher, "kafkaesque"));
+    }
+
+    @Test
+    public void foldsTheCaseOfTheTextAndTheKeywords() {
+        KeywordMatcher keywordMatcher = new AhoCorasickKeywordMatcher(Arrays.asList("Kafka", "ÜBER", "microservices"), true);
+
+        assertEquals(Collections.singletonList("Kafka"), match(keywordMatcher, "KAFKA"));
+        assertEquals(Collections.singletonList("Kafka"), match(keywordMatcher, "kAfKa"));
+        assertEquals(Collections.singletonList("ÜBER"), match(keywordMatcher, "über alles"));
+        assertEquals(Collections.singletonList("microservices"), match(keywordMatcher, "MicroServices"));
+        assertEquals(1, keywordMatcher.indexOf("über"));
+        assertEquals(2, keywordMatcher.indexOf(" MICROSERVICES "));
+        assertEquals(-1, keywordMatcher.indexOf("micro"));
+    }
+
+    // the keyword list keeps the first spelling of a keyword, a second spelling that folds to the same keyword is ignored
+    @Test
+    public void dropsDuplicateAndBlankKeywords() {
+        KeywordMatcher keywordMatcher = new AhoCorasickKeywordMatcher(Arrays.asList("Kafka", " kafka ", "", "  ", null, "Java"), true);
+
+        assertEquals(2, keywordMatcher.getKeywordCount());
+        assertEquals("Kafka", keywordMatcher.getKeyword(0));
+        assertEquals("Java", keywordMatcher.getKeyword(1));
+    }
+
+    @Test
+    public void countsAKeywordOncePerText() {
+        KeywordMatcher keywordMatcher = new AhoCorasickKeywordMatcher(Arrays.asList("Kafka", "Java"), true);
+        KeywordMatches matches = keywordMatcher.newMatches();
+
+        assertEquals(1, keywordMatcher.match("kafka kafka KAFKA", matches));
+        assertTrue(matches.contains(0));
+        assertFalse(matches.contains(1));
+
+        // the matches are cleared by the next call
+        assertEquals(1, keywordMatcher.match("java", matches));
+        assertFalse(matches.contains(0));
+        assertTrue(matches.contains(1));
+    }
+
+    @Test
+    public void matchesNothingWithoutKeywords() {
+        KeywordMatcher keywordMatcher = new AhoCorasickKeywordMatcher(Collections.emptyList(), true);
+        KeywordMatches matches = keywordMatcher.newMatches();
+
+        assertEquals(0, keywordMatcher.getKeywordCount());
+        assertEquals(0, keywordMatcher.match("any tweet text", matches));
+        assertEquals(0, keywordMatcher.match("", matches));
+        assertEquals(0, keywordMatcher.match(null, matches));
+        assertTrue(matches.isEmpty());
+        assertEquals(-1, keywordMatcher.indexOf("any"));
+        assertEquals(-1, keywordMatcher.indexOf(null));
+    }
+
+    @Test
+    public void matchesNothingInANullText() {
+        KeywordMatcher keywordMatcher = new AhoCorasickKeywordMatcher(Collections.singletonList("Kafka"), true);
+
+        assertEquals(0, keywordMatcher.match(null, keywordMatcher.newMatches()));
+    }
+
+    // the keywords in the order they ended in the text
+    private static List<String> match(KeywordMatcher keywordMatcher, String text) {
+        KeywordMatches matches = keywordMatcher.newMatches();
+        keywordMatcher.match(text, matches);
+        List<String> keywords = new ArrayList<>();
+        for (int i = 0; i < matches.size(); i++) {
+            keywords.add(keywordMatcher.getKeyword(matches.get(i)));
+        }
+        return keywords;
+    }
+}
@@ -0,0 +1,112 @@
+package com.microservicesdemo.demo.twitterToKafkaService.replay;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// windows of 16 bytes, so a file of a few hundred bytes rolls over many times, also in the middle of a read
+public class MappedFileInputStreamTest {
+    private static final long WINDOW_SIZE = 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void readsAcrossWindowsWithABufferLargerThanAWindow() throws IOException {
+        byte[] content = content(250);
+        try (MappedFileInputStream inputStream = open(content)) {
+            assertArrayEquals(content, readAll(inputStream, 100));
+        }
+    }
+
+    // a read never spans two windows, it returns the rest of the current one and the next read maps the next window
+    @Test
+    public void returnsTheRestOfTheWindowOnARead() throws IOException {
+        byte[] content = content(40);
+        try (MappedFileInputStream inputStream = open(content)) {
+            byte[] bytes = new byte[40];
+            assertEquals(10, inputStream.read(bytes, 0, 10));
+            assertEquals(6, inputStream.read(bytes, 10, 30));
+            assertEquals(16, inputStream.read(bytes, 16, 24));
+            assertEquals(8, inputStream.read(bytes, 32, 8));
+            assertEquals(-1, inputStream.read(bytes, 0, 8));
+            assertArrayEquals(content, bytes);
+        }
+    }
+
+    @Test
+    public void readsSingleBytesAcrossWindows() throws IOException {
+        byte[] content = content(50);
+        try (MappedFileInputStream inputStream = open(content)) {
+            for (byte expected : content) {
+                assertEquals(expected & 0xFF, inputStream.read());
+            }
+            assertEquals(-1, inputStream.read());
+        }
+    }
+
+    // the last window is shorter than the others when the size is no multiple of the window size
+    @Test
+    public void readsAFileOfExactlyOneWindowAndOneByteMore() throws IOException {
+        byte[] content = content((int) WINDOW_SIZE + 1);
+        try (MappedFileInputStream inputStream = open(content)) {
+            assertArrayEquals(content, readAll(inputStream, 64));
+        }
+    }
+
+    @Test
+    public void skipsAcrossWindows() throws IOException {
+        byte[] content = content(100);
+        try (MappedFileInputStream inputStream = open(content)) {
+            assertEquals(5, inputStream.read(new byte[5], 0, 5));
+            assertEquals(40, inputStream.skip(40));
+            assertEquals(content[45] & 0xFF, inputStream.read());
+            assertEquals(54, inputStream.skip(1000));
+            assertEquals(-1, inputStream.read());
+        }
+    }
+
+    @Test
+    public void returnsTheEndOfStreamForAnEmptyFile() throws IOException {
+        try (MappedFileInputStream inputStream = open(new byte[0])) {
+            assertEquals(0, inputStream.read(new byte[8], 0, 0));
+            assertEquals(-1, inputStream.read(new byte[8], 0, 8));
+            assertEquals(-1, inputStream.read());
+            assertEquals(0, inputStream.skip(10));
+        }
+    }
+
+    private MappedFileInputStream open(byte[] content) throws IOException {
+        Path file = directory.resolve("tweets.jsonl");
+        Files.write(file, content);
+        return new MappedFileInputStream(file, WINDOW_SIZE);
+    }
+
+    // every byte has another value than its neighbours, so a window mapped at the wrong position shows up
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 7);
+        }
+        return content;
+    }
+
+    private static byte[] readAll(MappedFileInputStream inputStream, int bufferSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[bufferSize];
+        int read;
+        while ((read = inputStream.read(buffer, 0, buffer.length)) >= 0) {
+            assertTrue(read > 0, "read returned 0 bytes");
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
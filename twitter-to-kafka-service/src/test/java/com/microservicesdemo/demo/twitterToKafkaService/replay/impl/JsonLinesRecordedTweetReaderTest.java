@@ -0,0 +1,155 @@
+package com.microservicesdemo.demo.twitterToKafkaService.replay.impl;
+
+import org.junit.jupiter.api.Test;
+import twitter4j.Status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// the reader splits the lines on the raw bytes and refills its buffer itself, so the input streams here hand out
+// a few bytes per read to put the line breaks, and the bytes of a utf-8 character, on both sides of a refill
+public class JsonLinesRecordedTweetReaderTest {
+    private static final long CREATED_AT_MS = 1_539_202_764_000L;
+
+    @Test
+    public void readsLinesThatSpanBufferRefills() throws IOException {
+        String content = tweet(1, "first tweet") + "\n" + tweet(2, "second tweet") + "\n" + tweet(3, "third tweet") + "\n";
+
+        for (int bytesPerRead : new int[]{1, 7, 64, 1 << 20}) {
+            JsonLinesRecordedTweetReader reader = reader(content, bytesPerRead);
+            assertEquals(Arrays.asList(1L, 2L, 3L), ids(reader), "with " + bytesPerRead + " bytes per read");
+            assertEquals(0, reader.getSkippedCount());
+        }
+    }
+
+    // the buffer starts at 64 KiB and doubles for a line that does not fit
+    @Test
+    public void readsLinesLongerThanTheBuffer() throws IOException {
+        String longText = String.join("", Collections.nCopies(100_000, "a"));
+        String veryLongText = String.join("", Collections.nCopies(300_000, "b"));
+        String content = tweet(1, "short") + "\n" + tweet(2, longText) + "\n" + tweet(3, veryLongText) + "\n" + tweet(4, "short again") + "\n";
+
+        JsonLinesRecordedTweetReader reader = reader(content, 8192);
+
+        assertEquals("short", reader.next().getText());
+        assertEquals(longText, reader.next().getText());
+        assertEquals(veryLongText, reader.next().getText());
+        assertEquals("short again", reader.next().getText());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void stripsWindowsLineBreaks() throws IOException {
+        String content = tweet(1, "first") + "\r\n" + tweet(2, "second") + "\r\n";
+
+        JsonLinesRecordedTweetReader reader = reader(content, 5);
+
+        assertEquals("first", reader.next().getText());
+        assertEquals("second", reader.next().getText());
+        assertNull(reader.next());
+        assertEquals(0, reader.getSkippedCount());
+    }
+
+    @Test
+    public void readsTheLastLineWithoutALineBreak() throws IOException {
+        String content = tweet(1, "first") + "\n" + tweet(2, "last");
+
+        assertEquals(Arrays.asList(1L, 2L), ids(reader(content, 3)));
+    }
+
+    // a refill after every byte splits the multi byte characters, they are only decoded once the line is complete
+    @Test
+    public void decodesMultiByteCharactersSplitByARefill() throws IOException {
+        String text = "héllo wörld 日本 🐦";
+        String content = tweet(1, text) + "\n";
+
+        assertEquals(text, reader(content, 1).next().getText());
+    }
+
+    @Test
+    public void skipsEmptyLinesNoticesAndBrokenJson() throws IOException {
+        String content = "\n"
+                + tweet(1, "first") + "\n"
+                + "\r\n"
+                + "{\"delete\":{\"status\":{\"id\":1,\"user_id\":2}}}\n"
+                + "{\"created_at\": broken\n"
+                + tweet(2, "second") + "\n"
+                + "\n";
+
+        JsonLinesRecordedTweetReader reader = reader(content, 16);
+
+        assertEquals(Arrays.asList(1L, 2L), ids(reader));
+        assertEquals(2, reader.getSkippedCount());
+    }
+
+    @Test
+    public void takesTheTimestampFromTimestampMsOrCreatedAt() throws IOException {
+        String content = tweet(1, "with timestamp_ms") + "\n"
+                + "{\"created_at\":\"Wed Oct 10 20:19:30 +0000 2018\",\"id\":2,\"text\":\"without\",\"user\":{\"id\":42,\"screen_name\":\"user\"}}\n";
+
+        JsonLinesRecordedTweetReader reader = reader(content, 64);
+
+        reader.next();
+        assertEquals(CREATED_AT_MS + 123, reader.getTimestampMs());
+        reader.next();
+        assertEquals(CREATED_AT_MS + 6000, reader.getTimestampMs());
+    }
+
+    @Test
+    public void readsNothingFromAnEmptyStream() throws IOException {
+        JsonLinesRecordedTweetReader reader = reader("", 16);
+
+        assertNull(reader.next());
+        assertNull(reader.next());
+    }
+
+    // created_at has seconds only, timestamp_ms adds the milliseconds
+    private static String tweet(long id, String text) {
+        return "{\"created_at\":\"Wed Oct 10 20:19:24 +0000 2018\",\"id\":" + id + ",\"text\":\"" + text + "\","
+                + "\"user\":{\"id\":42,\"screen_name\":\"user\"},\"timestamp_ms\":\"" + (CREATED_AT_MS + 123) + "\"}";
+    }
+
+    private static JsonLinesRecordedTweetReader reader(String content, int bytesPerRead) {
+        return new JsonLinesRecordedTweetReader(new ChunkedInputStream(content.getBytes(StandardCharsets.UTF_8), bytesPerRead), "test.jsonl");
+    }
+
+    private static List<Long> ids(JsonLinesRecordedTweetReader reader) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        Status status;
+        while ((status = reader.next()) != null) {
+            ids.add(status.getId());
+        }
+        return ids;
+    }
+
+    // hands out at most bytesPerRead bytes per read, like a decompressing stream that returns what it has
+    private static final class ChunkedInputStream extends InputStream {
+        private final ByteArrayInputStream inputStream;
+
+        private final int bytesPerRead;
+
+        private ChunkedInputStream(byte[] content, int bytesPerRead) {
+            this.inputStream = new ByteArrayInputStream(content);
+            this.bytesPerRead = bytesPerRead;
+        }
+
+        @Override
+        public int read() {
+            return inputStream.read();
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            return inputStream.read(bytes, offset, Math.min(length, bytesPerRead));
+        }
+    }
+}